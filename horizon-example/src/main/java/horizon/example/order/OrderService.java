@@ -13,15 +13,10 @@ import horizon.example.ExampleService;
 @Service("orderService")
 public class OrderService extends ExampleService {
 	public Dataset search(String columnName, String columnValue, int start, int fetch) {
-		return dbaccess.perform(db -> {
-			Dataset dataset = dbaccess.query()
-				.sqlId("example.searchOrders")
-				.param("columnName", columnName).param("columnValue", columnValue)
-				.param("start", start).param("fetch", fetch)
-				.getDataset();
-
-			return getFetch(start, fetch).set(dataset);
-		});
+		return dbaccess.query()
+			.sqlId("example.searchOrders")
+			.param("columnName", columnName).param("columnValue", columnValue)
+			.page(start, fetch);
 	}
 
 	private DataObject getOrderInfo(String orderID) {
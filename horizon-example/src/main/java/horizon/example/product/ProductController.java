@@ -13,6 +13,7 @@ import org.springframework.web.servlet.ModelAndView;
 
 import horizon.data.Dataset;
 import horizon.example.ExampleController;
+import horizon.sql.JsonResult;
 
 @RequestMapping("/product")
 @Controller
@@ -24,31 +25,39 @@ public class ProductController extends ExampleController {
 	public ModelAndView search(
 		@RequestParam(required=false, defaultValue="") String by
 	  , @RequestParam(required=false, defaultValue="") String terms
-	  , @RequestParam(required=false, defaultValue="0") int start
-	  , @RequestParam(required=false, defaultValue="false") boolean json) {
+	  , @RequestParam(required=false, defaultValue="0") int start) {
 		int fetch = 5;
-		String columnName = null;
-		switch (by) {
-		case "id": columnName = "PROD_ID"; break;
-		case "name": columnName = "PROD_NAME"; break;
-		default: columnName = null;
-		}
-
-		Dataset dataset = service.search(columnName, terms, start, fetch);
+		Dataset dataset = service.search(columnName(by), terms, start, fetch);
 		Map<String, Integer> pagination = Map.of(
 			"start", dataset.getStart(),
 			"totalSize", dataset.getTotalSize(),
 			"fetchSize", fetch
 		);
 
-		return new ModelAndView(json ? "jsonView" : "product/prod-main")
-			.addObject("prodList", json ? dataset : toJson(dataset))
-			.addObject("pagination", json ? pagination : toJson(pagination));
+		return new ModelAndView("product/prod-main")
+			.addObject("prodList", toJson(dataset))
+			.addObject("pagination", toJson(pagination));
+	}
+
+	@RequestMapping(path="", params="json=true")
+	public JsonResult searchJson(
+		@RequestParam(required=false, defaultValue="") String by
+	  , @RequestParam(required=false, defaultValue="") String terms
+	  , @RequestParam(required=false, defaultValue="0") int start) {
+		return service.searchJson(columnName(by), terms, start, 5);
+	}
+
+	private static String columnName(String by) {
+		switch (by) {
+		case "id": return "PROD_ID";
+		case "name": return "PROD_NAME";
+		default: return null;
+		}
 	}
 
 	@RequestMapping("/select")
 	public ModelAndView select() {
-		ModelAndView mav = search("", "", 0, false);
+		ModelAndView mav = search("", "", 0);
 		mav.setViewName("product/prod-select");
 		return mav;
 	}
@@ -4,18 +4,23 @@ import org.springframework.stereotype.Service;
 
 import horizon.data.Dataset;
 import horizon.example.ExampleService;
+import horizon.sql.JsonResult;
 
 @Service("productService")
 public class ProductService extends ExampleService {
 	public Dataset search(String columnName, String columnValue, int start, int fetch) {
-		return dbaccess.perform(db -> {
-			Dataset result = dbaccess.query()
+		return dbaccess.query()
+			.sqlId("example.searchProducts")
+			.param("columnName", ifEmpty(columnName, () -> "PROD_ID")).param("columnValue", columnValue)
+			.page(start, fetch);
+	}
+
+	public JsonResult searchJson(String columnName, String columnValue, int start, int fetch) {
+		return new JsonResult(dbaccess)
+			.page("prodList", "pagination", () -> dbaccess.query()
 				.sqlId("example.searchProducts")
-				.param("columnName", ifEmpty(columnName, () -> "PROD_ID")).param("columnValue", columnValue)
-				.param("start", start).param("fetch", fetch)
-				.getDataset();
-			return getFetch(start, fetch).set(result);
-		});
+				.param("columnName", ifEmpty(columnName, () -> "PROD_ID")).param("columnValue", columnValue),
+				start, fetch);
 	}
 
 	public boolean create(Product product) {
@@ -2,7 +2,29 @@
 
 package horizon.data;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 
 import horizon.base.Assert;
 /**A list of elements with information for pagination.
@@ -19,6 +41,13 @@ import horizon.base.Assert;
  * <p>In traversing the elements, however, you should use 0-based index local to the DataList.</p>
  * <p>A DataList provides information whether it has {@link #hasMore() more elements}
  * to fetch {@link #hasPrevious() backwardly} or {@link #hasNext() forwardly}.</p>
+ * <p>By default, a DataList {@link #add(Object) adds} an element only if it does not contain an equal one,
+ * which is costly for a large list.<br />
+ * To populate a large list, {@link #append(Object) append} the elements,
+ * or have the list de-duplicate its elements {@link #unique(Function) by a key} or {@link #uniqueByIdentity() by identity} with a hash index.
+ * </p>
+ * <p>A DataList populated in {@link Keyset keyset pagination} carries a {@link #getCursor() cursor}
+ * to fetch the next elements with.</p>
  *
  * @param <E> element type
  */
@@ -29,10 +58,24 @@ public class DataList<E> extends ArrayList<E> {
 		return new Fetch(totalSize.intValue(), start, fetchSize);
 	}
 
+	/**Returns a Keyset for keyset pagination.
+	 * @param fetchSize	number of elements to fetch at once
+	 * @param columns	names of the sort key columns, each optionally followed by ' ASC' or ' DESC'
+	 * @return Keyset
+	 */
+	public static Keyset getKeyset(int fetchSize, String... columns) {
+		return new Keyset(fetchSize, columns);
+	}
+
 	private int
 		fetchSize,
 		totalSize,
 		start;
+	private String cursor;
+	private boolean identity;
+	private transient Function<? super E, ?> keyOf;
+	private transient Set<Object> index;
+	private transient int indexed;
 
 	/**Returns a fetch size, or the number of elements that are fetched at once.
 	 * @return fetch size
@@ -120,9 +163,124 @@ public class DataList<E> extends ArrayList<E> {
 		return hasMore() && getEnd() < getTotalSize() - 1;
 	}
 
+	/**Returns the cursor to fetch the elements that follow this list's elements in keyset pagination.
+	 * @return
+	 * <ul><li>cursor to use with {@link Keyset#after(String)}</li>
+	 * 	   <li>null if there are no more elements to fetch</li>
+	 * </ul>
+	 */
+	public String getCursor() {
+		return cursor;
+	}
+
+	/**Sets the cursor to fetch the elements that follow this list's elements in keyset pagination.
+	 * @param cursor cursor returned from {@link Keyset#cursor(Function)}
+	 * @return the DataList
+	 */
+	public <T extends DataList<E>> T setCursor(String cursor) {
+		this.cursor = cursor;
+		return self();
+	}
+
+	/**Has this list de-duplicate its elements by the keys the keyExtractor returns.<br />
+	 * The keys are kept in a hash index so that {@link #add(Object) adding} an element takes constant time.<br />
+	 * Of the elements this list already contains, those with duplicate keys are removed.
+	 * <p>The index is rebuilt when the list is modified by other methods than add, append, set, remove(int), and clear.<br />
+	 * A serialized list keeps de-duplicating by the keyExtractor only if the keyExtractor is Serializable.
+	 * </p>
+	 * @param keyExtractor function that returns the key of an element
+	 * @return the DataList
+	 */
+	public <T extends DataList<E>> T unique(Function<? super E, ?> keyExtractor) {
+		return setIndex(false, Assert.notEmpty(keyExtractor, "keyExtractor"));
+	}
+
+	/**Has this list de-duplicate its elements by identity.<br />
+	 * The elements are kept in an identity hash index so that {@link #add(Object) adding} an element takes constant time.<br />
+	 * Of the elements this list already contains, duplicate references are removed.
+	 * @return the DataList
+	 */
+	public <T extends DataList<E>> T uniqueByIdentity() {
+		return setIndex(true, null);
+	}
+
+	private <T extends DataList<E>> T setIndex(boolean identity, Function<? super E, ?> keyOf) {
+		this.identity = identity;
+		this.keyOf = keyOf;
+		Set<Object> keys = newIndex();
+		int size = size();
+		removeIf(e -> !keys.add(keyOf(e)));
+		totalSize -= size - size();
+		index = keys;
+		indexed = modCount;
+		return self();
+	}
+
+	private Set<Object> newIndex() {
+		return identity ? Collections.newSetFromMap(new IdentityHashMap<>()) : new HashSet<>();
+	}
+
+	private Object keyOf(E e) {
+		return keyOf != null ? keyOf.apply(e) : e;
+	}
+
+	/**Returns the hash index of the elements' keys, rebuilding it if the list has been modified without the index.
+	 * @return
+	 * <ul><li>hash index of the elements' keys</li>
+	 * 	   <li>null if the list is not set unique</li>
+	 * </ul>
+	 */
+	private Set<Object> index() {
+		if (!identity && keyOf == null) return null;
+
+		if (index == null || indexed != modCount) {
+			Set<Object> keys = newIndex();
+			for (E e: this)
+				keys.add(keyOf(e));
+			index = keys;
+			indexed = modCount;
+		}
+		return index;
+	}
+
+	/**Adds the element if this list does not contain an equal one.<br />
+	 * If this list is set {@link #unique(Function) unique by key} or {@link #uniqueByIdentity() by identity},
+	 * the element is checked against the hash index instead.
+	 * @param e element to add
+	 * @return
+	 * <ul><li>true if the element is added</li>
+	 * 	   <li>false if the element is null or duplicate</li>
+	 * </ul>
+	 */
 	@Override
 	public boolean add(E e) {
-		if (e == null || contains(e)) return false;
+		if (e == null) return false;
+		Set<Object> index = index();
+		if (index != null) {
+			if (!index.add(keyOf(e))) return false;
+		} else if (contains(e))
+			return false;
+
+		boolean result = super.add(e);
+		indexed = modCount;
+		++totalSize;
+		return result;
+	}
+
+	/**Appends the element without checking for an equal one.<br />
+	 * Use the method to populate a list with elements known to be distinct, like the rows of a query result.<br />
+	 * If this list is set {@link #unique(Function) unique by key} or {@link #uniqueByIdentity() by identity},
+	 * however, the element is checked against the hash index.
+	 * @param e element to append
+	 * @return
+	 * <ul><li>true if the element is appended</li>
+	 * 	   <li>false if the element is null or duplicate</li>
+	 * </ul>
+	 */
+	public boolean append(E e) {
+		if (e == null) return false;
+		if (identity || keyOf != null)
+			return add(e);
 
 		boolean result = super.add(e);
 		++totalSize;
@@ -130,24 +288,105 @@ public class DataList<E> extends ArrayList<E> {
 	}
 
 	@Override
-	public void add(int index, E e) {
-		super.add(index, e);
+	public void add(int i, E e) {
+		Set<Object> index = index();
+		if (index != null && !index.add(keyOf(e))) return;
+
+		super.add(i, e);
+		indexed = modCount;
 		++totalSize;
 	}
 
 	@Override
-	public E remove(int index) {
-		E e = super.remove(index);
-		if (e != null)
+	public E remove(int i) {
+		boolean synced = index != null && indexed == modCount;
+		E e = super.remove(i);
+		if (e != null) {
 			--totalSize;
+			if (synced) {
+				index.remove(keyOf(e));
+				indexed = modCount;
+			}
+		}
 		return e;
 	}
 
+	@Override
+	public E set(int i, E e) {
+		E old = super.set(i, e);
+		if (index != null && indexed == modCount) {
+			index.remove(keyOf(old));
+			index.add(keyOf(e));
+		}
+		return old;
+	}
+
+	/**Returns a view of the portion of this list.<br />
+	 * Unlike the one of an ArrayList, the view modifies this list with the methods of this list
+	 * so that the elements are checked against and kept in the hash index.
+	 */
+	@Override
+	public List<E> subList(int fromIndex, int toIndex) {
+		Objects.checkFromToIndex(fromIndex, toIndex, size());
+		return new AbstractList<E>() {
+			private int size = toIndex - fromIndex;
+
+			@Override
+			public E get(int i) {
+				return DataList.this.get(fromIndex + Objects.checkIndex(i, size));
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public E set(int i, E e) {
+				return DataList.this.set(fromIndex + Objects.checkIndex(i, size), e);
+			}
+
+			@Override
+			public void add(int i, E e) {
+				int count = DataList.this.size();
+				DataList.this.add(fromIndex + Objects.checkIndex(i, size + 1), e);
+				if (DataList.this.size() > count) {
+					++size;
+					++modCount;
+				}
+			}
+
+			@Override
+			public E remove(int i) {
+				E e = DataList.this.remove(fromIndex + Objects.checkIndex(i, size));
+				--size;
+				++modCount;
+				return e;
+			}
+		};
+	}
+
 	@Override
 	public void clear() {
 		super.clear();
 		totalSize  = 0;
 		start = -1;
+		cursor = null;
+		if (index != null) {
+			index.clear();
+			indexed = modCount;
+		}
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeObject(keyOf instanceof Serializable ? keyOf : null);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		keyOf = (Function<? super E, ?>)in.readObject();
 	}
 
 	/**Initializes this list.
@@ -181,6 +420,27 @@ public class DataList<E> extends ArrayList<E> {
 			this.fetchSize = fetchSize;
 		}
 
+		/**Returns the number of all elements.
+		 * @return number of all elements
+		 */
+		public int getTotalSize() {
+			return totalSize;
+		}
+
+		/**Returns the start index of the elements fetched.
+		 * @return 0-based start index, or -1 if there are no elements
+		 */
+		public int getStart() {
+			return start;
+		}
+
+		/**Returns the number of elements fetched at once.
+		 * @return fetch size
+		 */
+		public int getFetchSize() {
+			return fetchSize;
+		}
+
 		/**Sets the fetch info to the list
 		 * @param <T> a DataList type
 		 * @param list a DataList
@@ -237,4 +497,236 @@ public class DataList<E> extends ArrayList<E> {
 			return visibleLinks < 1 ? 0 : page / visibleLinks;
 		}
 	}
+
+	/**Information for keyset(or seek) pagination.
+	 * <p>Unlike the pagination with a start index, which makes the database scan and discard the rows before the start,
+	 * keyset pagination fetches the rows that come after the last-seen values of the sort key.<br />
+	 * The cost to fetch a page, therefore, does not depend on how deep the page is.
+	 * </p>
+	 * <p>The sort key must identify the rows uniquely in the order of its columns.<br />
+	 * The last-seen values are set either {@link #after(Object...) directly} or with a {@link #after(String) cursor}
+	 * returned from a {@link DataList#getCursor() DataList} of the previous page.
+	 * </p>
+	 * <p>A Keyset is used by a {@link horizon.sql.Query#keyset(Keyset) Query}.</p>
+	 */
+	public static class Keyset {
+		private String[] columns;
+		private boolean[] descending;
+		private List<Object> values;
+		private int fetchSize;
+		private boolean count;
+
+		private Keyset(int fetchSize, String... columns) {
+			if (fetchSize < 1)
+				throw new IllegalArgumentException("fetchSize < 1");
+			if (Assert.isEmpty(columns))
+				throw new IllegalArgumentException("Empty or missing columns");
+
+			this.fetchSize = fetchSize;
+			this.columns = new String[columns.length];
+			this.descending = new boolean[columns.length];
+			for (int i = 0; i < columns.length; ++i) {
+				String[] tokens = Assert.notEmpty(columns[i], "column").trim().split("\\s+");
+				this.columns[i] = tokens[0];
+				this.descending[i] = tokens.length > 1 && "DESC".equalsIgnoreCase(tokens[1]);
+			}
+		}
+
+		/**Returns the names of the sort key columns.
+		 * @return names of the sort key columns
+		 */
+		public List<String> getColumns() {
+			return Arrays.asList(columns);
+		}
+
+		/**Returns whether the column at the index is sorted in descending order.
+		 * @param index 0-based index of a sort key column
+		 * @return
+		 * <ul><li>true if the column is sorted in descending order</li>
+		 * 	   <li>false otherwise</li>
+		 * </ul>
+		 */
+		public boolean isDescending(int index) {
+			return descending[index];
+		}
+
+		/**Returns the number of elements to fetch at once.
+		 * @return fetch size
+		 */
+		public int getFetchSize() {
+			return fetchSize;
+		}
+
+		/**Returns the last-seen values of the sort key.
+		 * @return
+		 * <ul><li>last-seen values of the sort key</li>
+		 * 	   <li>empty list if it is to fetch the first page</li>
+		 * </ul>
+		 */
+		public List<Object> getValues() {
+			return values != null ? values : Collections.emptyList();
+		}
+
+		/**Sets the last-seen values of the sort key.
+		 * @param values last-seen values in the order of the sort key columns. Empty to fetch the first page.
+		 * @return the Keyset
+		 */
+		public Keyset after(Object... values) {
+			if (Assert.isEmpty(values))
+				this.values = null;
+			else {
+				if (values.length != columns.length)
+					throw new IllegalArgumentException("The values must match the sort key columns in number");
+				this.values = Arrays.asList(values);
+			}
+			return this;
+		}
+
+		/**Sets the last-seen values of the sort key with the cursor.
+		 * @param cursor cursor from {@link DataList#getCursor()}. Empty to fetch the first page.
+		 * @return the Keyset
+		 */
+		public Keyset after(String cursor) {
+			return after(Assert.isEmpty(cursor) ? null : decode(cursor));
+		}
+
+		/**Sets the last-seen values of the sort key with the cursor of the list.
+		 * @param list DataList of the previous page
+		 * @return the Keyset
+		 */
+		public Keyset after(DataList<?> list) {
+			return after(list != null ? list.getCursor() : null);
+		}
+
+		/**Returns whether the total number of elements is counted.
+		 * @return
+		 * <ul><li>true if the total number of elements is counted</li>
+		 * 	   <li>false otherwise</li>
+		 * </ul>
+		 */
+		public boolean isCounted() {
+			return count;
+		}
+
+		/**Sets whether to count the total number of elements.<br />
+		 * By default, the count is skipped because it costs an extra scan of the rows.
+		 * @param count
+		 * <ul><li>true to count the total number of elements</li>
+		 * 	   <li>false otherwise</li>
+		 * </ul>
+		 * @return the Keyset
+		 */
+		public Keyset count(boolean count) {
+			this.count = count;
+			return this;
+		}
+
+		/**Returns a cursor that points to the row whose values are provided with the valueOf.
+		 * @param valueOf function that returns the value of the named column of the last row
+		 * @return cursor to the row
+		 */
+		public String cursor(Function<String, Object> valueOf) {
+			Object[] values = new Object[columns.length];
+			for (int i = 0; i < columns.length; ++i)
+				values[i] = valueOf.apply(columns[i]);
+			return encode(values);
+		}
+
+		/**Sets the cursor of the list.<br />
+		 * The cursor is set only when the list is filled up to the fetch size.
+		 * If it is known whether more elements follow, use {@link #set(DataList, boolean, Function)} instead.
+		 * @param <T> a DataList type
+		 * @param list DataList of the fetched elements
+		 * @param valueOf function that returns the value of the named column of the last row
+		 * @return the list
+		 */
+		public <T extends DataList<?>> T set(T list, Function<String, Object> valueOf) {
+			return set(list, list != null && list.size() >= fetchSize, valueOf);
+		}
+
+		/**Sets the cursor of the list.<br />
+		 * The cursor is set only when more elements follow the list.
+		 * @param <T> a DataList type
+		 * @param list DataList of the fetched elements
+		 * @param more whether more elements follow the last row read
+		 * @param valueOf function that returns the value of the named column of the last row read
+		 * @return the list
+		 */
+		public <T extends DataList<?>> T set(T list, boolean more, Function<String, Object> valueOf) {
+			if (list != null) {
+				list.setFetchSize(fetchSize);
+				list.setCursor(more ? cursor(valueOf) : null);
+			}
+			return list;
+		}
+
+		private static String encode(Object[] values) {
+			try {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				DataOutputStream out = new DataOutputStream(bytes);
+				out.writeShort(values.length);
+				for (Object value: values) {
+					if (value == null)
+						out.writeChar('N');
+					else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+						out.writeChar('J');
+						out.writeUTF(value.toString());
+					} else if (value instanceof Number) {
+						out.writeChar('D');
+						out.writeUTF(new BigDecimal(value.toString()).toString());
+					} else if (value instanceof Boolean) {
+						out.writeChar('Z');
+						out.writeUTF(value.toString());
+					} else if (value instanceof java.sql.Date) {
+						out.writeChar('d');
+						out.writeUTF(value.toString());
+					} else if (value instanceof java.util.Date) {
+						out.writeChar('T');
+						out.writeUTF((value instanceof Timestamp ? (Timestamp)value : new Timestamp(((java.util.Date)value).getTime())).toString());
+					} else if (value instanceof LocalDateTime) {
+						out.writeChar('L');
+						out.writeUTF(value.toString());
+					} else if (value instanceof LocalDate) {
+						out.writeChar('l');
+						out.writeUTF(value.toString());
+					} else {
+						out.writeChar('S');
+						out.writeUTF(value.toString());
+					}
+				}
+				out.flush();
+				return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+			} catch (Exception e) {
+				throw Assert.runtimeException(e);
+			}
+		}
+
+		private static Object[] decode(String cursor) {
+			try {
+				DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)));
+				Object[] values = new Object[in.readShort()];
+				for (int i = 0; i < values.length; ++i) {
+					char type = in.readChar();
+					String str = type == 'N' ? null : in.readUTF();
+					switch (type) {
+					case 'N': values[i] = null; break;
+					case 'J': values[i] = Long.valueOf(str); break;
+					case 'D': values[i] = new BigDecimal(str); break;
+					case 'Z': values[i] = Boolean.valueOf(str); break;
+					case 'd': values[i] = java.sql.Date.valueOf(str); break;
+					case 'T': values[i] = Timestamp.valueOf(str); break;
+					case 'L': values[i] = LocalDateTime.parse(str); break;
+					case 'l': values[i] = LocalDate.parse(str); break;
+					case 'S': values[i] = str; break;
+					default: throw new IllegalArgumentException("Invalid cursor: " + cursor);
+					}
+				}
+				return values;
+			} catch (IllegalArgumentException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+			}
+		}
+	}
 }
\ No newline at end of file
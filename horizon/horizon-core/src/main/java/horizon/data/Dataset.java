@@ -14,12 +14,15 @@ public class Dataset extends DataList<DataObject> {
 	private static final long serialVersionUID = 1L;
 
 	/**Changes the names of the DataObjects' fields to camel case if they contained the underscore('_') character.
+	 * <p>The method rewrites the keys of every DataObject.
+	 * For a query result, prefer to have the Query name the keys with {@link Naming#CAMEL_CASE} as the rows are read.
+	 * </p>
 	 * @return the Dataset
 	 */
 	public Dataset underscoredToCamelCase(boolean camelCase) {
 		if (!isEmpty() && camelCase) {
 			Set<Map.Entry<String, String>> keymap = get(0).keySet().stream().collect(
-					Collectors.toMap(k -> k, v -> camelCase(v), (k1, k2) -> k1, LinkedHashMap::new)
+					Collectors.toMap(k -> k, v -> Naming.camelCase(v), (k1, k2) -> k1, LinkedHashMap::new)
 				).entrySet();
 
 			forEach(row ->
@@ -28,15 +31,4 @@ public class Dataset extends DataList<DataObject> {
 		}
 		return this;
 	}
-
-	private static String camelCase(String str) {
-		StringBuilder buf = new StringBuilder();
-		for (String token: str.split("_")) {
-			if (buf.length() < 1)
-				buf.append(token.toLowerCase());
-			else
-				buf.append(token.substring(0, 1).toUpperCase() + token.substring(1).toLowerCase());
-		}
-		return buf.toString();
-	}
 }
\ No newline at end of file
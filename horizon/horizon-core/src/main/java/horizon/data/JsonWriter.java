@@ -0,0 +1,381 @@
+/* Copyright (c) 2020 Emjay Khan. All rights reserved. */
+
+package horizon.data;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.time.temporal.TemporalAccessor;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+
+import horizon.base.Assert;
+
+/**Writes JSON to a Writer as the values are given, without building the whole document in memory.
+ * <p>A JsonWriter writes
+ * <ul><li>objects with {@link #beginObject()}, {@link #name(String)}, and {@link #endObject()}</li>
+ * 	   <li>arrays with {@link #beginArray()} and {@link #endArray()}</li>
+ * 	   <li>values with {@link #value(Object)}</li>
+ * </ul>
+ * and takes care of the separators between the members and elements.
+ * </p>
+ * <p>When the same names are written repeatedly, like the column names of the rows in a query result,
+ * {@link #encode(String) encode} the names once and write them with {@link #encodedName(String)}.
+ * </p>
+ * <p>The values are written as follows:
+ * <ul><li>Numbers and Booleans as they are. Infinite or NaN values as null.</li>
+ * 	   <li>Dates as milliseconds since the epoch and java.time values as their ISO-8601 strings</li>
+ * 	   <li>byte arrays, Blobs, and InputStreams as Base64-encoded strings</li>
+ * 	   <li>Clobs and Readers as strings, streamed in chunks</li>
+ * 	   <li>{@link DataList}s as objects with the pagination information and the elements, and {@link DataList.Fetch}es as objects with the pagination information</li>
+ * 	   <li>Maps as objects, and Iterables and arrays as arrays</li>
+ * 	   <li>Other objects as strings from their toString() methods</li>
+ * </ul>
+ * </p>
+ */
+public class JsonWriter implements Closeable, Flushable {
+	private static final int BUFFER_SIZE = 8192;
+
+	/**Returns the str quoted and escaped as a JSON string.
+	 * @param str a String
+	 * @return quoted and escaped JSON string
+	 */
+	public static String encode(String str) {
+		StringBuilder buffer = new StringBuilder(str.length() + 2).append('"');
+		for (int i = 0, length = str.length(); i < length; ++i) {
+			char c = str.charAt(i);
+			String escaped = escape(c);
+			if (escaped != null)
+				buffer.append(escaped);
+			else
+				buffer.append(c);
+		}
+		return buffer.append('"').toString();
+	}
+
+	private static final String[] ESCAPES = new String[128];
+	static {
+		for (int c = 0; c < 0x20; ++c)
+			ESCAPES[c] = String.format("\\u%04x", c);
+		ESCAPES['"'] = "\\\"";
+		ESCAPES['\\'] = "\\\\";
+		ESCAPES['\b'] = "\\b";
+		ESCAPES['\f'] = "\\f";
+		ESCAPES['\n'] = "\\n";
+		ESCAPES['\r'] = "\\r";
+		ESCAPES['\t'] = "\\t";
+	}
+
+	private static String escape(char c) {
+		if (c < 128)
+			return ESCAPES[c];
+		if (c == '\u2028')
+			return "\\u2028";
+		if (c == '\u2029')
+			return "\\u2029";
+		return null;
+	}
+
+	private final Writer out;
+	private boolean[] first = new boolean[16];
+	private int depth;
+	private boolean named;
+
+	/**Creates a new JsonWriter.<br />
+	 * For performance, provide a buffered Writer.
+	 * @param out Writer to write JSON to
+	 */
+	public JsonWriter(Writer out) {
+		this.out = Assert.notEmpty(out, "out");
+	}
+
+	private void separate() throws IOException {
+		if (named) {
+			named = false;
+			return;
+		}
+		if (depth < 1) return;
+
+		if (first[depth])
+			first[depth] = false;
+		else
+			out.write(',');
+	}
+
+	private JsonWriter begin(char c) throws IOException {
+		separate();
+		out.write(c);
+		if (++depth == first.length)
+			first = Arrays.copyOf(first, depth * 2);
+		first[depth] = true;
+		return this;
+	}
+
+	private JsonWriter end(char c) throws IOException {
+		if (depth < 1)
+			throw new IllegalStateException("Nothing to close with '" + c + "'");
+		--depth;
+		out.write(c);
+		return this;
+	}
+
+	/**Begins a JSON object.
+	 * @return this JsonWriter
+	 * @throws IOException
+	 */
+	public JsonWriter beginObject() throws IOException {
+		return begin('{');
+	}
+
+	/**Ends the current JSON object.
+	 * @return this JsonWriter
+	 * @throws IOException
+	 */
+	public JsonWriter endObject() throws IOException {
+		return end('}');
+	}
+
+	/**Begins a JSON array.
+	 * @return this JsonWriter
+	 * @throws IOException
+	 */
+	public JsonWriter beginArray() throws IOException {
+		return begin('[');
+	}
+
+	/**Ends the current JSON array.
+	 * @return this JsonWriter
+	 * @throws IOException
+	 */
+	public JsonWriter endArray() throws IOException {
+		return end(']');
+	}
+
+	/**Writes the name of a member of the current object.
+	 * @param name member name
+	 * @return this JsonWriter
+	 * @throws IOException
+	 */
+	public JsonWriter name(String name) throws IOException {
+		return encodedName(encode(Assert.notEmpty(name, "name")));
+	}
+
+	/**Writes the name of a member of the current object.
+	 * @param encoded member name {@link #encode(String) encoded} beforehand
+	 * @return this JsonWriter
+	 * @throws IOException
+	 */
+	public JsonWriter encodedName(String encoded) throws IOException {
+		separate();
+		out.write(encoded);
+		out.write(':');
+		named = true;
+		return this;
+	}
+
+	/**Writes the name and value of a member of the current object.
+	 * @param name	member name
+	 * @param value	member value
+	 * @return this JsonWriter
+	 * @throws IOException
+	 */
+	public JsonWriter member(String name, Object value) throws IOException {
+		return name(name).value(value);
+	}
+
+	/**Writes the value.
+	 * @param value a value
+	 * @return this JsonWriter
+	 * @throws IOException
+	 */
+	public JsonWriter value(Object value) throws IOException {
+		if (value == null)
+			return raw("null");
+
+		if (value instanceof CharSequence || value instanceof Character || value instanceof Enum)
+			return string(value.toString());
+		if (value instanceof Number)
+			return number((Number)value);
+		if (value instanceof Boolean)
+			return raw(value.toString());
+		if (value instanceof Date)
+			return raw(Long.toString(((Date)value).getTime()));
+		if (value instanceof TemporalAccessor)
+			return string(value.toString());
+
+		if (value instanceof byte[])
+			return string(Base64.getEncoder().encodeToString((byte[])value));
+		if (value instanceof InputStream)
+			return value((InputStream)value);
+		if (value instanceof Reader)
+			return value((Reader)value);
+		if (value instanceof Blob)
+			try (InputStream input = ((Blob)value).getBinaryStream()) {
+				return value(input);
+			} catch (IOException e) {
+				throw e;
+			} catch (Exception e) {
+				throw Assert.runtimeException(e);
+			}
+		if (value instanceof Clob)
+			try (Reader reader = ((Clob)value).getCharacterStream()) {
+				return value(reader);
+			} catch (IOException e) {
+				throw e;
+			} catch (Exception e) {
+				throw Assert.runtimeException(e);
+			}
+
+		if (value instanceof DataList)
+			return dataList((DataList<?>)value);
+		if (value instanceof DataList.Fetch)
+			return pagination((DataList.Fetch)value);
+		if (value instanceof Map) {
+			beginObject();
+			for (Map.Entry<?, ?> entry: ((Map<?, ?>)value).entrySet())
+				name(String.valueOf(entry.getKey())).value(entry.getValue());
+			return endObject();
+		}
+		if (value instanceof Iterable) {
+			beginArray();
+			for (Object obj: (Iterable<?>)value)
+				value(obj);
+			return endArray();
+		}
+		if (value.getClass().isArray()) {
+			beginArray();
+			for (int i = 0, length = Array.getLength(value); i < length; ++i)
+				value(Array.get(value, i));
+			return endArray();
+		}
+
+		return string(value.toString());
+	}
+
+	/**Writes the characters the reader reads as a string.<br />
+	 * The characters are read and written in chunks.
+	 * @param reader a Reader
+	 * @return this JsonWriter
+	 * @throws IOException
+	 */
+	public JsonWriter value(Reader reader) throws IOException {
+		if (reader == null)
+			return raw("null");
+
+		separate();
+		out.write('"');
+		char[] chars = new char[BUFFER_SIZE];
+		int read = -1;
+		while ((read = reader.read(chars)) != -1)
+			escape(chars, read);
+		out.write('"');
+		return this;
+	}
+
+	/**Writes the bytes the input reads as a Base64-encoded string.<br />
+	 * The bytes are read and written in chunks.
+	 * @param input an InputStream
+	 * @return this JsonWriter
+	 * @throws IOException
+	 */
+	public JsonWriter value(InputStream input) throws IOException {
+		if (input == null)
+			return raw("null");
+
+		separate();
+		out.write('"');
+		Base64.Encoder encoder = Base64.getEncoder();
+		byte[] bytes = new byte[3 * 2048];
+		int read = 0;
+		while ((read = input.readNBytes(bytes, 0, bytes.length)) > 0) {
+			byte[] chunk = read < bytes.length ? Arrays.copyOf(bytes, read) : bytes;
+			out.write(encoder.encodeToString(chunk));
+		}
+		out.write('"');
+		return this;
+	}
+
+	private JsonWriter dataList(DataList<?> list) throws IOException {
+		beginObject()
+			.member("totalSize", list.getTotalSize())
+			.member("start", list.getStart())
+			.member("fetchSize", list.getFetchSize());
+		if (list.getCursor() != null)
+			member("cursor", list.getCursor());
+		name("elements").beginArray();
+		for (Object obj: list)
+			value(obj);
+		return endArray().endObject();
+	}
+
+	private JsonWriter pagination(DataList.Fetch fetch) throws IOException {
+		return beginObject()
+			.member("totalSize", fetch.getTotalSize())
+			.member("start", fetch.getStart())
+			.member("fetchSize", fetch.getFetchSize())
+			.endObject();
+	}
+
+	private JsonWriter number(Number number) throws IOException {
+		if (number instanceof Double || number instanceof Float) {
+			double d = number.doubleValue();
+			if (Double.isNaN(d) || Double.isInfinite(d))
+				return raw("null");
+		}
+		return raw(number.toString());
+	}
+
+	private JsonWriter string(String str) throws IOException {
+		separate();
+		out.write('"');
+		int start = 0;
+		for (int i = 0, length = str.length(); i < length; ++i) {
+			String escaped = escape(str.charAt(i));
+			if (escaped == null) continue;
+
+			out.write(str, start, i - start);
+			out.write(escaped);
+			start = i + 1;
+		}
+		out.write(str, start, str.length() - start);
+		out.write('"');
+		return this;
+	}
+
+	private void escape(char[] chars, int length) throws IOException {
+		int start = 0;
+		for (int i = 0; i < length; ++i) {
+			String escaped = escape(chars[i]);
+			if (escaped == null) continue;
+
+			out.write(chars, start, i - start);
+			out.write(escaped);
+			start = i + 1;
+		}
+		out.write(chars, start, length - start);
+	}
+
+	private JsonWriter raw(String str) throws IOException {
+		separate();
+		out.write(str);
+		return this;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,47 @@
+/* Copyright (c) 2020 Emjay Khan. All rights reserved. */
+
+package horizon.data;
+
+/**Strategy to name the keys of {@link DataObject}s after the column labels of a query result.
+ * <p>A naming strategy is applied once to the column labels of a result before the rows are read,
+ * so that the rows are built with the final keys from the start.<br />
+ * Besides the provided strategies, you can use a lambda expression for a custom one.
+ * <pre><code> dbaccess.query()
+ *     .sql("SELECT * FROM CUSTOMER")
+ *     .naming(Naming.CAMEL_CASE)
+ *     .getDataset(); // CUST_ID becomes custId
+ * </code></pre>
+ * </p>
+ */
+@FunctionalInterface
+public interface Naming {
+	/**Uses the column labels as they are.*/
+	public static final Naming AS_IS = label -> label;
+	/**Converts the column labels to lower case.*/
+	public static final Naming LOWER_CASE = label -> label.toLowerCase();
+	/**Converts the underscored column labels to camel case.*/
+	public static final Naming CAMEL_CASE = Naming::camelCase;
+
+	/**Returns the key for the column label.
+	 * @param label column label
+	 * @return key for the column label
+	 */
+	String name(String label);
+
+	/**Converts the str to camel case if it contains the underscore('_') character.
+	 * @param str a String
+	 * @return camel-cased string
+	 */
+	public static String camelCase(String str) {
+		StringBuilder buf = new StringBuilder();
+		for (String token: str.split("_")) {
+			if (token.isEmpty()) continue;
+
+			if (buf.length() < 1)
+				buf.append(token.toLowerCase());
+			else
+				buf.append(token.substring(0, 1).toUpperCase() + token.substring(1).toLowerCase());
+		}
+		return buf.toString();
+	}
+}
\ No newline at end of file
@@ -2,11 +2,21 @@
 
 package horizon.sql;
 
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import horizon.base.Assert;
 import horizon.data.DataObject;
+import horizon.data.Dataset;
 import horizon.sql.DBAccess.TryReturn;
 import horizon.sql.support.SQLProc;
 
@@ -30,12 +40,36 @@ import horizon.sql.support.SQLProc;
  * Each call to the method adds the arguments as those for a batch execution.
  * </p>
  *
+ * <p>To get the keys an INSERT statement generates for the rows, use {@link #autoIncKeys(String...)} instead of {@link #execute()}.
+ * The JDBC driver must support the generated keys of a batch.
+ * </p>
+ *
+ * <p>With {@link #execute()}, a single row that fails rolls back all the rows.
+ * To keep the rows that succeed, use {@link #executeInChunks(int)}, which commits the rows in chunks
+ * and reports the rows that fail with their indices.
+ * </p>
+ *
+ * <p>The arguments added with the methods are kept in memory until the Batch {@link #execute() executes} the statement.<br />
+ * To load a large number of rows with bounded memory, {@link #stream(Iterator) stream} the arguments instead.
+ * The Batch then binds the arguments one row at a time and executes the statement every {@link #flushSize(int) flush size} rows.
+ * <pre><code> long affected = dbaccess.batch()
+ *     .sql("INSERT INTO CUSTOMER (CUST_ID, CUST_NAME) VALUES (?, ?)")
+ *     .flushSize(1000)
+ *     .commitSize(100000)
+ *     .progress(progress -&gt; log.info(progress.getRows() + " row(s) loaded"))
+ *     .stream(reader.lines().map(line -&gt; line.split(",")));</code></pre>
+ * </p>
+ *
  * <p>A Batch controls the database connection and transaction automatically while executing statements.
  * </p>
  */
 public class Batch extends DBAction {
 	private ArrayList<Object[]> params;
 	private ArrayList<Map<String, Object>> paramMaps;
+	private int
+		flushSize = 1000,
+		commitSize;
+	private Consumer<Progress> progress;
 
 	/**Creates a new Batch.
 	 * @param dbaccess DBAccess this Batch is associated with
@@ -128,6 +162,43 @@ public class Batch extends DBAction {
 		return this;
 	}
 
+	/**Sets the number of rows to execute the statement with at a time while {@link #stream(Iterator) streaming} the arguments.<br />
+	 * The default is 1000.<br />
+	 * The setting is effective until the Batch is closed.
+	 * @param rows number of rows to execute the statement with at a time
+	 * @return this Batch
+	 */
+	public Batch flushSize(int rows) {
+		if (rows < 1)
+			throw new IllegalArgumentException("rows < 1");
+		this.flushSize = rows;
+		return this;
+	}
+
+	/**Sets the number of rows to commit at a time while {@link #stream(Iterator) streaming} the arguments.<br />
+	 * The rows are committed when the Batch has executed the statement with the number of rows or more since the last commit.
+	 * So for the commits to be exact, set the number to a multiple of the {@link #flushSize(int) flush size}.<br />
+	 * The setting is ignored when the Batch joins a transaction already in progress.
+	 * The setting is effective until the Batch is closed.
+	 * @param rows number of rows to commit at a time. If not positive, the rows are committed once after all are processed.
+	 * @return this Batch
+	 */
+	public Batch commitSize(int rows) {
+		this.commitSize = Math.max(0, rows);
+		return this;
+	}
+
+	/**Sets the callback to report the progress to while {@link #stream(Iterator) streaming} the arguments.<br />
+	 * The callback is called every time the Batch executes the statement.<br />
+	 * The setting is effective until the Batch is closed.
+	 * @param progress callback to report the progress to
+	 * @return this Batch
+	 */
+	public Batch progress(Consumer<Progress> progress) {
+		this.progress = progress;
+		return this;
+	}
+
 	@Override
 	<T> T execute(TryReturn<T> update) {
 		if (update == null)
@@ -155,49 +226,391 @@ public class Batch extends DBAction {
 	 * @return numbers of affected rows from each execution
 	 */
 	public int[] execute() {
+		return execute((dbaccess) -> executeBatch(null));
+	}
+
+	/**Executes the INSERT statement in batches and returns the generated keys of the rows.<br />
+	 * The keys are in the order of the arguments the statement is executed with.<br />
+	 * The JDBC driver must support the generated keys of a batch. See {@link horizon.sql.support.Dialect#supportsBatchKeys()}.
+	 * @param columns names of the auto-incremented columns. If empty, the JDBC driver determines the columns.
+	 * Some drivers need the names to return the generated keys. See {@link horizon.sql.support.Dialect#requiresNamedKeys()}.
+	 * @return generated keys of the rows
+	 */
+	public Dataset autoIncKeys(String... columns) {
 		return execute((dbaccess) -> {
-			boolean withSQL = isEmpty(sqlId);
-			if (withSQL && isEmpty(argMap) && isEmpty(paramMaps)) {
-				prepare(false);
-				if (!isEmpty(params))
-					for (Object[] args: params) {
-						super.params(args);
-						bind(false);
-						pstmt.addBatch();
-					}
-			} else {
-				if (!isEmpty(paramMaps)) {
-					if (!isEmpty(argMap))
-						paramMaps.forEach(params -> params.putAll(argMap));
+			executeBatch(columns != null ? columns : new String[0]);
+			resultset = pstmt.getGeneratedKeys();
+			Dataset keys = resultset != null ? datasetBuilder().getDataset(resultset) : new Dataset();
+			clearResult();
+			return keys;
+		});
+	}
+
+	private int[] executeBatch(String[] keys) throws Exception {
+		for (Object row: prepareRows(keys))
+			addBatch(row);
+
+		int[] result = pstmt.executeBatch();
+		invalidateResults();
+		log().debug(() -> "affected row(s): " + Arrays.toString(result));
+
+		return result;
+	}
+
+	/**Prepares the statement and returns the arguments of the rows.
+	 * @param keys names of the columns whose generated values the statement returns
+	 * @return either Object arrays or lists of Parameters.Entry
+	 * @throws Exception
+	 */
+	private List<?> prepareRows(String[] keys) throws Exception {
+		boolean withSQL = isEmpty(sqlId);
+		if (withSQL && isEmpty(argMap) && isEmpty(paramMaps)) {
+			prepare(keys);
+			return params != null ? params : Collections.emptyList();
+		}
+
+		if (!isEmpty(paramMaps)) {
+			if (!isEmpty(argMap))
+				paramMaps.forEach(params -> params.putAll(argMap));
+		}
+
+		SQLProc sqlproc = withSQL ?
+			dbaccess.sqlBuilder().build(sql, paramMaps) :
+			dbaccess.sqlBuilder().buildFromInstruction(sqlId, paramMaps);
+
+		setWorkingStatement(sqlproc.getStatement());
+
+		prepare(keys);
+		return sqlproc.getParamEntries();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void addBatch(Object row) throws Exception {
+		if (row instanceof Object[])
+			super.params((Object[])row);
+		else
+			parameters().setEntries((List<Parameters.Entry>)row);
+		bind(false);
+		pstmt.addBatch();
+	}
+
+	/**Executes the statement in chunks of rows and returns the result.
+	 * <p>Unlike {@link #execute()}, a row that fails does not fail the other rows.<br />
+	 * If a chunk fails, the Batch rolls back the chunk and splits it in halves to execute them again
+	 * until it finds the rows that fail.
+	 * The other rows are executed and the rows that fail are reported with their 0-based indices in the order the arguments are added.
+	 * </p>
+	 * <p>If the Batch begins the transaction, it commits each chunk when the chunk is done.
+	 * Otherwise, the Batch isolates the failures with savepoints and leaves the commit to the transaction in progress.
+	 * </p>
+	 * @param chunkSize number of rows to execute at a time
+	 * @return result of the execution
+	 */
+	public Result executeInChunks(int chunkSize) {
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("chunkSize < 1");
+
+		boolean close = dbaccess.open(),
+				commit = dbaccess.transaction().begin();
+		try {
+			List<?> rows = prepareRows(null);
+			Result result = new Result(rows.size());
+			for (int from = 0; from < rows.size(); from += chunkSize) {
+				result.affected += execute(rows, from, Math.min(from + chunkSize, rows.size()), result.failures);
+				if (commit) {
+					dbaccess.transaction().commit();
+					dbaccess.transaction().begin();
 				}
+			}
+			invalidateResults();
+
+			if (commit)
+				dbaccess.transaction().commit();
+			log().debug(() -> result.toString());
+			return result;
+		} catch (Throwable e) {
+			close();
+			if (commit)
+				dbaccess.transaction().rollback();
+			throw runtimeException(e);
+		} finally {
+			if (close)
+				dbaccess.close();
+		}
+	}
 
-				SQLProc sqlproc = withSQL ?
-					dbaccess.sqlBuilder().build(sql, paramMaps) :
-					dbaccess.sqlBuilder().buildFromInstruction(sqlId, paramMaps);
-
-				setWorkingStatement(sqlproc.getStatement());
-
-				prepare(false);
-				sqlproc.getParamEntries().forEach(entries -> {
-					try {
-						parameters().setEntries(entries);
-						bind(false);
-						pstmt.addBatch();
-					} catch (Exception e) {
-						throw runtimeException(e);
-					}
-				});
+	private long execute(List<?> rows, int from, int to, List<Failure> failures) throws Exception {
+		Savepoint savepoint = connection().setSavepoint();
+		try {
+			for (int i = from; i < to; ++i)
+				addBatch(rows.get(i));
+
+			long affected = 0;
+			for (int count: pstmt.executeBatch())
+				affected += count > -1 ? count : count == Statement.SUCCESS_NO_INFO ? 1 : 0;
+			release(savepoint);
+			return affected;
+		} catch (SQLException e) {
+			pstmt.clearBatch();
+			connection().rollback(savepoint);
+			if (to - from < 2) {
+				log().debug(() -> "Failed row " + from + ": " + e.getMessage());
+				failures.add(new Failure(from, e));
+				return 0;
 			}
 
-			int[] result = pstmt.executeBatch();
-			log().debug(() -> "affected row(s): " + Arrays.toString(result));
+			int mid = (from + to) >>> 1;
+			return execute(rows, from, mid, failures) + execute(rows, mid, to, failures);
+		}
+	}
 
-			return result;
-		});
+	private void release(Savepoint savepoint) {
+		try {
+			connection().releaseSavepoint(savepoint);
+		} catch (SQLException e) {
+			log().trace(() -> "Savepoint not released: " + e.getMessage());
+		}
+	}
+
+	/**Executes the statement with the arguments from the Stream and returns the number of affected rows.<br />
+	 * The Stream is closed when the execution is finished.
+	 * @param params Stream of the arguments. See {@link #stream(Iterator)} for the types of the arguments.
+	 * @return number of affected rows
+	 */
+	public long stream(Stream<?> params) {
+		try (Stream<?> stream = notEmpty(params, "params")) {
+			return stream(stream.iterator());
+		}
+	}
+
+	/**Executes the statement with the arguments from the Iterator and returns the number of affected rows.
+	 * <p>An argument from the Iterator is either of
+	 * <ul><li>an Object array for the parameters specified with '?' characters in the statement set with {@link #sql(String)}</li>
+	 * 	   <li>a Map for the named parameters of the statement set with either {@link #sql(String)} or {@link #sqlId(String)}</li>
+	 * </ul>
+	 * The arguments set with {@link #param(String, Object)} are shared across the Maps.
+	 * </p>
+	 * <p>Unlike {@link #execute()}, the Batch does not keep the arguments.
+	 * It binds the arguments one row at a time and executes the statement every {@link #flushSize(int) flush size} rows
+	 * so that the memory in use stays the same regardless of the number of rows.<br />
+	 * If the Batch begins the transaction, it commits the rows every {@link #commitSize(int) commit size} rows
+	 * and, on failure, rolls back the rows not committed yet.
+	 * </p>
+	 * @param params Iterator of the arguments
+	 * @return number of affected rows
+	 */
+	public long stream(Iterator<?> params) {
+		notEmpty(params, "params");
+
+		boolean close = dbaccess.open(),
+				commit = dbaccess.transaction().begin();
+		try {
+			Streaming streaming = new Streaming(commit);
+			while (params.hasNext())
+				streaming.add(params.next());
+			streaming.flush();
+
+			if (commit)
+				dbaccess.transaction().commit();
+			log().debug(() -> streaming.progress.affected + " row(s) affected in " + streaming.progress.rows + " row(s)");
+			return streaming.progress.affected;
+		} catch (Throwable e) {
+			close();
+			if (commit)
+				dbaccess.transaction().rollback();
+			throw runtimeException(e);
+		} finally {
+			if (close)
+				dbaccess.close();
+		}
+	}
+
+	private class Streaming {
+		private final boolean commit;
+		private final Progress progress = new Progress();
+		private int pending;
+		private long uncommitted;
+
+		Streaming(boolean commit) {
+			this.commit = commit;
+		}
+
+		void add(Object item) throws Exception {
+			if (item instanceof Object[]) {
+				if (!isEmpty(sqlId) || !isEmpty(argMap))
+					throw new IllegalArgumentException("Object arrays are not supported with named parameters");
+				setStatement(sql);
+				Batch.super.params((Object[])item);
+			} else if (item instanceof Map) {
+				@SuppressWarnings("unchecked")
+				DataObject args = new DataObject().setAll((Map<String, ?>)item);
+				if (!isEmpty(argMap))
+					args.putAll(argMap);
+
+				SQLProc sqlproc = isEmpty(sqlId) ?
+					dbaccess.sqlBuilder().build(sql, args) :
+					dbaccess.sqlBuilder().buildFromInstruction(sqlId, args);
+				setStatement(sqlproc.getStatement());
+				parameters().setEntries(sqlproc.getCurrentEntries());
+			} else
+				throw new IllegalArgumentException("Unsupported arguments: " + item);
+
+			bind(false);
+			pstmt.addBatch();
+			if (++pending >= flushSize)
+				flush();
+		}
+
+		private void setStatement(String statement) throws Exception {
+			if (!Assert.equals(working, statement)) {
+				flush();
+				setWorkingStatement(statement);
+			}
+			prepare(false);
+		}
+
+		void flush() throws Exception {
+			if (pending < 1) return;
+
+			int[] counts = pstmt.executeBatch();
+			invalidateResults();
+			for (int count: counts)
+				progress.affected += count > -1 ? count : count == Statement.SUCCESS_NO_INFO ? 1 : 0;
+			progress.rows += pending;
+			uncommitted += pending;
+			pending = 0;
+
+			if (commit && commitSize > 0 && uncommitted >= commitSize) {
+				dbaccess.transaction().commit();
+				dbaccess.transaction().begin();
+				uncommitted = 0;
+				++progress.commits;
+			}
+			if (Batch.this.progress != null)
+				Batch.this.progress.accept(progress);
+		}
+	}
+
+	/**Result of the Batch {@link Batch#executeInChunks(int) executing the statement in chunks}.
+	 */
+	public static class Result {
+		private final int rows;
+		private long affected;
+		private final ArrayList<Failure> failures = new ArrayList<>();
+
+		Result(int rows) {
+			this.rows = rows;
+		}
+
+		/**Returns the number of rows the statement is executed with.
+		 * @return number of rows the statement is executed with
+		 */
+		public int getRows() {
+			return rows;
+		}
+
+		/**Returns the number of affected rows.
+		 * @return number of affected rows
+		 */
+		public long getAffected() {
+			return affected;
+		}
+
+		/**Returns the rows that failed in the order of their indices.
+		 * @return rows that failed
+		 */
+		public List<Failure> getFailures() {
+			return Collections.unmodifiableList(failures);
+		}
+
+		/**Returns whether all the rows succeeded.
+		 * @return
+		 * <ul><li>true if all the rows succeeded</li>
+		 * 	   <li>false otherwise</li>
+		 * </ul>
+		 */
+		public boolean isSuccessful() {
+			return failures.isEmpty();
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s{rows: %d, affected: %d, failures: %d}", getClass().getSimpleName(), rows, affected, failures.size());
+		}
+	}
+
+	/**Row that failed while the Batch {@link Batch#executeInChunks(int) executes the statement in chunks}.
+	 */
+	public static class Failure {
+		private final int index;
+		private final SQLException error;
+
+		Failure(int index, SQLException error) {
+			this.index = index;
+			this.error = error;
+		}
+
+		/**Returns the 0-based index of the row in the order the arguments are added.
+		 * @return 0-based index of the row
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**Returns the exception the row failed with.
+		 * @return exception the row failed with
+		 */
+		public SQLException getError() {
+			return error;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s{index: %d, error: %s}", getClass().getSimpleName(), index, error.getMessage());
+		}
+	}
+
+	/**Progress of the Batch {@link Batch#stream(Iterator) streaming} the arguments.<br />
+	 * The Progress is valid only while the {@link Batch#progress(Consumer) callback} processes it.
+	 */
+	public static class Progress {
+		private long
+			rows,
+			affected;
+		private int commits;
+
+		/**Returns the number of rows the statement is executed with so far.
+		 * @return number of rows the statement is executed with so far
+		 */
+		public long getRows() {
+			return rows;
+		}
+
+		/**Returns the number of rows affected so far.
+		 * @return number of rows affected so far
+		 */
+		public long getAffected() {
+			return affected;
+		}
+
+		/**Returns the number of commits made so far.
+		 * @return number of commits made so far
+		 */
+		public int getCommits() {
+			return commits;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s{rows: %d, affected: %d, commits: %d}", getClass().getSimpleName(), rows, affected, commits);
+		}
 	}
 
 	@Override
 	public Batch close() {
+		flushSize = 1000;
+		commitSize = 0;
+		progress = null;
 		if (params != null)
 			params.clear();
 		if (paramMaps != null)
@@ -0,0 +1,469 @@
+/* Copyright (c) 2020 Emjay Khan. All rights reserved. */
+
+package horizon.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import horizon.base.AbstractComponent;
+
+/**Loads a large number of rows in parallel over multiple database connections.
+ * <p>A BulkLoader partitions the arguments from an input across {@link #partitions(int) a number of} worker threads.
+ * Each worker {@link Batch#stream(Iterator) streams} the arguments of its partition to a Batch
+ * over its own database connection and commits independently of the others.<br />
+ * The arguments go to the partitions
+ * <ul><li>in turn by default</li>
+ * 	   <li>by the hash of the key {@link #partitionBy(Function) from the arguments} so that the arguments with the same key are loaded in order by the same worker</li>
+ * </ul>
+ * </p>
+ * <p>To set an SQL statement and its arguments, you use the methods the same way as with a {@link Batch}.
+ * <pre><code> BulkLoader.Report report = dbaccess.bulkLoader()
+ *     .sql("INSERT INTO CUSTOMER (CUST_ID, CUST_NAME) VALUES (?, ?)")
+ *     .partitions(4)
+ *     .commitSize(10000)
+ *     .load(reader.lines().map(line -&gt; line.split(",")));
+ * if (!report.isSuccessful())
+ *     report.getFailures().forEach(partition -&gt; log.warn(partition.toString(), partition.getError()));</code></pre>
+ * </p>
+ * <p>A failure in a partition does not stop the others.
+ * The failed partition rolls back the rows not committed yet and skips the rest of its arguments.<br />
+ * The {@link Report} tells the numbers of the rows each partition has received, executed, committed, and the failure if any.
+ * </p>
+ * <p>Because the partitions commit independently, use a BulkLoader only for the loads that tolerate partial commits
+ * or that can be resumed from the report.
+ * The memory in use is bounded by the number of partitions and the {@link #flushSize(int) flush size}.
+ * </p>
+ */
+public class BulkLoader extends AbstractComponent {
+	private static final Object
+		END = new Object(),
+		ABORT = new Object();
+	private static final AtomicInteger seq = new AtomicInteger();
+
+	private final DBAccess dbaccess;
+	private String
+		sql,
+		sqlId;
+	private LinkedHashMap<String, Object> args;
+	private Function<Object, ?> partitionBy;
+	private int
+		partitions = 4,
+		flushSize = 1000,
+		commitSize = 10000;
+	private Consumer<Partition> progress;
+
+	/**Creates a new BulkLoader.
+	 * @param dbaccess DBAccess this BulkLoader is associated with
+	 */
+	public BulkLoader(DBAccess dbaccess) {
+		this.dbaccess = notEmpty(dbaccess, "dbaccess");
+	}
+
+	/**Sets the sql statement to work with.<br />
+	 * See {@link Batch#sql(String)}.
+	 * @param sql sql statement
+	 * @return this BulkLoader
+	 */
+	public BulkLoader sql(String sql) {
+		this.sql = sql;
+		this.sqlId = null;
+		return this;
+	}
+
+	/**Sets the id of the sql instruction in an sqlsheet to work with.<br />
+	 * See {@link Batch#sqlId(String)}.
+	 * @param sqlId id of the sql instruction in an sqlsheet.
+	 * @return this BulkLoader
+	 */
+	public BulkLoader sqlId(String sqlId) {
+		this.sqlId = sqlId;
+		this.sql = null;
+		return this;
+	}
+
+	/**Sets the value as an argument for the named parameter shared across the partitions.
+	 * @param name	parameter name
+	 * @param value	parameter value
+	 * @return this BulkLoader
+	 */
+	public BulkLoader param(String name, Object value) {
+		if (args == null)
+			args = new LinkedHashMap<>();
+		args.put(notEmpty(name, "name"), value);
+		return this;
+	}
+
+	/**Sets the number of partitions, or worker threads, to load the rows with.<br />
+	 * Each partition uses a database connection of its own. The default is 4.
+	 * @param partitions number of partitions
+	 * @return this BulkLoader
+	 */
+	public BulkLoader partitions(int partitions) {
+		if (partitions < 1)
+			throw new IllegalArgumentException("partitions < 1");
+		this.partitions = partitions;
+		return this;
+	}
+
+	/**Sets the function that returns the key of the arguments to partition them by.<br />
+	 * The arguments with the same key go to the same partition.
+	 * If not set, the arguments go to the partitions in turn.
+	 * @param key function that returns the key of the arguments
+	 * @return this BulkLoader
+	 */
+	public BulkLoader partitionBy(Function<Object, ?> key) {
+		this.partitionBy = key;
+		return this;
+	}
+
+	/**Sets the number of rows a partition executes the statement with at a time.<br />
+	 * The default is 1000.
+	 * @param rows number of rows to execute the statement with at a time
+	 * @return this BulkLoader
+	 * @see Batch#flushSize(int)
+	 */
+	public BulkLoader flushSize(int rows) {
+		if (rows < 1)
+			throw new IllegalArgumentException("rows < 1");
+		this.flushSize = rows;
+		return this;
+	}
+
+	/**Sets the number of rows a partition commits at a time.<br />
+	 * The default is 10,000.
+	 * @param rows number of rows to commit at a time. If not positive, each partition commits once after all its rows are processed.
+	 * @return this BulkLoader
+	 * @see Batch#commitSize(int)
+	 */
+	public BulkLoader commitSize(int rows) {
+		this.commitSize = Math.max(0, rows);
+		return this;
+	}
+
+	/**Sets the callback to report the progress of the partitions to.<br />
+	 * The callback is called by the worker threads every time a partition executes the statement,
+	 * so it must be thread-safe.
+	 * @param progress callback to report the progress to
+	 * @return this BulkLoader
+	 */
+	public BulkLoader progress(Consumer<Partition> progress) {
+		this.progress = progress;
+		return this;
+	}
+
+	/**Loads the rows with the arguments from the Stream and returns the report.<br />
+	 * The Stream is closed when the load is finished.
+	 * @param params Stream of the arguments. See {@link Batch#stream(Iterator)} for the types of the arguments.
+	 * @return report of the load
+	 */
+	public Report load(Stream<?> params) {
+		try (Stream<?> stream = notEmpty(params, "params")) {
+			return load(stream.iterator());
+		}
+	}
+
+	/**Loads the rows with the arguments from the Iterator and returns the report.<br />
+	 * The method returns when all the partitions are finished.
+	 * If reading the arguments fails, the partitions roll back the rows not committed yet and the method throws the exception.
+	 * @param params Iterator of the arguments. See {@link Batch#stream(Iterator)} for the types of the arguments.
+	 * @return report of the load
+	 */
+	public Report load(Iterator<?> params) {
+		notEmpty(params, "params");
+		if (isEmpty(sql) && isEmpty(sqlId))
+			throw new IllegalStateException("Neither sql nor sqlId is set");
+
+		int id = seq.incrementAndGet();
+		AtomicInteger count = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(partitions, task -> {
+			Thread thread = new Thread(task, "bulk-loader-" + id + "-" + count.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		ArrayList<BlockingQueue<Object>> queues = new ArrayList<>();
+		ArrayList<Future<Partition>> futures = new ArrayList<>();
+		for (int i = 0; i < partitions; ++i) {
+			BlockingQueue<Object> queue = new ArrayBlockingQueue<>(flushSize);
+			Partition partition = new Partition(i);
+			queues.add(queue);
+			futures.add(executor.submit(() -> load(partition, queue)));
+		}
+
+		Throwable failure = null;
+		try {
+			long rows = 0;
+			while (params.hasNext()) {
+				Object item = params.next();
+				int index = partitionBy == null ?
+					(int)(rows++ % partitions) :
+					Math.floorMod(Objects.hashCode(partitionBy.apply(item)), partitions);
+				queues.get(index).put(item);
+			}
+		} catch (Throwable e) {
+			failure = e;
+		}
+
+		try {
+			for (BlockingQueue<Object> queue: queues)
+				queue.put(failure == null ? END : ABORT);
+
+			ArrayList<Partition> result = new ArrayList<>();
+			for (Future<Partition> future: futures)
+				result.add(future.get());
+			if (failure != null)
+				throw failure;
+
+			Report report = new Report(result);
+			log().debug(() -> report.toString());
+			return report;
+		} catch (Throwable e) {
+			throw runtimeException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private Partition load(Partition partition, BlockingQueue<Object> queue) throws Exception {
+		Rows rows = new Rows(partition, queue);
+		Batch batch = new Batch(dbaccess);
+		try {
+			batch = isEmpty(sqlId) ? batch.sql(sql) : batch.sqlId(sqlId);
+			if (args != null)
+				args.forEach(batch::param);
+			partition.affected = batch
+				.flushSize(flushSize)
+				.commitSize(commitSize)
+				.progress(status -> {
+					partition.executed = status.getRows();
+					partition.affected = status.getAffected();
+					if (partition.commits != status.getCommits()) {
+						partition.commits = status.getCommits();
+						partition.committed = status.getRows();
+					}
+					if (progress != null)
+						progress.accept(partition);
+				})
+				.stream(rows);
+			partition.committed = partition.executed = partition.rows;
+		} catch (Throwable e) {
+			partition.error = e;
+			log().warn(() -> partition.toString() + " failed: " + rootCause(e));
+			rows.skip();
+		} finally {
+			batch.close();
+		}
+		return partition;
+	}
+
+	private static class Rows implements Iterator<Object> {
+		private final Partition partition;
+		private final BlockingQueue<Object> queue;
+		private Object next;
+
+		Rows(Partition partition, BlockingQueue<Object> queue) {
+			this.partition = partition;
+			this.queue = queue;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == null)
+				next = take();
+			if (next == ABORT)
+				throw new IllegalStateException("Bulk load aborted");
+			return next != END;
+		}
+
+		@Override
+		public Object next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+
+			Object row = next;
+			next = null;
+			++partition.rows;
+			return row;
+		}
+
+		/**Takes the rest of the rows from the queue so that the input is not blocked.
+		 */
+		void skip() {
+			if (next == null)
+				next = take();
+			for (; next != END && next != ABORT; next = take())
+				++partition.rows;
+		}
+
+		private Object take() {
+			try {
+				return queue.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return ABORT;
+			}
+		}
+	}
+
+	/**Result of a partition of a {@link BulkLoader}.
+	 */
+	public static class Partition {
+		private final int index;
+		private long
+			rows,
+			executed,
+			committed,
+			affected;
+		private int commits;
+		private Throwable error;
+
+		Partition(int index) {
+			this.index = index;
+		}
+
+		/**Returns the 0-based index of the partition.
+		 * @return 0-based index of the partition
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**Returns the number of the arguments the partition has received.
+		 * @return number of the arguments the partition has received
+		 */
+		public long getRows() {
+			return rows;
+		}
+
+		/**Returns the number of rows the partition has executed the statement with.
+		 * @return number of rows the partition has executed the statement with
+		 */
+		public long getExecuted() {
+			return executed;
+		}
+
+		/**Returns the number of rows the partition has committed.
+		 * @return number of rows the partition has committed
+		 */
+		public long getCommitted() {
+			return committed;
+		}
+
+		/**Returns the number of rows affected by the partition.<br />
+		 * On failure, the number includes the rows rolled back.
+		 * @return number of rows affected by the partition
+		 */
+		public long getAffected() {
+			return affected;
+		}
+
+		/**Returns the exception the partition failed with.
+		 * @return exception the partition failed with, or null if the partition succeeded
+		 */
+		public Throwable getError() {
+			return error;
+		}
+
+		/**Returns whether the partition succeeded.
+		 * @return
+		 * <ul><li>true if the partition succeeded</li>
+		 * 	   <li>false otherwise</li>
+		 * </ul>
+		 */
+		public boolean isSuccessful() {
+			return error == null;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s#%d{rows: %d, executed: %d, committed: %d, affected: %d}",
+				getClass().getSimpleName(), index, rows, executed, committed, affected);
+		}
+	}
+
+	/**Consolidated result of the partitions of a {@link BulkLoader}.
+	 */
+	public static class Report {
+		private final List<Partition> partitions;
+
+		Report(List<Partition> partitions) {
+			this.partitions = Collections.unmodifiableList(partitions);
+		}
+
+		/**Returns the results of the partitions.
+		 * @return results of the partitions
+		 */
+		public List<Partition> getPartitions() {
+			return partitions;
+		}
+
+		/**Returns the results of the partitions that failed.
+		 * @return results of the partitions that failed
+		 */
+		public List<Partition> getFailures() {
+			ArrayList<Partition> failures = new ArrayList<>();
+			for (Partition partition: partitions)
+				if (!partition.isSuccessful())
+					failures.add(partition);
+			return failures;
+		}
+
+		/**Returns whether all the partitions succeeded.
+		 * @return
+		 * <ul><li>true if all the partitions succeeded</li>
+		 * 	   <li>false otherwise</li>
+		 * </ul>
+		 */
+		public boolean isSuccessful() {
+			return getFailures().isEmpty();
+		}
+
+		/**Returns the number of the arguments read from the input.
+		 * @return number of the arguments read from the input
+		 */
+		public long getRows() {
+			return sum(Partition::getRows);
+		}
+
+		/**Returns the number of rows committed by all the partitions.
+		 * @return number of rows committed by all the partitions
+		 */
+		public long getCommitted() {
+			return sum(Partition::getCommitted);
+		}
+
+		/**Returns the number of rows affected by all the partitions.
+		 * @return number of rows affected by all the partitions
+		 */
+		public long getAffected() {
+			return sum(Partition::getAffected);
+		}
+
+		private long sum(Function<Partition, Long> value) {
+			long sum = 0;
+			for (Partition partition: partitions)
+				sum += value.apply(partition);
+			return sum;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s{rows: %d, committed: %d, affected: %d, failures: %d}",
+				getClass().getSimpleName(), getRows(), getCommitted(), getAffected(), getFailures().size());
+		}
+	}
+}
\ No newline at end of file
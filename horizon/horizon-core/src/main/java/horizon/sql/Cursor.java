@@ -0,0 +1,128 @@
+/* Copyright (c) 2020 Emjay Khan. All rights reserved. */
+
+package horizon.sql;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import horizon.base.AbstractComponent;
+import horizon.data.DataObject;
+import horizon.data.Dataset;
+
+/**Forward-only view of a ResultSet that reads the rows one at a time.
+ * <p>A Query passes Cursors to a visitor {@link Query#forEachResult(java.util.function.Consumer) for each result set}
+ * a statement returns, typically a stored procedure returning several result sets.<br />
+ * The visitor may iterate over the rows, {@link #toDataset() read them into a Dataset}, or skip the result set by leaving it unread.
+ * </p>
+ * <p>A Cursor is valid only while the visitor processes it.
+ * Once the visitor returns, the underlying ResultSet is closed.
+ * </p>
+ */
+public class Cursor extends AbstractComponent implements Iterable<DataObject> {
+	private final int index;
+	private final ResultSet resultset;
+	private final DatasetBuilder builder;
+	private ResultSetMetaData metaData;
+	private String[] keys;
+	private boolean iterated;
+	private int count;
+
+	Cursor(int index, ResultSet resultset, DatasetBuilder builder) {
+		this.index = index;
+		this.resultset = resultset;
+		this.builder = builder;
+	}
+
+	/**Returns the 0-based position of the result set among those the statement returned.
+	 * @return 0-based position of the result set
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**Returns the labels of the result set's columns.
+	 * @return labels of the result set's columns
+	 */
+	public List<String> getColumnLabels() {
+		try {
+			ResultSetMetaData metaData = metaData();
+			ArrayList<String> labels = new ArrayList<>();
+			for (int i = 1, count = metaData.getColumnCount(); i <= count; ++i)
+				labels.add(metaData.getColumnLabel(i));
+			return labels;
+		} catch (Exception e) {
+			throw runtimeException(e);
+		}
+	}
+
+	/**Returns the number of rows read so far.
+	 * @return number of rows read so far
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	private ResultSetMetaData metaData() throws Exception {
+		return metaData != null ? metaData : (metaData = resultset.getMetaData());
+	}
+
+	/**Returns an Iterator over the rows that are not read yet.<br />
+	 * Because the rows are read forward only, the method can be called only once.
+	 * @return Iterator over the rows
+	 * @throws IllegalStateException if the method is called more than once
+	 */
+	@Override
+	public Iterator<DataObject> iterator() {
+		if (iterated)
+			throw new IllegalStateException("Cursor already iterated");
+		iterated = true;
+
+		return new Iterator<DataObject>() {
+			private DataObject next;
+			private boolean done;
+
+			@Override
+			public boolean hasNext() {
+				if (next != null) return true;
+				if (done) return false;
+
+				try {
+					if (resultset.next()) {
+						if (keys == null)
+							keys = builder.getKeys(metaData());
+						next = builder.getDataObject(resultset, keys);
+						++count;
+					} else
+						done = true;
+					return next != null;
+				} catch (Exception e) {
+					throw runtimeException(e);
+				}
+			}
+
+			@Override
+			public DataObject next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+
+				DataObject row = next;
+				next = null;
+				return row;
+			}
+		};
+	}
+
+	/**Reads the rows not read yet into a Dataset.
+	 * @return Dataset of the rows
+	 */
+	public Dataset toDataset() {
+		Dataset dataset = new Dataset();
+		for (DataObject row: this)
+			dataset.append(row);
+		return dataset.init();
+	}
+}
\ No newline at end of file
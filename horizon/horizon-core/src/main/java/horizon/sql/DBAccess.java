@@ -3,9 +3,11 @@
 package horizon.sql;
 
 import java.io.InputStream;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 
@@ -14,8 +16,11 @@ import javax.transaction.Status;
 
 import horizon.base.AbstractComponent;
 import horizon.base.Log;
+import horizon.sql.support.Dialect;
+import horizon.sql.support.Orm;
 import horizon.sql.support.SQLBuilder;
 import horizon.sql.support.SQLSheet;
+import horizon.sql.support.Table;
 
 /**Provides access to a relational database(or sql database)
  * so that you can query and/or update data in the database.
@@ -143,6 +148,10 @@ public class DBAccess extends AbstractComponent {
 	private DataSource datasource;
 
 	private Transaction.Factory transactionFactory;
+	private Dialect dialect;
+	private int
+		batchSize = 100,
+		insertRows;
 
 	/**Sets the location of the configuration file,
 	 * which may be either from the classpath or from the file system.
@@ -195,6 +204,7 @@ public class DBAccess extends AbstractComponent {
 //			close();
 			this.connectionName = connectionName;
 			sqlBuilder = dbActions = query = update = batch = resetAutocommit = key = null;
+			dialect = null;
 			key();
 		}
 		return this;
@@ -234,6 +244,68 @@ public class DBAccess extends AbstractComponent {
 		return this;
 	}
 
+	/**Returns the Dialect of the database.<br />
+	 * If not set, the Dialect is detected from the metadata of the database.
+	 * @return Dialect of the database
+	 */
+	public Dialect getDialect() {
+		if (dialect == null)
+			dialect = perform((TryReturn<Dialect>)db -> Dialect.of(connection().getMetaData()));
+		return dialect;
+	}
+
+	/**Sets the Dialect of the database.<br />
+	 * Use this method if the Dialect is not detected correctly.
+	 * @param dialect Dialect of the database
+	 * @return this DBAccess
+	 */
+	public DBAccess setDialect(Dialect dialect) {
+		this.dialect = dialect;
+		return this;
+	}
+
+	/**Returns the maximum number of statements an Update sends in a batch
+	 * when it {@link Update#create(Iterable) creates}, {@link Update#update(Iterable) updates}, or {@link Update#delete(Iterable) deletes} objects.
+	 * @return maximum number of statements in a batch
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**Sets the maximum number of statements an Update sends in a batch
+	 * when it {@link Update#create(Iterable) creates}, {@link Update#update(Iterable) updates}, or {@link Update#delete(Iterable) deletes} objects.<br />
+	 * The default is 100. Set 1 or less to execute the statements one by one.
+	 * @param batchSize maximum number of statements in a batch
+	 * @return this DBAccess
+	 */
+	public DBAccess setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	/**Returns the number of rows an Update inserts with a multi-row {@code INSERT ... VALUES (...), (...)} statement
+	 * when it {@link Update#create(Iterable) creates} objects.
+	 * @return number of rows of a multi-row INSERT statement
+	 */
+	public int getInsertRows() {
+		return insertRows;
+	}
+
+	/**Sets the number of rows an Update inserts with a multi-row {@code INSERT ... VALUES (...), (...)} statement
+	 * when it {@link Update#create(Iterable) creates} objects.<br />
+	 * Use this method for the databases where a multi-row INSERT statement performs better than a JDBC batch,
+	 * like MySQL without the 'rewriteBatchedStatements' option.<br />
+	 * The number is reduced so that a statement does not exceed {@link Dialect#getMaxParameters() the Dialect's limit of parameters}.
+	 * If the Dialect does not support multi-row INSERT statements, the number is ignored.<br />
+	 * The default is 0, meaning the objects are inserted in JDBC batches of {@link #getBatchSize() the batch size}.
+	 * @param insertRows number of rows of a multi-row INSERT statement
+	 * @return this DBAccess
+	 */
+	public DBAccess setInsertRows(int insertRows) {
+		this.insertRows = insertRows;
+		return this;
+	}
+
 	/**Returns the DataSource the DBAccess is associated with.
 	 * @return DataSource the DBAccess is associated with
 	 */
@@ -258,6 +330,7 @@ public class DBAccess extends AbstractComponent {
 //			close();
 			this.datasource = datasource;
 			sqlBuilder = dbActions = query = update = batch = resetAutocommit = key = configLocation = connectionName = null;
+			dialect = null;
 			key();
 		}
 		return this;
@@ -340,6 +413,30 @@ public class DBAccess extends AbstractComponent {
 		return resources().getIfAbsent(batch, key -> new Batch(this));
 	}
 
+	/**Returns a new BulkLoader to load a large number of rows in parallel over multiple database connections.<br />
+	 * Unlike the other DBActions, the BulkLoader is not bound to the current thread.
+	 * @return new BulkLoader
+	 */
+	public BulkLoader bulkLoader() {
+		return new BulkLoader(this);
+	}
+
+	/**Returns the ResultCache shared by the DBAccesses that use the same connection configuration or DataSource.
+	 * @return ResultCache for the DBAccess
+	 */
+	public ResultCache resultCache() {
+		return ResultCache.get(key());
+	}
+
+	/**Removes the cached results associated with the tables if any results are cached.
+	 * @param tables names of the tables. If empty, all the cached results are removed.
+	 */
+	void invalidate(Set<String> tables) {
+		ResultCache cache = ResultCache.find(key());
+		if (cache != null)
+			cache.invalidate(tables);
+	}
+
 	/**Returns the connection to the database.
 	 * @return connection to the database
 	 */
@@ -625,11 +722,45 @@ public class DBAccess extends AbstractComponent {
 			return this;
 		}
 
+		/**Reads the meta data of the tables of the loaded &lt;orm../>s in advance
+		 * so that the first requests do not pay for the round trips to the database.<br />
+		 * Call the method after the sqlsheets are loaded.
+		 * @param dbaccess DBAccess to the database of the tables
+		 * @return this ConfigControl
+		 */
+		public ConfigControl preload(DBAccess dbaccess) {
+			return preload(dbaccess, null);
+		}
+
+		/**Reads the meta data of the tables of the loaded &lt;orm../>s in advance
+		 * so that the first requests do not pay for the round trips to the database.<br />
+		 * If the snapshot file exists, the meta data are read from the file, not the database.
+		 * The meta data of the tables not found in the file are read from the database
+		 * and the file is written with those of all the tables.<br />
+		 * The file is a snapshot of the database of the dbaccess, keyed by its URL, catalog and schema.
+		 * A snapshot of another database is not read but written over.<br />
+		 * Delete the file when the tables are changed.
+		 * <pre><code> DBAccess.config()
+		 *     .sqlSheetLocations(sqlsheets)
+		 *     .preload(dbaccess, Paths.get("tables.ser"));</code></pre>
+		 * @param dbaccess	DBAccess to the database of the tables
+		 * @param snapshot	path to the snapshot file of the meta data. If null, the meta data are read from the database.
+		 * @return this ConfigControl
+		 */
+		public ConfigControl preload(DBAccess dbaccess, Path snapshot) {
+			int restored = snapshot != null ? Table.restore(snapshot, dbaccess) : 0;
+			int loaded = Orm.preload(dbaccess);
+			if (snapshot != null && (loaded > 0 || restored < 1))
+				Table.save(snapshot, dbaccess);
+			return this;
+		}
+
 		/**Clears up the configurations to the initial state.
 		 * @return this ConfigControl
 		 */
 		public ConfigControl clear() {
 			SQLSheet.clear();
+			Table.clearCache();
 			DatasourceFactory.clear();
 			return this;
 		}
@@ -5,8 +5,11 @@ package horizon.sql;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import horizon.base.AbstractComponent;
 import horizon.sql.DBAccess.TryReturn;
@@ -101,6 +104,21 @@ class DBAction extends AbstractComponent {
 	}
 
 	boolean prepare(boolean keys) throws Exception {
+		return prepare(keys ? new String[0] : null);
+	}
+
+	/**Prepares the working statement.
+	 * @param keys names of the columns whose generated values the statement returns.
+	 * <ul><li>null if the statement returns no generated keys</li>
+	 * 	   <li>empty to return the generated keys the JDBC driver determines</li>
+	 * </ul>
+	 * @return
+	 * <ul><li>true if the statement is prepared by the call to the method</li>
+	 * 	   <li>false if the statement is already prepared</li>
+	 * </ul>
+	 * @throws Exception
+	 */
+	boolean prepare(String[] keys) throws Exception {
 		if (prepared) return false;
 
 		notEmpty(working, "sql");
@@ -112,8 +130,9 @@ class DBAction extends AbstractComponent {
 		if (isCallable(working)) {
 			pstmt = connection().prepareCall(working);
 		} else {
-			pstmt = !keys ? connection().prepareStatement(working)
-				  : connection().prepareStatement(working, PreparedStatement.RETURN_GENERATED_KEYS);
+			pstmt = keys == null ? connection().prepareStatement(working)
+				  : keys.length < 1 ? connection().prepareStatement(working, PreparedStatement.RETURN_GENERATED_KEYS)
+				  : connection().prepareStatement(working, keys);
 		}
 
 		return prepared = pstmt != null;
@@ -209,6 +228,21 @@ class DBAction extends AbstractComponent {
 		return sqlproc.hasMore();
 	}
 
+	/**Removes the cached query results associated with the target tables of the working statement.<br />
+	 * If a transaction is in progress, the results are removed again when the transaction completes
+	 * so that the results read and cached by other threads before the commit do not survive it.
+	 */
+	void invalidateResults() {
+		if (isEmpty(working)) return;
+
+		Set<String> tables = isCallable(working) ? Collections.emptySet() : ResultCache.targetsOf(working);
+		dbaccess.invalidate(tables);
+		if (Transaction.inProgress()) {
+			DBAccess dbaccess = this.dbaccess;
+			dbaccess.transaction().onCompletion(Arrays.asList("invalidate", dbaccess, tables), committed -> dbaccess.invalidate(tables));
+		}
+	}
+
 	DatasetBuilder datasetBuilder() {
 		return ifEmpty(datasetBuilder, () -> datasetBuilder = new DatasetBuilder());
 	}
@@ -278,6 +312,18 @@ class DBAction extends AbstractComponent {
 	 * @throws Exception
 	 */
 	boolean execute(boolean keys) throws Exception {
+		return execute(keys ? new String[0] : null);
+	}
+
+	/**Executes the statement.
+	 * @param keys names of the columns whose generated values the statement returns. See {@link #prepare(String[])}.
+	 * @return
+	 * <ul><li>true if the statement returns a ResultSet</li>
+	 * 	   <li>false otherwise</li>
+	 * </ul>
+	 * @throws Exception
+	 */
+	boolean execute(String[] keys) throws Exception {
 		prepare(keys);
 		bind(true);
 		boolean result = pstmt.execute();
@@ -10,35 +10,65 @@ import java.sql.ResultSetMetaData;
 import horizon.base.AbstractComponent;
 import horizon.data.DataObject;
 import horizon.data.Dataset;
+import horizon.data.Naming;
 
 class DatasetBuilder extends AbstractComponent {
+	private long lobThreshold = -1;
+	private Naming naming = Naming.AS_IS;
+
+	/**Sets the size above which LOB values are not loaded but returned as {@link Lob}s.
+	 * @param lobThreshold LOB size threshold. If negative, LOB values are always loaded.
+	 * @return this DatasetBuilder
+	 */
+	public DatasetBuilder setLobThreshold(long lobThreshold) {
+		this.lobThreshold = lobThreshold;
+		return this;
+	}
+
+	/**Sets the naming strategy for the keys of the DataObjects.
+	 * @param naming naming strategy. If null, the column labels are used as they are.
+	 * @return this DatasetBuilder
+	 */
+	public DatasetBuilder setNaming(Naming naming) {
+		this.naming = naming != null ? naming : Naming.AS_IS;
+		return this;
+	}
+
+	/**Returns the keys for the columns of the result, named after the column labels.
+	 * @param metaData metadata of a ResultSet
+	 * @return keys for the columns
+	 * @throws Exception
+	 */
+	String[] getKeys(ResultSetMetaData metaData) throws Exception {
+		String[] keys = new String[metaData.getColumnCount()];
+		for (int i = 0; i < keys.length; ++i)
+			keys[i] = naming.name(metaData.getColumnLabel(i + 1));
+		return keys;
+	}
+
 	public Dataset getDataset(ResultSet resultset) throws Exception {
 		Dataset dataset = new Dataset();
 		if (resultset == null)
 			return dataset.init();
 
-		ResultSetMetaData metaData = resultset.getMetaData();
+		String[] keys = getKeys(resultset.getMetaData());
 		while (resultset.next()) {
-			dataset.add(getDataObject(resultset, metaData));
+			dataset.append(getDataObject(resultset, keys));
 		}
 		return dataset.init();
 	}
 
 	public DataObject getDataObject(ResultSet resultset) throws Exception {
-		ResultSetMetaData metaData = resultset.getMetaData();
-		return getDataObject(resultset, metaData);
+		return getDataObject(resultset, getKeys(resultset.getMetaData()));
 	}
 
-	private DataObject getDataObject(ResultSet resultset, ResultSetMetaData metaData) throws Exception {
+	DataObject getDataObject(ResultSet resultset, String[] keys) throws Exception {
 		DataObject row = new DataObject().caseSensitiveKey(true);
-		for (int i = 1, count = metaData.getColumnCount(); i <= count; ++i) {
-			Object value = resultset.getObject(i);
-			if (value instanceof Clob) {
-				value = Query.ResultFactory.toString((Clob)value);
-			} else if (value instanceof Blob) {
-				value = resultset.getBytes(i);
-			}
-			row.put(metaData.getColumnLabel(i), value);
+		for (int i = 0; i < keys.length; ++i) {
+			Object value = resultset.getObject(i + 1);
+			if (value instanceof Clob || value instanceof Blob)
+				value = Lob.value(value, lobThreshold);
+			row.put(keys[i], value);
 		}
 		return row.caseSensitiveKey(false);
 	}
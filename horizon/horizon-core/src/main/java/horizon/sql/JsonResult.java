@@ -0,0 +1,139 @@
+/* Copyright (c) 2020 Emjay Khan. All rights reserved. */
+
+package horizon.sql;
+
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import horizon.base.AbstractComponent;
+import horizon.data.DataList;
+import horizon.data.JsonWriter;
+
+/**JSON object whose members are written as the results of Queries are read.
+ * <p>A JsonResult is a response body that is written when it is sent.<br />
+ * You {@link #put(String, Object) put} the members with
+ * <ul><li>Queries, whose results are written straight from the ResultSets as JSON arrays</li>
+ * 	   <li>Suppliers, whose values are evaluated and written in their turn. A Supplier may return a Query.</li>
+ * 	   <li>other values that a {@link JsonWriter} writes</li>
+ * </ul>
+ * The members are written in the order they are put.<br />
+ * While writing, the DBAccess is kept open for the Queries and Suppliers to share the connection.
+ * </p>
+ * <p>Because the Query from {@link DBAccess#query()} is shared in the current thread,
+ * provide Queries with Suppliers so that each Query is set up just before its results are written.
+ * <pre><code> return new JsonResult(dbaccess)
+ *     .put("prodList", () -> dbaccess.query()
+ *         .sqlId("example.searchProducts")
+ *         .param("start", start).param("fetch", fetch))
+ *     .put("pagination", () -> getFetch(start, fetch));
+ * </code></pre>
+ * </p>
+ * <p>To write a {@link #page(String, String, Supplier, int, int) page} of a Query's result with the pagination information,
+ * the rows are limited and counted by the Query and written as they are read.
+ * <pre><code> return new JsonResult(dbaccess)
+ *     .page("prodList", "pagination", () -> dbaccess.query()
+ *         .sqlId("example.searchProducts")
+ *         .param("columnName", columnName).param("columnValue", columnValue),
+ *         start, fetch);
+ * </code></pre>
+ * </p>
+ * <p>Because the result is written as it is read, a failure while writing leaves the output incomplete.</p>
+ */
+public class JsonResult extends AbstractComponent {
+	private static class Page {
+		private final String fetchName;
+		private final Supplier<Query> query;
+		private final int start,
+						  size;
+
+		Page(String fetchName, Supplier<Query> query, int start, int size) {
+			this.fetchName = fetchName;
+			this.query = query;
+			this.start = start;
+			this.size = size;
+		}
+	}
+
+	private final DBAccess dbaccess;
+	private final LinkedHashMap<String, Object> members = new LinkedHashMap<>();
+
+	/**Creates a new JsonResult.
+	 * @param dbaccess DBAccess the Queries of this JsonResult are associated with
+	 */
+	public JsonResult(DBAccess dbaccess) {
+		this.dbaccess = notEmpty(dbaccess, "dbaccess");
+	}
+
+	/**Puts the member of the JSON object.
+	 * @param name	member name
+	 * @param value	a Query, a Supplier, or a value
+	 * @return this JsonResult
+	 */
+	public JsonResult put(String name, Object value) {
+		members.put(notEmpty(name, "name"), value);
+		return this;
+	}
+
+	/**Puts the member of the JSON object whose value is evaluated when it is written.
+	 * @param name		member name
+	 * @param supplier	supplier of a Query or a value
+	 * @return this JsonResult
+	 */
+	public JsonResult put(String name, Supplier<?> supplier) {
+		return put(name, (Object)supplier);
+	}
+
+	/**Puts the member of the JSON object whose value is a page of the Query's result.<br />
+	 * The rows of the page are written with {@link Query#writePage(JsonWriter, int, int)},
+	 * followed by the member of the {@link DataList.Fetch pagination information}.
+	 * @param name		member name of the rows
+	 * @param fetchName	member name of the pagination information. If empty, the information is not written.
+	 * @param query		supplier of the Query
+	 * @param start		0-based index of the first row of the page
+	 * @param size		maximum number of rows of the page
+	 * @return this JsonResult
+	 */
+	public JsonResult page(String name, String fetchName, Supplier<Query> query, int start, int size) {
+		return put(name, new Page(fetchName, notEmpty(query, "query"), start, size));
+	}
+
+	/**Writes the JSON object to the output in UTF-8.
+	 * @param out OutputStream
+	 */
+	public void write(OutputStream out) {
+		write(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+	}
+
+	/**Writes the JSON object to the output.
+	 * @param out Writer
+	 */
+	public void write(Writer out) {
+		JsonWriter writer = new JsonWriter(out);
+		dbaccess.perform(db -> {
+			writer.beginObject();
+			for (Map.Entry<String, Object> entry: members.entrySet()) {
+				writer.name(entry.getKey());
+				Object value = entry.getValue();
+				if (value instanceof Supplier)
+					value = ((Supplier<?>)value).get();
+
+				if (value instanceof Page) {
+					Page page = (Page)value;
+					DataList.Fetch fetch = page.query.get().writePage(writer, page.start, page.size);
+					if (!isEmpty(page.fetchName))
+						writer.name(page.fetchName).value(fetch);
+				} else if (value instanceof Query)
+					((Query)value).writeJson(writer);
+				else
+					writer.value(value);
+			}
+			writer.endObject().flush();
+		});
+	}
+}
\ No newline at end of file
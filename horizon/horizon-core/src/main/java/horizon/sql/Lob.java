@@ -0,0 +1,250 @@
+/* Copyright (c) 2020 Emjay Khan. All rights reserved. */
+
+package horizon.sql;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.sql.Blob;
+import java.sql.Clob;
+
+import horizon.base.AbstractComponent;
+
+/**Handle to a LOB value of a query result.
+ * <p>When a Query is set with a {@link Query#lobThreshold(long) LOB threshold},
+ * the CLOB and BLOB values larger than the threshold are not loaded into memory
+ * but returned as Lobs in the result.<br />
+ * A Lob reads the value through a {@link #getReader() Reader} or an {@link #getInputStream() InputStream}
+ * or {@link #getString() materializes} it on demand.
+ * </p>
+ * <p>A Lob is backed by the Clob or Blob of the JDBC driver.<br />
+ * Depending on the driver, it is valid only while the ResultSet or the database connection is open,
+ * that is, during a {@link Query#forEach(java.util.function.Consumer) streaming query} or a transaction.
+ * </p>
+ */
+public class Lob extends AbstractComponent {
+	private static final int BUFFER_SIZE = 8192;
+
+	/**Converts the clob to a String.<br />
+	 * The clob is read in bulk through a buffer.
+	 * @param clob a Clob
+	 * @return String converted from the clob
+	 * @throws Exception
+	 */
+	public static String toString(Clob clob) throws Exception {
+		if (clob == null) return null;
+
+		long length = clob.length();
+		StringBuilder buffer = new StringBuilder(length > 0 && length < Integer.MAX_VALUE ? (int)length : BUFFER_SIZE);
+		try (Reader reader = clob.getCharacterStream()) {
+			char[] chars = new char[BUFFER_SIZE];
+			int read = -1;
+			while ((read = reader.read(chars)) != -1)
+				buffer.append(chars, 0, read);
+		}
+		return buffer.toString();
+	}
+
+	/**Converts the blob to a byte array.<br />
+	 * The blob is read in bulk.
+	 * @param blob a Blob
+	 * @return byte array converted from the blob
+	 * @throws Exception
+	 */
+	public static byte[] toBytes(Blob blob) throws Exception {
+		if (blob == null) return null;
+
+		long length = blob.length();
+		if (length > Integer.MAX_VALUE)
+			throw new IllegalStateException("BLOB too large to load: " + length + " bytes");
+		return length < 1 ? new byte[0] : blob.getBytes(1, (int)length);
+	}
+
+	/**Returns the value for the lob, either materialized or as a Lob.
+	 * @param lob a Clob or Blob
+	 * @param threshold size above which the lob is not loaded. If negative, the lob is always loaded.
+	 * @return
+	 * <ul><li>String or byte array if the lob is not larger than the threshold</li>
+	 * 	   <li>Lob otherwise</li>
+	 * </ul>
+	 * @throws Exception
+	 */
+	static Object value(Object lob, long threshold) throws Exception {
+		if (lob instanceof Clob) {
+			Clob clob = (Clob)lob;
+			return threshold > -1 && clob.length() > threshold ? new Lob(clob, null) : toString(clob);
+		}
+		if (lob instanceof Blob) {
+			Blob blob = (Blob)lob;
+			return threshold > -1 && blob.length() > threshold ? new Lob(null, blob) : toBytes(blob);
+		}
+		return lob;
+	}
+
+	private final Clob clob;
+	private final Blob blob;
+
+	private Lob(Clob clob, Blob blob) {
+		this.clob = clob;
+		this.blob = blob;
+	}
+
+	/**Returns whether this Lob is a character LOB.
+	 * @return
+	 * <ul><li>true if this Lob is a CLOB</li>
+	 * 	   <li>false if it is a BLOB</li>
+	 * </ul>
+	 */
+	public boolean isCharacter() {
+		return clob != null;
+	}
+
+	/**Returns the length of the value, in characters for a CLOB or in bytes for a BLOB.
+	 * @return length of the value
+	 */
+	public long length() {
+		try {
+			return clob != null ? clob.length() : blob.length();
+		} catch (Exception e) {
+			throw runtimeException(e);
+		}
+	}
+
+	/**Returns a Reader to read the value with.<br />
+	 * The caller is responsible for closing the Reader.
+	 * @return Reader to read the value with
+	 * @throws IllegalStateException if this Lob is a BLOB
+	 */
+	public Reader getReader() {
+		if (clob == null)
+			throw new IllegalStateException("Not a character LOB");
+		try {
+			return clob.getCharacterStream();
+		} catch (Exception e) {
+			throw runtimeException(e);
+		}
+	}
+
+	/**Returns an InputStream to read the value with.<br />
+	 * For a CLOB, the InputStream reads the characters of the value encoded in UTF-8.<br />
+	 * The caller is responsible for closing the InputStream.
+	 * @return InputStream to read the value with
+	 */
+	public InputStream getInputStream() {
+		try {
+			return clob != null ? new EncodingStream(clob.getCharacterStream()) : blob.getBinaryStream();
+		} catch (Exception e) {
+			throw runtimeException(e);
+		}
+	}
+
+	/**Loads and returns the value of a CLOB as a String.
+	 * @return String value of the CLOB
+	 * @throws IllegalStateException if this Lob is a BLOB
+	 */
+	public String getString() {
+		if (clob == null)
+			throw new IllegalStateException("Not a character LOB");
+		try {
+			return toString(clob);
+		} catch (Exception e) {
+			throw runtimeException(e);
+		}
+	}
+
+	/**Loads and returns the value of a BLOB as a byte array.
+	 * @return byte array of the BLOB
+	 * @throws IllegalStateException if this Lob is a CLOB
+	 */
+	public byte[] getBytes() {
+		if (blob == null)
+			throw new IllegalStateException("Not a binary LOB");
+		try {
+			return toBytes(blob);
+		} catch (Exception e) {
+			throw runtimeException(e);
+		}
+	}
+
+	/**Releases the resources the LOB holds.
+	 */
+	public void free() {
+		try {
+			if (clob != null)
+				clob.free();
+			else
+				blob.free();
+		} catch (Exception e) {
+			throw runtimeException(e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "(" + (clob != null ? "CLOB" : "BLOB") + ")";
+	}
+
+	/**InputStream that reads the characters of a Reader encoded in UTF-8.
+	 */
+	private static class EncodingStream extends InputStream {
+		private final Reader reader;
+		private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+		private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE * 3);
+		private boolean eof,
+						flushed;
+
+		EncodingStream(Reader reader) {
+			this.reader = reader;
+			chars.flip();
+			bytes.flip();
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) return 0;
+			while (!bytes.hasRemaining()) {
+				if (flushed) return -1;
+				fill();
+			}
+			int count = Math.min(len, bytes.remaining());
+			bytes.get(b, off, count);
+			return count;
+		}
+
+		private void fill() throws IOException {
+			if (!eof) {
+				chars.compact();
+				eof = reader.read(chars) < 0;
+				chars.flip();
+			}
+
+			bytes.clear();
+			CoderResult result = encoder.encode(chars, bytes, eof);
+			if (result.isError())
+				result.throwException();
+			if (eof && !chars.hasRemaining())
+				flushed = encoder.flush(bytes).isUnderflow();
+			bytes.flip();
+		}
+
+		@Override
+		public void close() throws IOException {
+			reader.close();
+		}
+	}
+}
\ No newline at end of file
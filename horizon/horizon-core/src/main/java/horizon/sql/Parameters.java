@@ -270,6 +270,22 @@ public class Parameters extends AbstractComponent {
 			log().debug("args:" + buff.toString());
 	}
 
+	int size() {
+		return !isEmpty(args) ? args.length :
+			   !isEmpty(entries) ? entries.size() : 0;
+	}
+
+	Object[] values() {
+		if (!isEmpty(args))
+			return args;
+		if (isEmpty(entries))
+			return new Object[0];
+		return entries.stream()
+			.filter(entry -> Type.IN.equals(entry.type))
+			.map(Entry::value)
+			.toArray();
+	}
+
 	void setResult(PreparedStatement pstmt) {
 		if (isEmpty(entries) || !(pstmt instanceof CallableStatement)) return;
 
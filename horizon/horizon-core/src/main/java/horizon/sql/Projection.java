@@ -0,0 +1,235 @@
+/* Copyright (c) 2020 Emjay Khan. All rights reserved. */
+
+package horizon.sql;
+
+import java.beans.ConstructorProperties;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import horizon.base.Assert;
+import horizon.data.Convert;
+import horizon.util.LRUCache;
+
+/**Creates immutable objects from the rows of a ResultSet by passing the column values to a constructor.
+ * <p>The constructor is
+ * <ul><li>the canonical constructor of a record</li>
+ * 	   <li>a constructor annotated with {@link ConstructorProperties}</li>
+ * 	   <li>the only public constructor whose parameter names are compiled in with the '-parameters' option</li>
+ * </ul>
+ * The columns are matched to the constructor's parameters by normalized names,
+ * that is, case-insensitive and with the underscores ignored.<br />
+ * The parameters with no matching columns are given null or the primitive defaults.
+ * </p>
+ * <p>A Projection is resolved once for a type and a column layout and cached.</p>
+ */
+class Projection<T> {
+	private static final LRUCache<String, Projection<?>> cache = new LRUCache<>(256);
+	private static final Map<Class<?>, Creator> creators = new HashMap<>();
+
+	@SuppressWarnings("unchecked")
+	static <T> Projection<T> get(Class<T> type, ResultSetMetaData metaData) throws Exception {
+		StringBuilder buffer = new StringBuilder(type.getName());
+		int count = metaData.getColumnCount();
+		for (int i = 1; i <= count; ++i)
+			buffer.append(',').append(metaData.getColumnLabel(i));
+		String key = buffer.toString();
+
+		Projection<T> projection = (Projection<T>)cache.get(key);
+		if (projection == null)
+			cache.put(key, projection = new Projection<>(creator(type), metaData));
+		return projection;
+	}
+
+	private static Creator creator(Class<?> type) {
+		synchronized (creators) {
+			return creators.computeIfAbsent(type, Creator::new);
+		}
+	}
+
+	static String normalize(String name) {
+		StringBuilder buffer = new StringBuilder(name.length());
+		for (int i = 0, length = name.length(); i < length; ++i) {
+			char c = name.charAt(i);
+			if (c != '_')
+				buffer.append(Character.toLowerCase(c));
+		}
+		return buffer.toString();
+	}
+
+	private final MethodHandle constructor;
+	private final Class<?>[] types;
+	private final int[] columns;
+	private final Object[] defaults;
+
+	private Projection(Creator creator, ResultSetMetaData metaData) throws Exception {
+		constructor = creator.constructor;
+		types = creator.types;
+
+		HashMap<String, Integer> indexes = new HashMap<>();
+		for (int i = metaData.getColumnCount(); i > 0; --i)
+			indexes.put(normalize(metaData.getColumnLabel(i)), i);
+
+		columns = new int[types.length];
+		defaults = new Object[types.length];
+		for (int i = 0; i < types.length; ++i) {
+			Integer index = indexes.get(creator.names[i]);
+			columns[i] = index != null ? index : 0;
+			defaults[i] = Convert.primitiveDefault(types[i]);
+		}
+		if (Arrays.stream(columns).allMatch(index -> index == 0))
+			throw new IllegalArgumentException("No columns match the parameters of " + creator.type.getName() + Arrays.toString(creator.names));
+	}
+
+	@SuppressWarnings("unchecked")
+	T create(ResultSet resultset) throws Throwable {
+		Object[] args = new Object[types.length];
+		for (int i = 0; i < args.length; ++i) {
+			int column = columns[i];
+			Object value = column < 1 ? null : convert(resultset.getObject(column), types[i]);
+			args[i] = value != null ? value : defaults[i];
+		}
+		return (T)constructor.invoke(args);
+	}
+
+	private static Object convert(Object value, Class<?> type) throws Exception {
+		if (value == null || type.isInstance(value)) return value;
+
+		if (value instanceof Clob)
+			return convert(Lob.toString((Clob)value), type);
+		if (value instanceof Blob)
+			return convert(Lob.toBytes((Blob)value), type);
+
+		if (value instanceof Number) {
+			Number number = (Number)value;
+			if (type == int.class || type == Integer.class) return number.intValue();
+			if (type == long.class || type == Long.class) return number.longValue();
+			if (type == double.class || type == Double.class) return number.doubleValue();
+			if (type == float.class || type == Float.class) return number.floatValue();
+			if (type == short.class || type == Short.class) return number.shortValue();
+			if (type == byte.class || type == Byte.class) return number.byteValue();
+			if (type == boolean.class || type == Boolean.class) return number.intValue() != 0;
+			if (type == BigDecimal.class) return new BigDecimal(number.toString());
+			if (type == BigInteger.class) return new BigDecimal(number.toString()).toBigInteger();
+		}
+		if (type == String.class)
+			return value.toString();
+		if (value instanceof java.sql.Date) {
+			if (type == LocalDate.class) return ((java.sql.Date)value).toLocalDate();
+		}
+		if (value instanceof java.sql.Time) {
+			if (type == LocalTime.class) return ((java.sql.Time)value).toLocalTime();
+		}
+		if (value instanceof Timestamp) {
+			Timestamp timestamp = (Timestamp)value;
+			if (type == LocalDateTime.class) return timestamp.toLocalDateTime();
+			if (type == LocalDate.class) return timestamp.toLocalDateTime().toLocalDate();
+			if (type == Instant.class) return timestamp.toInstant();
+		}
+		if (value instanceof String) {
+			Class<?> boxed = type.isPrimitive() ? Convert.primitiveDefault(type).getClass() : type;
+			if (boxed == Character.class || Convert.isNumber(boxed) || boxed == Boolean.class)
+				return Convert.toObject(boxed, (String)value);
+		}
+		if (type.isPrimitive()) {
+			Class<?> boxed = Convert.primitiveDefault(type).getClass();
+			if (boxed.isInstance(value)) return value;
+		}
+		throw new IllegalArgumentException("Inconvertible: " + value.getClass().getName() + " to " + type.getName());
+	}
+
+	private static class Creator {
+		private final Class<?> type;
+		private final MethodHandle constructor;
+		private final Class<?>[] types;
+		private final String[] names;
+
+		Creator(Class<?> type) {
+			this.type = type;
+			try {
+				Constructor<?> constructor = null;
+				String[] names = null;
+
+				Object[] components = recordComponents(type);
+				if (components != null) {
+					Class<?>[] types = new Class<?>[components.length];
+					names = new String[components.length];
+					for (int i = 0; i < components.length; ++i) {
+						Class<?> componentClass = components[i].getClass();
+						types[i] = (Class<?>)componentClass.getMethod("getType").invoke(components[i]);
+						names[i] = (String)componentClass.getMethod("getName").invoke(components[i]);
+					}
+					constructor = type.getDeclaredConstructor(types);
+				} else {
+					for (Constructor<?> c: type.getDeclaredConstructors()) {
+						ConstructorProperties properties = c.getAnnotation(ConstructorProperties.class);
+						if (properties == null) continue;
+
+						constructor = c;
+						names = properties.value();
+						break;
+					}
+					if (constructor == null)
+						constructor = namedConstructor(type);
+					if (constructor == null)
+						throw new IllegalArgumentException("No constructor of " + type.getName() + " to project the results on. Declare a record or annotate a constructor with @ConstructorProperties.");
+					if (names == null)
+						names = Arrays.stream(constructor.getParameters()).map(Parameter::getName).toArray(String[]::new);
+				}
+
+				if (names.length != constructor.getParameterCount())
+					throw new IllegalArgumentException("Parameter names do not match the constructor of " + type.getName());
+
+				constructor.setAccessible(true);
+				this.types = constructor.getParameterTypes();
+				this.names = Arrays.stream(names).map(Projection::normalize).toArray(String[]::new);
+				this.constructor = MethodHandles.lookup()
+					.unreflectConstructor(constructor)
+					.asSpreader(Object[].class, types.length);
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw Assert.runtimeException(e);
+			}
+		}
+
+		private static Object[] recordComponents(Class<?> type) throws Exception {
+			Method isRecord = null;
+			try {
+				isRecord = Class.class.getMethod("isRecord");
+			} catch (NoSuchMethodException e) {
+				return null;
+			}
+			if (!Boolean.TRUE.equals(isRecord.invoke(type)))
+				return null;
+			return (Object[])Class.class.getMethod("getRecordComponents").invoke(type);
+		}
+
+		private static Constructor<?> namedConstructor(Class<?> type) {
+			Constructor<?>[] constructors = Arrays.stream(type.getConstructors())
+				.filter(c -> c.getParameterCount() > 0 && Modifier.isPublic(c.getModifiers()))
+				.toArray(Constructor<?>[]::new);
+			if (constructors.length != 1) return null;
+
+			Constructor<?> constructor = constructors[0];
+			return constructor.getParameters()[0].isNamePresent() ? constructor : null;
+		}
+	}
+}
\ No newline at end of file
@@ -2,26 +2,39 @@
 
 package horizon.sql;
 
-import java.io.Reader;
+import java.math.BigDecimal;
 import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import horizon.base.Klass;
 import horizon.data.DataList;
 import horizon.data.DataObject;
 import horizon.data.Dataset;
+import horizon.data.JsonWriter;
+import horizon.data.Naming;
+import horizon.sql.support.Accessor;
+import horizon.sql.support.Dialect;
 import horizon.sql.support.EXProcessor;
 import horizon.sql.support.Orm;
+import horizon.sql.support.SQLProc;
 
 /**Executes query statements and returns the results.
  * <p>For database query, start by getting a {@link DBAccess#query() Query from the DBAccess}.
@@ -45,9 +58,23 @@ import horizon.sql.support.Orm;
  * <ul><li>{@link #getDataset() one} or {@link #getDatasets() more} Datasets</li>
  * 	   <li>{@link #getValue() scalar values}</li>
  *     <li>{@link #getObject(ResultFactory) one} or {@link #getObjects(ResultFactory, java.util.function.Function) more} persistent objects</li>
+ *     <li>{@link #forEachResult(Consumer) result sets} of stored procedures one at a time</li>
  *     <li>{@link #parameters() OUT parameters of stored procedures}</li>
  * </ul>
  * </p>
+ * <p>To process a large result without holding it in memory, use {@link #forEach(Consumer)}.<br />
+ * With a {@link #lobThreshold(long) LOB threshold}, large CLOB and BLOB values are returned as {@link Lob} handles instead of being loaded.
+ * </p>
+ * <p>To get a {@link #page(int, int) page} of the result with the total number of rows, the Query limits the rows
+ * and counts them in the same round trip where the database supports it.<br />
+ * For pagination of large results, set a {@link #keyset(DataList.Keyset) Keyset}
+ * to have the Query seek the rows after the last-seen values of a sort key instead of skipping rows by offset.
+ * </p>
+ * <p>To reuse the results of frequent queries on rarely updated tables, {@link #cache(Duration) cache} them in the {@link ResultCache}.
+ * </p>
+ * <p>To load the objects with their associated objects, {@link #fetch(String...) name the associations} of the objects' &lt;orm../>s.
+ * The associated objects are loaded with a query for the whole result, not for each object.
+ * </p>
  * <p>A Query controls the database connection automatically while executing statements.
  * Depending on the call site, it may be in a transaction context.<br />
  * </p>
@@ -62,14 +89,10 @@ public class Query extends DBAction {
 		 * @param clob a Clob
 		 * @return String converted from the clob
 		 * @throws Exception
+		 * @see Lob#toString(Clob)
 		 */
 		static String toString(Clob clob) throws Exception {
-			Reader reader = clob.getCharacterStream();
-			int read = -1;
-			StringBuilder buffer = new StringBuilder();
-			while ((read = reader.read()) != -1)
-				buffer.append((char)read);
-			return buffer.toString();
+			return Lob.toString(clob);
 		}
 
 		/**Creates an object of T from the resultset.
@@ -80,6 +103,23 @@ public class Query extends DBAction {
 		T create(ResultSet resultset) throws Exception;
 	}
 
+	@FunctionalInterface
+	private interface RowReader {
+		void read(ResultSet resultset, String[] keys, int columns) throws Exception;
+	}
+
+	private static final String PAGE_TOTAL = "PG_TOTAL_";
+
+	private long lobThreshold = -1;
+	private Naming naming = Naming.AS_IS;
+	private DataList.Keyset keyset;
+	private String seekFrom;
+	private Object[] seekArgs;
+	private Duration cache;
+	private String[] tables;
+	private List<String> associations;
+	private Set<String> eagerPath;
+
 	/**Creates a new Query.
 	 * @param dbaccess DBAccess this Query is associated with
 	 */
@@ -132,35 +172,528 @@ public class Query extends DBAction {
 		return this;
 	}
 
+	/**Sets the size above which CLOB and BLOB values of the result are not loaded into memory.<br />
+	 * The values larger than the threshold are returned as {@link Lob}s to read them with a Reader or an InputStream.<br />
+	 * Note that, depending on the JDBC driver, a Lob is valid only while the ResultSet or the database connection is open.
+	 * @param lobThreshold size in characters or bytes. If negative, which is the default, LOB values are always loaded.
+	 * @return this Query
+	 */
+	public Query lobThreshold(long lobThreshold) {
+		this.lobThreshold = lobThreshold;
+		return this;
+	}
+
+	/**Sets the naming strategy for the keys of the DataObjects in the result.<br />
+	 * The strategy is applied once to the column labels before the rows are read.<br />
+	 * It applies to the results of {@link #getDataset()}, {@link #getDatasets()}, {@link #forEach(Consumer)}, {@link #forEachResult(Consumer)}, and {@link #writeJson(JsonWriter)}.
+	 * @param naming naming strategy such as {@link Naming#CAMEL_CASE}. If null, the column labels are used as they are.
+	 * @return this Query
+	 */
+	public Query naming(Naming naming) {
+		this.naming = naming != null ? naming : Naming.AS_IS;
+		return this;
+	}
+
+	/**Sets the time-to-live of the result of {@link #getDataset()} and {@link #getValue()} in the {@link ResultCache}.
+	 * <p>While the result is cached, the same statement with the same arguments returns a copy of the result without executing the statement.<br />
+	 * The result is removed from the cache when it expires or when an Update or a Batch updates its {@link #tables(String...) tables}.
+	 * </p>
+	 * <p>The result is not cached
+	 * <ul><li>with a {@link #keyset(DataList.Keyset) Keyset} or a {@link #lobThreshold(long) LOB threshold}</li>
+	 * 	   <li>for a stored procedure</li>
+	 * 	   <li>while a transaction is in progress, where the result may include uncommitted changes</li>
+	 * </ul>
+	 * Updates from outside the application are not detected. Set the time-to-live to bound the staleness.
+	 * </p>
+	 * <p>The setting overrides the 'cache' attribute of the {@code <query../>} instruction and is effective until the Query is closed.</p>
+	 * @param ttl time-to-live of the result. If null or not positive, the result is not cached.
+	 * @return this Query
+	 */
+	public Query cache(Duration ttl) {
+		this.cache = ttl;
+		return this;
+	}
+
+	/**Sets the names of the tables whose updates invalidate the {@link #cache(Duration) cached} result.<br />
+	 * If not set, the tables are found in the FROM and JOIN clauses of the statement.
+	 * @param tables names of the tables
+	 * @return this Query
+	 */
+	public Query tables(String... tables) {
+		this.tables = tables;
+		return this;
+	}
+
+	private Duration cacheTTL() {
+		Duration ttl = cache != null ? cache : sqlproc != null ? sqlproc.getCache() : null;
+		if (ttl == null || ttl.isZero() || ttl.isNegative()
+		 || keyset != null || lobThreshold > -1 || isEmpty(working) || isCallable(working))
+			return null;
+		return ttl;
+	}
+
+	private Set<String> cacheTables() {
+		String[] names = !isEmpty(tables) ? tables : sqlproc != null ? sqlproc.getTables() : null;
+		return !isEmpty(names) ? new HashSet<>(Arrays.asList(names)) : ResultCache.sourcesOf(working);
+	}
+
+	@Override
+	DatasetBuilder datasetBuilder() {
+		return super.datasetBuilder()
+			.setLobThreshold(lobThreshold)
+			.setNaming(naming);
+	}
+
+	/**Sets the Keyset to fetch the next result of {@link #getDataset()}, {@link #getObjects(ResultFactory, Function)} or their variants in keyset pagination.
+	 * <p>The Query wraps the statement to select the rows that come after the Keyset's last-seen values
+	 * in the order of the Keyset's sort key, and fetches up to the Keyset's fetch size.
+	 * One more row is read, but not returned, to tell whether a next page follows.<br />
+	 * The statement itself, therefore, should neither sort nor limit the rows,
+	 * and the sort key columns must be in the statement's result and must not be null.
+	 * </p>
+	 * <p>The returned DataList has the {@link DataList#getCursor() cursor} to fetch the next page with.
+	 * <pre><code> DataList.Keyset keyset = DataList.getKeyset(20, "CUST_NAME", "CUST_ID").after(cursor);
+	 * Dataset dataset = dbaccess.query()
+	 *     .sql("SELECT * FROM CUSTOMER WHERE CREDIT > ?").params(0)
+	 *     .keyset(keyset)
+	 *     .getDataset();
+	 * String next = dataset.getCursor(); // null if there are no more rows
+	 * </code></pre>
+	 * </p>
+	 * <p>The Keyset is effective only for the next execution.</p>
+	 * @param keyset Keyset for keyset pagination
+	 * @return this Query
+	 */
+	public Query keyset(DataList.Keyset keyset) {
+		this.keyset = keyset;
+		return this;
+	}
+
+	/**Sets the associations to load along with the objects the Query returns.<br />
+	 * An association is named after the property of an {@code <oneToMany../>} or {@code <manyToOne../>} in the objects' &lt;orm../>.
+	 * Associations of the associated objects are named in paths like "orders.lineItems".
+	 * <p>For each association, the associated objects of all the returned objects are selected with a statement
+	 * that matches the associated objects' references with an IN predicate,
+	 * instead of a statement for each object, and set to the objects by the matching values.
+	 * The statement is split in chunks within {@link horizon.sql.support.Dialect#inListSize(int, int) the limits of the Dialect}.
+	 * <pre><code> List&lt;SalesOrder> orders = dbaccess.query()
+	 *     .sql("SELECT * FROM SALES_ORDER WHERE CUST_ID = ?").params(custID)
+	 *     .fetch("lineItems", "customer")
+	 *     .getObjects(rs -> new SalesOrder());
+	 * </code></pre>
+	 * The associations declared with fetch="eager" are loaded without being named.
+	 * An eager association is not loaded again for the objects loaded through it,
+	 * so that eager associations referring to each other do not load endlessly.
+	 * </p>
+	 * @param associations names or paths of the associations
+	 * @return this Query
+	 */
+	public Query fetch(String... associations) {
+		this.associations = isEmpty(associations) ? null : Arrays.asList(associations);
+		return this;
+	}
+
 	private PreparedStatement getResults() throws Exception {
 		preprocess();
+		return getPreprocessedResults();
+	}
+
+	private PreparedStatement getPreprocessedResults() throws Exception {
 		if (isEmpty(working)) return null;
 
-		return execute(false) ? pstmt : null;
+		boolean result = keyset != null ? seek() : execute(false);
+		return result ? pstmt : null;
 	}
 
-	private ResultSet getResultSet() throws Exception {
-		PreparedStatement pstmt = getResults();
-		return pstmt != null ? resultset = pstmt.getResultSet() : null;
+	/**Executes the statement derived from the working statement.
+	 * @param stmt		statement with the parameters of the working statement followed by additional ones
+	 * @param args		arguments to the additional parameters
+	 * @param maxRows	maximum number of rows. If 0, the rows are not limited.
+	 * @return
+	 * <ul><li>true if the statement returns a ResultSet</li>
+	 * 	   <li>false otherwise</li>
+	 * </ul>
+	 * @throws Exception
+	 */
+	private boolean execute(String stmt, List<Object> args, int maxRows) throws Exception {
+		SQLProc proc = sqlproc;
+		setWorkingStatement(stmt);
+		sqlproc = proc;
+
+		prepare(false);
+		bind(true);
+		int index = parameters().size();
+		for (Object arg: args)
+			pstmt.setObject(++index, arg);
+		if (!args.isEmpty())
+			log().debug(() -> "additional args:" + args);
+
+		if (maxRows > 0)
+			pstmt.setMaxRows(maxRows);
+		boolean result = pstmt.execute();
+		if (params != null)
+			params.setResult(pstmt);
+		return result;
+	}
+
+	private boolean seek() throws Exception {
+		if (isCallable(working))
+			throw new IllegalStateException("Keyset pagination is not supported for stored procedures");
+
+		seekFrom = working;
+		seekArgs = parameters().values();
+
+		List<Object> args = new ArrayList<>();
+		return execute(seekStatement(seekFrom, args), args, keyset.getFetchSize() + 1);
+	}
+
+	/**Returns whether the row read is beyond the Keyset's fetch size.<br />
+	 * The Query fetches one more row than the fetch size to tell whether a next page follows.
+	 * @param read number of the rows read so far, including the current one
+	 * @return
+	 * <ul><li>true if the row is beyond the fetch size</li>
+	 * 	   <li>false otherwise</li>
+	 * </ul>
+	 */
+	private boolean beyondFetch(int read) {
+		return keyset != null && read > keyset.getFetchSize();
+	}
+
+	private String seekStatement(String stmt, List<Object> args) {
+		List<String> columns = keyset.getColumns();
+		List<Object> values = keyset.getValues();
+		StringBuilder where = new StringBuilder(),
+					  orderBy = new StringBuilder();
+
+		for (int i = 0; i < columns.size(); ++i) {
+			String column = columns.get(i);
+			boolean desc = keyset.isDescending(i);
+			if (orderBy.length() > 0)
+				orderBy.append(", ");
+			orderBy.append(column).append(desc ? " DESC" : "");
+			if (values.isEmpty()) continue;
+
+			if (where.length() > 0)
+				where.append(" OR ");
+			where.append("(");
+			for (int j = 0; j < i; ++j) {
+				where.append(columns.get(j)).append(" = ? AND ");
+				args.add(values.get(j));
+			}
+			where.append(column).append(desc ? " < ?" : " > ?").append(")");
+			args.add(values.get(i));
+		}
+
+		return "SELECT * FROM (\n" + stmt + "\n) KS_"
+			 + (where.length() > 0 ? "\nWHERE " + where : "")
+			 + "\nORDER BY " + orderBy;
+	}
+
+	private void setKeyset(DataList<?> list, boolean more, Function<String, Object> valueOf) {
+		keyset.set(list, more, valueOf);
+		if (!keyset.isCounted()) return;
+
+		Query query = new Query(dbaccess);
+		try {
+			Number count = query
+				.sql("SELECT COUNT(*) FROM (\n" + seekFrom + "\n) KC_")
+				.params(seekArgs)
+				.getValue();
+			list.setTotalSize(count);
+		} finally {
+			query.close();
+		}
+	}
+
+	private void endSeek() {
+		if (keyset == null) return;
+
+		keyset = null;
+		seekFrom = null;
+		seekArgs = null;
+		restoreStatement();
+	}
+
+	private void restoreStatement() {
+		if (isEmpty(sqlId) && !isEmpty(sql))
+			setWorkingStatement(sql);
 	}
 
 	private <T> T getResult(ResultFactory<T> factory) {
+		return getResult(factory, true);
+	}
+
+	private <T> T getResult(ResultFactory<T> factory, boolean preprocess) {
 		return execute((dbaccess) -> {
-			T result = factory.create(getResultSet());
-			clearResult();
+			try {
+				PreparedStatement pstmt = preprocess ? getResults() : getPreprocessedResults();
+				T result = factory.create(pstmt != null ? resultset = pstmt.getResultSet() : null);
+				clearResult();
+				return result;
+			} finally {
+				endSeek();
+			}
+		});
+	}
+
+	/**Executes the statement and returns a page of the result with the total number of rows.<br />
+	 * Equivalent to {@link #page(int, int, boolean) page(start, size, true)}.
+	 * @param start	0-based index of the first row of the page
+	 * @param size	maximum number of rows of the page
+	 * @return Dataset of the rows with the total size, start, and fetch size set
+	 */
+	public Dataset page(int start, int size) {
+		return page(start, size, true);
+	}
+
+	/**Executes the statement and returns a page of the result.
+	 * <p>The Query limits the rows with the clause of the {@link DBAccess#getDialect() database's Dialect}.
+	 * The statement itself, therefore, should sort the rows but not limit them.
+	 * <pre><code> Dataset page = dbaccess.query()
+	 *     .sql("SELECT * FROM CUSTOMER WHERE CREDIT > ? ORDER BY CUST_NAME").params(0)
+	 *     .page(40, 20);
+	 * int totalSize = page.getTotalSize();
+	 * </code></pre>
+	 * </p>
+	 * <p>To count the rows, the Query uses the cheapest of the following:
+	 * <ul><li>the number of the rows if the first page has fewer rows than the size</li>
+	 * 	   <li>a {@code COUNT(*) OVER()} column added to the statement if the database supports window functions</li>
+	 * 	   <li>{@code SQL_CALC_FOUND_ROWS} and {@code FOUND_ROWS()} if the database supports them</li>
+	 * 	   <li>a separate count query, which is {@link #cache(Duration) cached} along with the Query's time-to-live</li>
+	 * </ul>
+	 * If counting is too expensive, skip it. Then the total size is the number of rows up to the page,
+	 * plus one if more rows follow.
+	 * </p>
+	 * @param start	0-based index of the first row of the page
+	 * @param size	maximum number of rows of the page
+	 * @param count
+	 * <ul><li>true to count all the rows</li>
+	 * 	   <li>false to skip counting</li>
+	 * </ul>
+	 * @return Dataset of the rows with the total size, start, and fetch size set
+	 */
+	public Dataset page(int start, int size, boolean count) {
+		Dataset dataset = new Dataset();
+		DatasetBuilder builder = datasetBuilder();
+		DataList.Fetch fetch = page(start, size, count, (rs, keys, columns) -> {
+			DataObject row = builder.getDataObject(rs, keys);
+			if (columns < keys.length)
+				row.remove(keys[columns]);
+			dataset.append(row);
+		});
+		fetch.set(dataset.init());
+		log().debug(() -> dataset.size() + " row(s) SELECTed of " + dataset.getTotalSize());
+		return dataset;
+	}
+
+	/**Executes the statement and writes a page of the result to the writer as a JSON array of objects.
+	 * <p>The rows are limited and counted as with {@link #page(int, int)}, and written straight from the ResultSet
+	 * as with {@link #writeJson(JsonWriter)}, without being loaded into memory.
+	 * </p>
+	 * @param writer	JsonWriter
+	 * @param start		0-based index of the first row of the page
+	 * @param size		maximum number of rows of the page
+	 * @return pagination information with the total number of rows
+	 */
+	public DataList.Fetch writePage(JsonWriter writer, int start, int size) {
+		notEmpty(writer, "writer");
+		String[][] names = {null};
+		int[] rows = {0};
+		DataList.Fetch fetch = execute((dbaccess) -> {
+			writer.beginArray();
+			DataList.Fetch result = page(start, size, true, (rs, keys, columns) -> {
+				if (names[0] == null) {
+					names[0] = new String[columns];
+					for (int i = 0; i < columns; ++i)
+						names[0][i] = JsonWriter.encode(keys[i]);
+				}
+				writer.beginObject();
+				for (int i = 0; i < columns; ++i)
+					writer.encodedName(names[0][i]).value(rs.getObject(i + 1));
+				writer.endObject();
+				++rows[0];
+			});
+			writer.endArray();
 			return result;
 		});
+		log().debug(() -> rows[0] + " row(s) written of " + fetch.getTotalSize());
+		return fetch;
+	}
+
+	private DataList.Fetch page(int start, int size, boolean count, RowReader reader) {
+		if (start < 0)
+			throw new IllegalArgumentException("start < 0");
+		if (size < 1)
+			throw new IllegalArgumentException("size < 1");
+		if (keyset != null)
+			throw new IllegalStateException("Keyset pagination does not go with the page(...) method");
+
+		return execute((dbaccess) -> {
+			try {
+				preprocess();
+				return readPage(start, size, count, reader);
+			} finally {
+				restoreStatement();
+			}
+		});
+	}
+
+	private DataList.Fetch readPage(int start, int size, boolean count, RowReader reader) throws Exception {
+		String stmt = notEmpty(working, "sql");
+		if (isCallable(stmt))
+			throw new IllegalStateException("Paging is not supported for stored procedures");
+
+		Object[] args = parameters().values();
+		Duration ttl = cacheTTL();
+		String[] tables = ttl != null ? cacheTables().toArray(new String[0]) : null;
+
+		Dialect dialect = dbaccess.getDialect();
+		String counted = count ? dialect.countOver(stmt, PAGE_TOTAL) : null,
+			   found = count && counted == null ? dialect.calcFoundRows(stmt) : null,
+			   select = counted != null ? counted : found != null ? found : stmt,
+			   limited = dialect.limit(select);
+		int fetch = count ? size : size + 1;
+		List<Object> limitArgs = limited != null ? Arrays.asList(dialect.limitArgs(start, fetch)) : Collections.emptyList();
+
+		Number total = null;
+		int rows = 0;
+		boolean more = false;
+		if (execute(limited != null ? limited : select, limitArgs, limited != null ? 0 : start + fetch)) {
+			resultset = pstmt.getResultSet();
+			String[] keys = datasetBuilder().getKeys(resultset.getMetaData());
+			int columns = counted != null ? keys.length - 1 : keys.length;
+
+			int skip = limited != null ? 0 : start;
+			while (skip > 0 && resultset.next())
+				--skip;
+			while (resultset.next()) {
+				if (more = rows == size) break;
+
+				if (counted != null && total == null)
+					total = (Number)resultset.getObject(keys.length);
+				reader.read(resultset, keys, columns);
+				++rows;
+			}
+			clearResult();
+		}
+
+		if (!count)
+			total = start + rows + (more ? 1 : 0);
+		else if (total == null) {
+			if (start == 0 && rows < size && found == null)
+				total = rows;
+			else {
+				Query query = new Query(dbaccess);
+				try {
+					total = found != null ?
+						query.sql(dialect.foundRows()).getValue() :
+						query.sql(dialect.count(stmt)).params(args).cache(ttl).tables(tables).getValue();
+				} finally {
+					query.close();
+				}
+			}
+		}
+		return DataList.getFetch(total, start, size);
 	}
 
 	/**Executes the statement and returns the ResultSet in a Dataset.<br />
 	 * @return Dataset
 	 */
 	public Dataset getDataset() {
-		Dataset dataset = getResult(datasetBuilder()::getDataset);
+		try {
+			preprocess();
+		} catch (RuntimeException e) {
+			close();
+			throw e;
+		}
+		Duration ttl = cacheTTL();
+		if (ttl == null)
+			return readDataset();
+
+		ResultCache cache = dbaccess.resultCache();
+		ResultCache.Key key = new ResultCache.Key(working, parameters().values(), naming);
+		Dataset cached = cache.get(key);
+		if (cached != null) {
+			log().debug(() -> cached.size() + " row(s) from the cache");
+			if (!dbaccess.isOpen())
+				close();
+			return cached;
+		}
+
+		Set<String> tables = cacheTables();
+		long stamp = cache.stamp();
+		Dataset dataset = readDataset();
+		if (!Transaction.inProgress())
+			cache.put(key, dataset, ttl, tables, stamp);
+		return dataset;
+	}
+
+	private Dataset readDataset() {
+		Dataset dataset = getResult(rs -> {
+			Dataset result = datasetBuilder().getDataset(rs);
+			if (keyset != null) {
+				boolean more = beyondFetch(result.size());
+				if (more)
+					result.remove(result.size() - 1);
+				setKeyset(result, more, column -> result.get(result.size() - 1).get(naming.name(column)));
+			}
+			return result;
+		}, false);
 		log().debug(() -> dataset.size() + " row(s) SELECTed");
 		return dataset;
 	}
 
+	/**Executes the statement and passes each row of the result to the consumer as it is read.
+	 * <p>Unlike {@link #getDataset()}, the rows are not accumulated in memory,
+	 * which makes the method suitable for processing a large result.<br />
+	 * The {@link Lob}s of a row are valid while the consumer processes the row.
+	 * </p>
+	 * @param consumer consumer of the rows
+	 */
+	public void forEach(Consumer<? super DataObject> consumer) {
+		notEmpty(consumer, "consumer");
+		int count = getResult(rs -> {
+			if (rs == null) return 0;
+
+			Cursor cursor = new Cursor(0, rs, datasetBuilder());
+			cursor.forEach(consumer);
+			return cursor.getCount();
+		});
+		log().debug(() -> count + " row(s) SELECTed");
+	}
+
+	/**Executes the statement and writes the rows of the result to the writer as a JSON array of objects.
+	 * <p>The rows are written straight from the ResultSet as they are read, with the column labels as member names.<br />
+	 * CLOB and BLOB values are streamed to the writer.
+	 * </p>
+	 * @param writer JsonWriter
+	 * @return number of rows written
+	 */
+	public int writeJson(JsonWriter writer) {
+		notEmpty(writer, "writer");
+		int count = getResult(rs -> {
+			writer.beginArray();
+			int rows = 0;
+			if (rs != null) {
+				String[] names = datasetBuilder().getKeys(rs.getMetaData());
+				for (int i = 0; i < names.length; ++i)
+					names[i] = JsonWriter.encode(names[i]);
+
+				while (rs.next()) {
+					writer.beginObject();
+					for (int i = 0; i < names.length; ++i)
+						writer.encodedName(names[i]).value(rs.getObject(i + 1));
+					writer.endObject();
+					++rows;
+				}
+			}
+			writer.endArray();
+			return rows;
+		});
+		log().debug(() -> count + " row(s) written");
+		return count;
+	}
+
 	/**Calls the {@link #getDataset()} method and returns the first column value of the Dataset's first row.<br />
 	 * The intention is to help get a scalar value from the query result.
 	 * @return
@@ -204,6 +737,33 @@ public class Query extends DBAction {
 		});
 	}
 
+	/**Executes the statement and passes a {@link Cursor} to the visitor for each result set the statement returns.
+	 * <p>The result sets are read one at a time as the visitor processes them,
+	 * so that a large result set can be processed or skipped without holding all the results in memory.<br />
+	 * A Cursor is valid only while the visitor processes it.
+	 * <pre><code> dbaccess.query()
+	 *     .sql("{call sp_customer_report(?)}").params(year)
+	 *     .forEachResult(cursor -> {
+	 *         if (cursor.getIndex() == 0)
+	 *             summary = cursor.toDataset();
+	 *         else
+	 *             cursor.forEach(row -> writer.write(row));
+	 *     });
+	 * </code></pre>
+	 * </p>
+	 * @param visitor visitor of the result sets
+	 * @return number of the result sets visited
+	 */
+	public int forEachResult(Consumer<? super Cursor> visitor) {
+		notEmpty(visitor, "visitor");
+		return execute((dbaccess) -> {
+			getResults();
+			int count = parser().setStatement(pstmt).forEach(visitor);
+			log().debug(() -> count + " result(s) visited");
+			return count;
+		});
+	}
+
 	/**Executes statements for stored procedures that returns no ResultSets but only OUT parameters.
 	 */
 	public void execute() {
@@ -218,23 +778,25 @@ public class Query extends DBAction {
 		if (obj == null) return;
 
 		Orm orm = Orm.get(obj.getClass());
+		Accessor<Object> accessor = orm.getAccessor();
 		String objRef = orm.objRef();
-		EXProcessor exproc = expr().setBean(objRef, obj);
+		EXProcessor exproc = accessor != null ? expr() : expr().setBean(objRef, obj);
 
-		orm.getMappings().forEach(mapping -> {
+		int index = 0;
+		for (Orm.Mapping mapping: orm.getMappings()) {
 			try {
 				Object value = rs.getObject(mapping.getColumn());
-				if (value instanceof Clob) {
-					value = ResultFactory.toString((Clob)value);
-				} else if (value instanceof Blob) {
-					value = rs.getBytes(mapping.getColumn());
-				}
-				exproc.setValue(objRef + "." + mapping.getProperty(), value);
+				if (value instanceof Clob || value instanceof Blob)
+					value = Lob.value(value, -1);
+				if (accessor != null)
+					accessor.set(obj, index++, value);
+				else
+					exproc.setValue(objRef + "." + mapping.getProperty(), value);
 			} catch (Exception e) {
 				throw runtimeException(e);
 			}
-		});
-
+		}
+		orm.snapshot(obj, exproc);
 	}
 
 	private <T> ResultFactory<? extends T> resultSupplier() {
@@ -246,6 +808,11 @@ public class Query extends DBAction {
 	private <T> ResultFactory<? extends T> resultSupplier(Class<?> klass) {
 		if (klass == null)
 			throw new RuntimeException("Unable to determine the resultType");
+
+		Orm orm = Orm.find(klass);
+		Accessor<?> accessor = orm != null ? orm.getAccessor() : null;
+		if (accessor != null)
+			return (rs) -> (T)accessor.create();
 		return (rs) -> {
 			return (T)Klass.instance(klass);
 		};
@@ -267,29 +834,35 @@ public class Query extends DBAction {
 	 * @return DataList of objects created from the result
 	 */
 	public <T> DataList<T> getObjects(ResultFactory<? extends T> factory, Function<DataObject, DataList.Fetch> atLast) {
-		DataObject lastRow = atLast != null ? new DataObject() : null;
+		DataObject lastRow = atLast != null || keyset != null ? new DataObject() : null;
 		return execute(dbaccess -> {
 			DataList<T> result = getResult(rs -> {
 				DataList<T> list = new DataList<>();
-				ResultFactory<? extends T> resultSupplier = ifEmpty(factory, this::resultSupplier);
+				ResultFactory<? extends T> resultSupplier = factory != null ? factory : this.<T>resultSupplier();
+				int read = 0;
+				boolean more = false;
 				while (rs != null && rs.next()) {
+					if (more = beyondFetch(++read)) break;
+
 					T t = resultSupplier.create(rs);
+					setLastRow(rs, lastRow);
 					if (isEmpty(t)) continue;
 
 					restore(rs, t);
-					list.add(t);
-					setLastRow(rs, lastRow);
+					list.append(t);
 				}
+				if (keyset != null)
+					setKeyset(list, more, lastRow::get);
 				log().debug(() -> list.size() + " row(s) SELECTed");
 				return list;
 			});
 
-			if (result.isEmpty() || atLast == null)
-				return result;
-
-			DataList.Fetch fetch = atLast.apply(lastRow);
-			if (fetch != null)
-				fetch.set(result);
+			if (!result.isEmpty() && atLast != null) {
+				DataList.Fetch fetch = atLast.apply(lastRow);
+				if (fetch != null)
+					fetch.set(result);
+			}
+			loadAssociations(result, associations, true);
 			return result;
 		});
 	}
@@ -352,6 +925,59 @@ public class Query extends DBAction {
 		return getObjects((ResultFactory<? extends T>)null);
 	}
 
+	/**Executes the statement and returns a list of immutable objects projected from the rows of the result.
+	 * <p>Each row is passed to a constructor of the type, which is
+	 * <ul><li>the canonical constructor if the type is a record</li>
+	 * 	   <li>a constructor annotated with {@link java.beans.ConstructorProperties}</li>
+	 * 	   <li>the only public constructor if the parameter names are compiled in with the '-parameters' option</li>
+	 * </ul>
+	 * The columns are matched to the constructor's parameters by name, case-insensitive and with the underscores ignored.<br />
+	 * That is, the CUST_ID column is passed to the 'custId' parameter.<br />
+	 * The parameters with no matching columns get null or the primitive defaults.
+	 * </p>
+	 * <p>Unlike {@link #getObjects(ResultFactory)}, the type needs no {@code <orm../>} instruction.<br />
+	 * The mapping from the columns to the parameters is resolved once for the type and the column layout of the result, and cached.
+	 * <pre><code> public record CustomerView(String custId, String custName, long credit) {}
+	 *
+	 * List&lt;CustomerView> customers = dbaccess.query()
+	 *     .sql("SELECT CUST_ID, CUST_NAME, CREDIT FROM CUSTOMER")
+	 *     .getObjects(CustomerView.class);
+	 * </code></pre>
+	 * </p>
+	 * @param <R>	type of the returned objects
+	 * @param type	type of the returned objects
+	 * @return list of objects projected from the result
+	 */
+	public <R> DataList<R> getObjects(Class<R> type) {
+		notEmpty(type, "type");
+		DataObject lastRow = keyset != null ? new DataObject() : null;
+		DataList<R> result = getResult(rs -> {
+			DataList<R> list = new DataList<>();
+			if (rs == null) return list;
+
+			Projection<R> projection = Projection.get(type, rs.getMetaData());
+			int read = 0;
+			boolean more = false;
+			while (rs.next()) {
+				if (more = beyondFetch(++read)) break;
+
+				try {
+					list.append(projection.create(rs));
+				} catch (Exception e) {
+					throw e;
+				} catch (Throwable e) {
+					throw runtimeException(e);
+				}
+				setLastRow(rs, lastRow);
+			}
+			if (keyset != null)
+				setKeyset(list, more, lastRow::get);
+			return list;
+		});
+		log().debug(() -> result.size() + " row(s) SELECTed");
+		return result;
+	}
+
 	/**Executes the statement and returns an object created from the result.
 	 * <p>The factory returns a new instance of the class depending on the values of the ResultSet's current row.<br />
 	 * The Query then sets the values to the instance.
@@ -411,10 +1037,262 @@ public class Query extends DBAction {
 			argMap = null;
 			sql(Orm.get(klass, dbaccess).getSelect());
 			argMap = tmp;
-			return getObject(resultSupplier(klass));
+			return getObject(this.<T>resultSupplier(klass));
+		});
+	}
+
+	/**Generates and executes SELECT statements with IN predicates for PK(primary key) columns and returns the objects of the keys.<br />
+	 * The objects are returned in the order of the keys. The keys with no matching rows are skipped.
+	 * <p>The keys are selected in chunks to have the statements within {@link Dialect#inListSize(int, int) the limits of the Dialect}.<br />
+	 * The number of keys in a statement is rounded up to a power of two, repeating the last key, so that a few statements serve any number of keys.
+	 * </p>
+	 * <p>For a class with a PK column, a key is the value of the column.<br />
+	 * For a class with multiple PK columns, a key is
+	 * <ul><li>an array or a List of the values in the order of the PK columns</li>
+	 * 	   <li>a Map of the PK properties to their values</li>
+	 * </ul>
+	 * The key values are {@link Orm#convert(String, Object) converted} to the types of the PK properties.
+	 * If a value cannot be converted, an IllegalArgumentException is thrown.
+	 * <pre><code> List&lt;Customer> customers = dbaccess.query()
+	 *     .getObjects(Customer.class, List.of("00001", "00002", "00003"));
+	 * </code></pre>
+	 * </p>
+	 * @param <T> class of the returned objects. Must be specified with an {@code <orm../>} instruction in an sqlsheet.
+	 * @param klass	class of the returned objects
+	 * @param keys	keys of the objects
+	 * @return objects of the keys
+	 */
+	public <T> List<T> getObjects(Class<T> klass, Collection<?> keys) {
+		return new ArrayList<>(mapObjects(klass, keys).values());
+	}
+
+	/**Generates and executes SELECT statements with IN predicates for PK(primary key) columns and returns the objects mapped to their keys.<br />
+	 * The map iterates in the order of the keys. The keys with no matching rows are not mapped.<br />
+	 * For the statements and the keys, see {@link #getObjects(Class, Collection)}.
+	 * @param <K> type of the keys
+	 * @param <T> class of the returned objects. Must be specified with an {@code <orm../>} instruction in an sqlsheet.
+	 * @param klass	class of the returned objects
+	 * @param keys	keys of the objects
+	 * @return objects mapped to their keys
+	 */
+	public <K, T> Map<K, T> mapObjects(Class<T> klass, Collection<K> keys) {
+		if (isEmpty(keys)) return Collections.emptyMap();
+
+		Map<String, Object> tmp = argMap;
+		return execute(db -> {
+			Orm orm = Orm.get(klass, dbaccess);
+			List<String> properties = orm.getKeyProperties();
+			if (properties.isEmpty())
+				throw new RuntimeException("No key columns found for " + klass.getName());
+
+			LinkedHashMap<Object, K> byKey = new LinkedHashMap<>();
+			HashMap<Object, Object[]> byId = new HashMap<>();
+			for (K key: keys) {
+				if (key == null) continue;
+
+				Object[] values = convert(orm, properties, keyValues(key, properties));
+				Object id = keyOf(values);
+				if (byKey.putIfAbsent(id, key) == null)
+					byId.put(id, values);
+			}
+
+			ArrayList<Object> ids = new ArrayList<>(byKey.keySet());
+			Dialect dialect = dbaccess.getDialect();
+			int chunk = dialect.inListSize(Math.max(1, dbaccess.getBatchSize()), properties.size());
+			HashMap<Object, T> found = new HashMap<>();
+			EXProcessor exproc = expr();
+
+			for (int start = 0, size = ids.size(); start < size; start += chunk) {
+				List<Object> sub = ids.subList(start, Math.min(size, start + chunk));
+				int rows = bucket(sub.size(), chunk);
+
+				argMap = null;
+				sql(orm.getSelect(rows, dialect));
+				argMap = tmp != null ? new HashMap<>(tmp) : null;
+				for (int i = 0; i < rows; ++i)
+					param(orm.objRef(i), params(properties, byId.get(sub.get(Math.min(i, sub.size() - 1)))));
+
+				for (T obj: getObjects(this.<T>resultSupplier(klass))) {
+					Object[] values = new Object[properties.size()];
+					for (int i = 0; i < values.length; ++i)
+						values[i] = orm.getValue(obj, properties.get(i), exproc);
+					found.put(keyOf(values), obj);
+				}
+			}
+			argMap = tmp;
+
+			LinkedHashMap<K, T> result = new LinkedHashMap<>();
+			byKey.forEach((id, key) -> {
+				T obj = found.get(id);
+				if (obj != null)
+					result.put(key, obj);
+			});
+			return result;
 		});
 	}
 
+	/**Loads the associated objects of the objs and sets them to the objs.<br />
+	 * For the associations, see {@link #fetch(String...)}.
+	 * The associations declared with fetch="eager" are not loaded unless named.
+	 * @param objs			objects whose classes are specified with &lt;orm../>s
+	 * @param associations	names or paths of the associations
+	 */
+	public void loadAssociations(Collection<?> objs, String... associations) {
+		if (isEmpty(objs) || isEmpty(associations)) return;
+
+		execute(db -> {
+			loadAssociations(objs, Arrays.asList(associations), false);
+			return null;
+		});
+	}
+
+	private void loadAssociations(Collection<?> objs, List<String> paths, boolean eager) throws Exception {
+		if (isEmpty(objs)) return;
+		if (paths == null)
+			paths = Collections.emptyList();
+
+		LinkedHashMap<Class<?>, List<Object>> byClass = new LinkedHashMap<>();
+		for (Object obj: objs)
+			if (obj != null)
+				byClass.computeIfAbsent(obj.getClass(), key -> new ArrayList<>()).add(obj);
+
+		HashSet<String> loaded = new HashSet<>();
+		for (Map.Entry<Class<?>, List<Object>> entry: byClass.entrySet()) {
+			Orm orm = Orm.find(entry.getKey());
+			if (orm == null) continue;
+			orm = Orm.get(entry.getKey(), dbaccess);
+
+			for (Orm.Association association: orm.getAssociations()) {
+				String name = association.getProperty(),
+					   prefix = name + ".";
+				List<String> nested = paths.stream()
+					.filter(path -> path.startsWith(prefix))
+					.map(path -> path.substring(prefix.length()))
+					.collect(Collectors.toList());
+				if (paths.contains(name) || !nested.isEmpty()) {
+					loaded.add(name);
+				} else if (!eager || !association.isEager() || eagerPath != null && eagerPath.contains(pathOf(orm, association)))
+					continue;
+
+				loadAssociation(orm, association, entry.getValue(), nested);
+			}
+		}
+
+		for (String path: paths) {
+			int dot = path.indexOf('.');
+			if (!loaded.contains(dot < 0 ? path : path.substring(0, dot)))
+				throw new RuntimeException("No association found: " + path);
+		}
+	}
+
+	private void loadAssociation(Orm orm, Orm.Association association, List<Object> objs, List<String> nested) throws Exception {
+		Orm target = association.getOrm(dbaccess);
+		List<String> keys = association.getKeys(orm),
+					 references = association.getReferences(target);
+		if (isEmpty(keys) || isEmpty(references) || keys.size() != references.size())
+			throw new RuntimeException("Unmatched keys and references of " + association);
+
+		EXProcessor exproc = expr();
+		ArrayList<Object> ids = new ArrayList<>(objs.size());
+		LinkedHashMap<Object, Object[]> byId = new LinkedHashMap<>();
+		for (Object obj: objs) {
+			Object[] values = new Object[keys.size()];
+			boolean complete = true;
+			for (int i = 0; i < values.length; ++i)
+				complete = (values[i] = target.convert(references.get(i), orm.getValue(obj, keys.get(i), exproc))) != null && complete;
+			Object id = complete ? keyOf(values) : null;
+			ids.add(id);
+			if (id != null)
+				byId.putIfAbsent(id, values);
+		}
+
+		HashMap<Object, List<Object>> found = new HashMap<>();
+		if (!byId.isEmpty()) {
+			List<Object[]> args = new ArrayList<>(byId.values());
+			Dialect dialect = dbaccess.getDialect();
+			int chunk = dialect.inListSize(Math.max(1, dbaccess.getBatchSize()), references.size());
+			ResultFactory<?> factory = resultSupplier(target.getType());
+			Query query = new Query(dbaccess);
+			query.eagerPath = eagerPath != null ? new HashSet<>(eagerPath) : new HashSet<>();
+			query.eagerPath.add(pathOf(orm, association));
+			try {
+				for (int start = 0, size = args.size(); start < size; start += chunk) {
+					List<Object[]> sub = args.subList(start, Math.min(size, start + chunk));
+					int rows = bucket(sub.size(), chunk);
+
+					query.sql(target.getSelect(references, rows, dialect));
+					for (int i = 0; i < rows; ++i)
+						query.param(target.objRef(i), params(references, sub.get(Math.min(i, sub.size() - 1))));
+					for (Object obj: query.fetch(nested.toArray(new String[nested.size()])).getObjects(factory)) {
+						Object[] values = new Object[references.size()];
+						for (int i = 0; i < values.length; ++i)
+							values[i] = target.getValue(obj, references.get(i), exproc);
+						found.computeIfAbsent(keyOf(values), key -> new ArrayList<>()).add(obj);
+					}
+				}
+			} finally {
+				query.close();
+			}
+		}
+
+		String property = association.getProperty();
+		for (int i = 0; i < objs.size(); ++i) {
+			Object id = ids.get(i);
+			List<Object> matched = id != null ? found.getOrDefault(id, Collections.emptyList()) : Collections.emptyList();
+			Object value = association.isMany() ? new ArrayList<>(matched) : matched.isEmpty() ? null : matched.get(0);
+			orm.setValue(objs.get(i), property, value, exproc);
+		}
+		log().debug(() -> found.size() + " " + property + " key(s) matched for " + objs.size() + " object(s)");
+	}
+
+	private static String pathOf(Orm orm, Orm.Association association) {
+		return orm.getType().getName() + "." + association.getProperty();
+	}
+
+	private static int bucket(int size, int max) {
+		int rows = 1;
+		while (rows < size && rows < max)
+			rows <<= 1;
+		return Math.min(rows, max);
+	}
+
+	private static Object[] keyValues(Object key, List<String> properties) {
+		if (properties.size() < 2)
+			return new Object[] {key};
+		if (key instanceof Object[])
+			return (Object[])key;
+		if (key instanceof List)
+			return ((List<?>)key).toArray();
+		if (key instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>)key;
+			return properties.stream().map(map::get).toArray();
+		}
+		throw new IllegalArgumentException("Invalid key for " + properties + ": " + key);
+	}
+
+	private static Object[] convert(Orm orm, List<String> properties, Object[] values) {
+		Object[] converted = new Object[properties.size()];
+		for (int i = 0; i < converted.length; ++i)
+			converted[i] = orm.convert(properties.get(i), i < values.length ? values[i] : null);
+		return converted;
+	}
+
+	private static Map<String, Object> params(List<String> properties, Object[] values) {
+		HashMap<String, Object> params = new HashMap<>();
+		for (int i = 0; i < properties.size(); ++i)
+			params.put(properties.get(i), i < values.length ? values[i] : null);
+		return params;
+	}
+
+	private static Object keyOf(Object[] values) {
+		ArrayList<Object> key = new ArrayList<>(values.length);
+		for (Object value: values)
+			key.add(value instanceof BigDecimal ? ((BigDecimal)value).stripTrailingZeros()
+				  : value instanceof Number ? new BigDecimal(value.toString()).stripTrailingZeros()
+				  : value);
+		return key;
+	}
+
 	/**Returns a list of objects created from the dataset.<br />
 	 * A new instance of each object is provided by the factory.
 	 * @param <T> class of the returned objects. Must be specified with an {@code <orm../>} instruction in an sqlsheet.
@@ -444,6 +1322,7 @@ public class Query extends DBAction {
 					throw runtimeException(e);
 				}
 			});
+			orm.snapshot(obj, exproc);
 
 			result.add(obj);
 		}
@@ -467,6 +1346,12 @@ public class Query extends DBAction {
 
 	@Override
 	public Query close() {
+		cache = null;
+		tables = null;
+		keyset = null;
+		associations = null;
+		seekFrom = null;
+		seekArgs = null;
 		super.close();
 		return this;
 	}
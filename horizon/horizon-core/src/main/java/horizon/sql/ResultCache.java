@@ -0,0 +1,301 @@
+/* Copyright (c) 2020 Emjay Khan. All rights reserved. */
+
+package horizon.sql;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import horizon.base.AbstractComponent;
+import horizon.data.DataObject;
+import horizon.data.Dataset;
+import horizon.util.LRUCache;
+
+/**Cache of query results that are invalidated when their tables are updated.
+ * <p>A Query caches its result when it is set with {@link Query#cache(Duration) a time-to-live}
+ * or its {@code <query../>} instruction has the 'cache' attribute.<br />
+ * The results are cached by the SQL statement and the arguments, and bounded by the number of entries and the total number of rows.
+ * </p>
+ * <p>A cached result is associated with the tables
+ * <ul><li>set with {@link Query#tables(String...)} or the 'tables' attribute of the {@code <query../>} instruction</li>
+ * 	   <li>or, if not set, found in the FROM and JOIN clauses of the statement</li>
+ * </ul>
+ * When an Update or a Batch executes a statement, the results associated with the target tables of the statement are removed,
+ * and removed again when the transaction of the statement completes.<br />
+ * If the target tables are unknown, like those of a stored procedure, all the results are removed.
+ * </p>
+ * <p>A ResultCache is shared by the DBAccesses that use the same database connection configuration or DataSource.
+ * Get one with {@link DBAccess#resultCache()}.
+ * </p>
+ */
+public class ResultCache extends AbstractComponent {
+	private static final Map<String, ResultCache> caches = new ConcurrentHashMap<>();
+	private static final String ANY = "*";
+	private static final Pattern
+		FROM = Pattern.compile("\\b(?:FROM|JOIN)\\s+([\\w.$`\"\\[\\]]+)", Pattern.CASE_INSENSITIVE),
+		TARGET = Pattern.compile("\\b(?:INSERT\\s+(?:IGNORE\\s+)?INTO|REPLACE\\s+INTO|MERGE\\s+INTO|UPDATE|DELETE\\s+FROM|TRUNCATE\\s+TABLE)\\s+([\\w.$`\"\\[\\]]+)", Pattern.CASE_INSENSITIVE);
+	private static final LRUCache<String, Set<String>>
+		sources = new LRUCache<>(256),
+		targets = new LRUCache<>(256);
+
+	static ResultCache get(String key) {
+		return caches.computeIfAbsent(String.valueOf(key), k -> new ResultCache());
+	}
+
+	static ResultCache find(String key) {
+		return key != null ? caches.get(key) : null;
+	}
+
+	private static String tableName(String name) {
+		String str = name.trim().replaceAll("[`\"\\[\\]]", "");
+		int pos = str.lastIndexOf('.');
+		return (pos < 0 ? str : str.substring(pos + 1)).toUpperCase();
+	}
+
+	private static Set<String> tables(String statement, Pattern pattern, LRUCache<String, Set<String>> memo) {
+		Set<String> tables = memo.get(statement);
+		if (tables == null) {
+			HashSet<String> found = new HashSet<>();
+			Matcher matcher = pattern.matcher(statement);
+			while (matcher.find()) {
+				String table = matcher.group(1);
+				if (!table.startsWith("("))
+					found.add(tableName(table));
+			}
+			memo.put(statement, tables = Collections.unmodifiableSet(found));
+		}
+		return tables;
+	}
+
+	/**Returns the tables found in the FROM and JOIN clauses of the query statement.
+	 * @param statement query statement
+	 * @return names of the tables in upper case
+	 */
+	static Set<String> sourcesOf(String statement) {
+		return tables(statement, FROM, sources);
+	}
+
+	/**Returns the target tables of the update statement.
+	 * @param statement update statement
+	 * @return names of the tables in upper case
+	 */
+	static Set<String> targetsOf(String statement) {
+		return tables(statement, TARGET, targets);
+	}
+
+	private int maxEntries = 1000;
+	private long maxRows = 100000;
+
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final HashMap<String, Set<Key>> byTable = new HashMap<>();
+	private final HashMap<String, Long> invalidated = new HashMap<>();
+	private long modCount;
+	private long rows;
+
+	private ResultCache() {}
+
+	/**Sets the maximum number of results to cache.<br />
+	 * The default is 1000.
+	 * @param maxEntries maximum number of results to cache
+	 * @return this ResultCache
+	 */
+	public synchronized ResultCache setMaxEntries(int maxEntries) {
+		if (maxEntries < 0)
+			throw new IllegalArgumentException("maxEntries < 0");
+		this.maxEntries = maxEntries;
+		evict();
+		return this;
+	}
+
+	/**Sets the maximum number of rows of all cached results.<br />
+	 * The default is 100,000.
+	 * @param maxRows maximum number of rows of all cached results
+	 * @return this ResultCache
+	 */
+	public synchronized ResultCache setMaxRows(long maxRows) {
+		if (maxRows < 0)
+			throw new IllegalArgumentException("maxRows < 0");
+		this.maxRows = maxRows;
+		evict();
+		return this;
+	}
+
+	/**Returns the number of cached results.
+	 * @return number of cached results
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	synchronized Dataset get(Key key) {
+		Entry entry = entries.get(key);
+		if (entry == null) return null;
+
+		if (entry.expires < System.nanoTime()) {
+			remove(key);
+			return null;
+		}
+		return copy(entry.dataset);
+	}
+
+	/**Returns a stamp to {@link #put(Key, Dataset, Duration, Set, long) put} a result with.
+	 * @return stamp
+	 */
+	synchronized long stamp() {
+		return modCount;
+	}
+
+	/**Caches the dataset unless the tables are updated since the stamp was taken.
+	 * @param key		key to the result
+	 * @param dataset	result
+	 * @param ttl		time-to-live
+	 * @param tables	tables of the result, with or without the schema and in any case. If empty, the result is removed on any update.
+	 * @param stamp		stamp taken before the query
+	 */
+	synchronized void put(Key key, Dataset dataset, Duration ttl, Set<String> tables, long stamp) {
+		if (maxEntries < 1 || dataset.size() > maxRows) return;
+
+		Set<String> keys = isEmpty(tables) ? Collections.singleton(ANY) : tables.stream().map(ResultCache::tableName).collect(Collectors.toSet());
+		if (modCount != stamp && invalidatedSince(keys, stamp)) return;
+
+		remove(key);
+		Entry entry = new Entry(copy(dataset), System.nanoTime() + ttl.toNanos(), keys);
+		entries.put(key, entry);
+		rows += entry.dataset.size();
+		for (String table: keys)
+			byTable.computeIfAbsent(table, k -> new HashSet<>()).add(key);
+		evict();
+	}
+
+	private boolean invalidatedSince(Set<String> tables, long stamp) {
+		if (tables.contains(ANY) || invalidated.getOrDefault(ANY, 0L) > stamp)
+			return true;
+		for (String table: tables)
+			if (invalidated.getOrDefault(table, 0L) > stamp)
+				return true;
+		return false;
+	}
+
+	/**Removes the results associated with the tables.
+	 * @param tables names of tables
+	 */
+	public synchronized void invalidate(String... tables) {
+		invalidate(isEmpty(tables) ? Collections.emptySet() : new HashSet<>(Arrays.asList(tables)));
+	}
+
+	synchronized void invalidate(Set<String> tables) {
+		if (isEmpty(tables)) {
+			clear();
+			return;
+		}
+
+		++modCount;
+		for (String table: tables) {
+			String name = tableName(table);
+			invalidated.put(name, modCount);
+			removeAll(byTable.get(name));
+		}
+		removeAll(byTable.get(ANY));
+	}
+
+	/**Removes all the cached results.
+	 */
+	public synchronized void clear() {
+		++modCount;
+		invalidated.clear();
+		invalidated.put(ANY, modCount);
+		entries.clear();
+		byTable.clear();
+		rows = 0;
+	}
+
+	private void removeAll(Set<Key> keys) {
+		if (keys == null) return;
+		for (Key key: keys.toArray(new Key[keys.size()]))
+			remove(key);
+	}
+
+	private void remove(Key key) {
+		Entry entry = entries.remove(key);
+		if (entry == null) return;
+
+		rows -= entry.dataset.size();
+		for (String table: entry.tables) {
+			Set<Key> keys = byTable.get(table);
+			if (keys == null) continue;
+
+			keys.remove(key);
+			if (keys.isEmpty())
+				byTable.remove(table);
+		}
+	}
+
+	private void evict() {
+		while ((entries.size() > maxEntries || rows > maxRows) && !entries.isEmpty())
+			remove(entries.keySet().iterator().next());
+	}
+
+	private static Dataset copy(Dataset dataset) {
+		Dataset copy = new Dataset();
+		for (DataObject row: dataset) {
+			DataObject obj = new DataObject().caseSensitiveKey(true);
+			obj.putAll(row);
+			copy.append(obj.caseSensitiveKey(false));
+		}
+		return copy.init();
+	}
+
+	static class Key {
+		private final String statement;
+		private final List<Object> args;
+		private final Object naming;
+		private final int hash;
+
+		Key(String statement, Object[] args, Object naming) {
+			this.statement = statement;
+			this.args = args != null ? Arrays.asList(args) : Collections.emptyList();
+			this.naming = naming;
+			hash = Objects.hash(statement, this.args, naming);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof Key)) return false;
+
+			Key other = (Key)obj;
+			return hash == other.hash
+				&& statement.equals(other.statement)
+				&& args.equals(other.args)
+				&& naming == other.naming;
+		}
+	}
+
+	private static class Entry {
+		private final Dataset dataset;
+		private final long expires;
+		private final Set<String> tables;
+
+		Entry(Dataset dataset, long expires, Set<String> tables) {
+			this.dataset = dataset;
+			this.expires = expires;
+			this.tables = tables;
+		}
+	}
+}
\ No newline at end of file
@@ -5,9 +5,8 @@ package horizon.sql;
 import java.sql.ResultSet;
 import java.sql.Statement;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 import horizon.base.AbstractComponent;
 import horizon.data.Dataset;
@@ -27,41 +26,32 @@ class ResultParser extends AbstractComponent {
 	}
 
 	List<Dataset> getDatasets() throws Exception {
-		return getResults().stream()
-			.filter(obj -> obj instanceof Dataset)
-			.map(Dataset.class::cast)
-			.collect(Collectors.toList());
-/*
-		for (Object obj: results)
-			if (!(obj instanceof Dataset))
-				results.remove(obj);
-
 		ArrayList<Dataset> datasets = new ArrayList<>();
-		for (Object obj: results)
-			datasets.add((Dataset)obj);
+		forEach(cursor -> datasets.add(cursor.toDataset()));
 		return datasets;
-*/
 	}
 
-	private List<Object> getResults() throws Exception {
+	int forEach(Consumer<? super Cursor> visitor) throws Exception {
 		if (stmt == null)
-			return Collections.emptyList();
-
-		boolean more = true;
-		ArrayList<Object> results = new ArrayList<Object>();
-		while (more) {
-			int update = stmt.getUpdateCount();
-			if (update != -1)
-				results.add(Integer.valueOf(update));
-			else {
-				ResultSet resultset = stmt.getResultSet();
-				results.add(builder.getDataset(resultset));
-				resultset.close();
+			return 0;
+
+		int index = 0;
+		try {
+			while (true) {
+				if (stmt.getUpdateCount() == -1) {
+					ResultSet resultset = stmt.getResultSet();
+					if (resultset == null) break;
+
+					try (resultset) {
+						visitor.accept(new Cursor(index++, resultset, builder));
+					}
+				}
+				stmt.getMoreResults();
 			}
-			more = update != -1 || stmt.getMoreResults();
+			return index;
+		} finally {
+			clear();
 		}
-		clear();
-		return results;
 	}
 
 	void clear() {
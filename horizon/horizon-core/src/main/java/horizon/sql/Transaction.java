@@ -3,6 +3,9 @@
 package horizon.sql;
 
 import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.function.Consumer;
 
 import javax.transaction.Status;
 import javax.transaction.TransactionManager;
@@ -121,9 +124,21 @@ public abstract class Transaction extends AbstractComponent {
 		return tx;
 	}
 
+	/**Returns whether a transaction is in progress in the current thread.
+	 * @return
+	 * <ul><li>true if a transaction is in progress</li>
+	 * 	   <li>false otherwise</li>
+	 * </ul>
+	 */
+	static boolean inProgress() {
+		Transaction tx = getTransaction();
+		return tx != null && tx.busy;
+	}
+
 	/**Status of the transaction
 	 */
 	protected boolean busy;
+	private LinkedHashMap<Object, Consumer<Boolean>> completions;
 
 	/**Creates a new Transaction.
 	 */
@@ -139,6 +154,33 @@ public abstract class Transaction extends AbstractComponent {
 		this.busy = busy;
 	}
 
+	/**Registers the task to perform when the transaction completes.<br />
+	 * The task is performed once for the key, after the transaction is committed or rolled back.
+	 * It is discarded if the Transaction is released without completion.
+	 * @param key	key of the task. A task registered with the same key is ignored.
+	 * @param task	task called with true if the transaction is committed, false if rolled back
+	 */
+	void onCompletion(Object key, Consumer<Boolean> task) {
+		if (!busy) return;
+
+		if (completions == null)
+			completions = new LinkedHashMap<>();
+		completions.putIfAbsent(key, task);
+	}
+
+	private void complete(boolean committed) {
+		if (completions == null) return;
+
+		ArrayList<Consumer<Boolean>> tasks = new ArrayList<>(completions.values());
+		completions = null;
+		for (Consumer<Boolean> task: tasks)
+			try {
+				task.accept(committed);
+			} catch (Exception e) {
+				log().warn(() -> "Failed to complete the transaction: " + rootCause(e).getMessage());
+			}
+	}
+
 	/**Begins a transaction.
 	 * @return
 	 * <ul><li>true if the call to the method begins a transaction</li>
@@ -184,9 +226,11 @@ public abstract class Transaction extends AbstractComponent {
 	public void commit() {
 		if (!busy) return;
 
+		boolean committed = false;
 		try {
 			if (isCommittable()) {
 				doCommit();
+				committed = true;
 				log().debug(() -> "---------- " + getClass().getSimpleName() + " committed ----------");
 			} else
 				rollback();
@@ -195,6 +239,8 @@ public abstract class Transaction extends AbstractComponent {
 		} finally {
 			setBusy(false);
 		}
+		if (committed)
+			complete(true);
 	}
 
 	/**Performs subclass-specific work to commit the transaction.
@@ -214,6 +260,7 @@ public abstract class Transaction extends AbstractComponent {
 			throw runtimeException(e);
 		} finally {
 			setBusy(false);
+			complete(false);
 		}
 	}
 
@@ -236,6 +283,7 @@ public abstract class Transaction extends AbstractComponent {
 		else {
 			DBAccess.resources().remove("transaction");
 			int status = tx.getStatus();
+			tx.completions = null;
 			tx.clear();
 			Class<?> klass = tx.getClass();
 			Log.get(klass).trace(() -> klass.getSimpleName() + " released");
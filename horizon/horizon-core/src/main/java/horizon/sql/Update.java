@@ -2,14 +2,23 @@
 
 package horizon.sql;
 
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import horizon.data.DataObject;
 import horizon.sql.DBAccess.TryReturn;
+import horizon.sql.support.Dialect;
+import horizon.sql.support.IdGenerator;
 import horizon.sql.support.Instruction;
 import horizon.sql.support.Orm;
+import horizon.sql.support.SQLBuilder;
 import horizon.sql.support.SQLProc;
 
 /**Executes update statements and returns the number of affected rows.
@@ -30,10 +39,11 @@ import horizon.sql.support.SQLProc;
  * </ul>
  * </p>
  *
- * <p>An Update can also {@link #create(Iterable) create}, {@link #update(Iterable) update}, and/or {@link #delete(Iterable) delete} objects
+ * <p>An Update can also {@link #create(Iterable) create}, {@link #update(Iterable) update}, {@link #upsert(Iterable) upsert}, and/or {@link #delete(Iterable) delete} objects
  * so that the corresponding information is INSERTed, UPDATEd, and/or DELETEd in the database.<br />
  * For this to work, the classes of the objects must be specified with an {@code <orm../>} instruction in an sqlsheet.<br />
- * The required SQL statements are generated from the {@code <orm../>} instruction.
+ * The required SQL statements are generated from the {@code <orm../>} instruction.<br />
+ * Consecutive objects of the same class are sent in batches of up to {@link DBAccess#setBatchSize(int) the DBAccess' batch size}.
  * </p>
  *
  * <p>An Update controls the database connection and transaction automatically while executing statements.
@@ -112,10 +122,11 @@ public class Update extends DBAction {
 		dbaccess.sqlBuilder().postprocess(sqlId, argMap);
 	}
 
-	private int doExecute(boolean autoInc) throws Exception {
+	private int doExecute(String[] keys) throws Exception {
 		if (isEmpty(working)) return 0;
 
-		execute(autoInc);
+		execute(keys);
+		invalidateResults();
 		return pstmt.getUpdateCount();
 	}
 
@@ -125,7 +136,7 @@ public class Update extends DBAction {
 	public int execute() {
 		return execute((dbaccess) -> {
 			boolean more = preprocess();
-			int affected = doExecute(false);
+			int affected = doExecute(null);
 			if (more)
 				postprocess();
 			log().debug(() -> affected + " row(s) affected");
@@ -161,9 +172,19 @@ public class Update extends DBAction {
 	 * @return generated keys
 	 */
 	public DataObject autoIncKeys() {
+		return autoIncKeys(new String[0]);
+	}
+
+	/**Executes the statement and returns the generated values of the named columns.<br />
+	 * The statement must be an INSERT statement and the target table must have auto-incremented columns.<br />
+	 * Use this method for the JDBC drivers that need the names of the auto-incremented columns to return their generated values.
+	 * @param columns names of the auto-incremented columns. If empty, the JDBC driver determines the columns.
+	 * @return generated keys
+	 */
+	public DataObject autoIncKeys(String... columns) {
 		return execute((dbaccess) -> {
 			boolean more = preprocess();
-			int affected = doExecute(true);
+			int affected = doExecute(columns != null ? columns : new String[0]);
 			resultset = pstmt.getGeneratedKeys();
 
 			DataObject keys = resultset != null && resultset.next() ?
@@ -210,12 +231,21 @@ public class Update extends DBAction {
 	 * and returns the number of affected rows.<br />
 	 * If the target table of an object has auto-incremented columns,
 	 * the auto-incremented values are set to the corresponding properties of the object.<br />
+	 * If the &lt;orm../> instruction has &lt;generator../>s, generated IDs are set to the properties that are null.<br />
 	 * The classes of objs must be specified with an &lt;orm../> instruction in an sqlsheet.
+	 * <p>Consecutive objects of the same class are inserted in batches of up to {@link DBAccess#getBatchSize() the DBAccess' batch size}.<br />
+	 * If {@link DBAccess#setInsertRows(int) the DBAccess is set} and the database supports multi-row INSERT statements,
+	 * they are inserted with {@code INSERT ... VALUES (...), (...)} statements instead.<br />
+	 * The beforeInsert instructions are processed for each object before it is added to a batch.
+	 * The objects are inserted one by one, however,
+	 * if the beforeInsert instructions execute SQL statements
+	 * or the table has auto-incremented columns and {@link horizon.sql.support.Dialect#supportsBatchKeys() the JDBC driver does not return the generated keys of a batch}.
+	 * </p>
 	 * @param objs objects to save
 	 * @return number of affected rows
 	 */
 	public int create(Iterable<?> objs) {
-		return isEmpty(objs) ? 0 : save(objs, this::create);
+		return isEmpty(objs) ? 0 : save(objs, INSERT);
 	}
 
 	/**Executes UPDATE statements for objs to update information in the database
@@ -231,11 +261,53 @@ public class Update extends DBAction {
 	/**Executes UPDATE statements for objs to update information in the database
 	 * and returns the number of affected rows.<br />
 	 * The classes of objs must be specified with an &lt;orm../> instruction in an sqlsheet.
+	 * <p>If the &lt;orm../> instruction has the attribute of track="true",
+	 * the objects that a Query loaded or an Update saved are compared with their snapshots.
+	 * The UPDATE statement sets the columns of the changed properties only,
+	 * and the objects with no changes are not updated at all, nor are their beforeUpdate instructions processed.<br />
+	 * The snapshots of the saved objects are renewed when the transaction is committed.
+	 * </p>
+	 * <p>Consecutive objects of the same class are updated in batches of up to {@link DBAccess#getBatchSize() the DBAccess' batch size}.<br />
+	 * The beforeUpdate instructions are processed for each object before it is added to a batch.
+	 * If the instructions execute SQL statements, the objects are updated one by one.
+	 * </p>
 	 * @param objs objects to save
 	 * @return number of affected rows
 	 */
 	public int update(Iterable<?> objs) {
-		return isEmpty(objs) ? 0 : save(objs, this::update);
+		return isEmpty(objs) ? 0 : save(objs, UPDATE);
+	}
+
+	/**Executes statements for objs to insert information to the database, or update it if it exists,
+	 * and returns the number of affected rows.<br />
+	 * The classes of objs must be specified with an &lt;orm../> instruction in an sqlsheet.
+	 * @param objs objects to save
+	 * @return number of affected rows
+	 * @see #upsert(Iterable)
+	 */
+	public int upsert(Object... objs) {
+		return isEmpty(objs) ? 0 : upsert(listOf(objs));
+	}
+
+	/**Executes statements for objs to insert information to the database, or update it if it exists,
+	 * and returns the number of affected rows.<br />
+	 * The classes of objs must be specified with an &lt;orm../> instruction in an sqlsheet.
+	 * <p>The statements are generated in the syntax of {@link DBAccess#getDialect() the database's Dialect},
+	 * like {@code MERGE}, {@code INSERT ... ON DUPLICATE KEY UPDATE}, or {@code INSERT ... ON CONFLICT},
+	 * and decide whether to insert or update by the key columns of the table.
+	 * The objects, therefore, must have the key values, which are set by the &lt;generator../>s if null.<br />
+	 * Consecutive objects of the same class are sent in batches of up to {@link DBAccess#getBatchSize() the DBAccess' batch size}.<br />
+	 * If the Dialect does not support upsert statements, each object is UPDATEd, and INSERTed if no row is updated.
+	 * </p>
+	 * <p>The beforeUpsert instructions are processed for each object.
+	 * Note that the numbers of affected rows are as reported by the JDBC driver.
+	 * MySQL, for example, reports 2 for an updated row.
+	 * </p>
+	 * @param objs objects to save
+	 * @return number of affected rows
+	 */
+	public int upsert(Iterable<?> objs) {
+		return isEmpty(objs) ? 0 : save(objs, UPSERT);
 	}
 
 	/**Executes DELETE statements for objs to delete information from the database
@@ -251,64 +323,293 @@ public class Update extends DBAction {
 	/**Executes DELETE statements for objs to delete information from the database
 	 * and returns the number of affected rows.<br />
 	 * The classes of objs must be specified with an &lt;orm../> instruction in an sqlsheet.
+	 * <p>Consecutive objects of the same class are deleted in chunks of up to {@link DBAccess#getBatchSize() the DBAccess' batch size}.<br />
+	 * Each chunk is deleted with a statement that matches the keys of the objects with an IN predicate, like
+	 * <pre><code> DELETE FROM table WHERE key IN (?, ?, ?)
+	 * DELETE FROM table WHERE (key0, key1) IN ((?, ?), (?, ?))</code></pre>
+	 * The size of a chunk is limited further so that the statement does not exceed
+	 * {@link Dialect#inListSize(int, int) the limits of the Dialect} on parameters and values of an IN predicate.<br />
+	 * The beforeDelete instructions are processed for each object before it is added to a chunk.
+	 * If the instructions execute SQL statements, the objects are deleted one by one.
+	 * </p>
 	 * @param objs objects to save
 	 * @return number of affected rows
 	 */
 	public int delete(Iterable<?> objs) {
-		return isEmpty(objs) ? 0 : save(objs, this::delete);
+		return isEmpty(objs) ? 0 : save(objs, DELETE);
+	}
+
+	private static final int
+		INSERT = 0,
+		UPDATE = 1,
+		DELETE = 2,
+		UPSERT = 3;
+
+	private String statement(Orm orm, int op) {
+		switch (op) {
+		case INSERT: return orm.getInsert();
+		case UPDATE: return orm.getUpdate();
+		case UPSERT: return orm.getUpsert(dbaccess.getDialect());
+		default: return orm.getDelete();
+		}
+	}
+
+	private static List<Instruction> befores(Orm orm, int op) {
+		switch (op) {
+		case INSERT: return orm.getBeforeInserts();
+		case UPDATE: return orm.getBeforeUpdates();
+		case UPSERT: return orm.getBeforeUpserts();
+		default: return orm.getBeforeDeletes();
+		}
+	}
+
+	private boolean batchable(Orm orm, int op, int size) {
+		if (size < 2) return false;
+
+		for (Instruction instruction: befores(orm, op))
+			if (!instruction.getChildren().isEmpty() && !isChunkScoped(instruction))
+				return false;
+
+		return op != INSERT
+			|| orm.getAutoInc().isEmpty()
+			|| dbaccess.getDialect().supportsBatchKeys();
+	}
+
+	private static boolean isChunkScoped(Instruction instruction) {
+		Instruction.BeforeAfter beforeAfter = (Instruction.BeforeAfter)instruction;
+		return beforeAfter.isChunkScoped() && !beforeAfter.getTargetProperties().isEmpty();
+	}
+
+	private int rowsPerInsert(Orm orm) {
+		int rows = dbaccess.getInsertRows();
+		if (rows < 2) return 0;
+
+		Dialect dialect = dbaccess.getDialect();
+		return dialect.getMaxInsertRows() < 2 ? 0 : dialect.insertRows(rows, orm.getInsertColumnCount());
 	}
 
-	@FunctionalInterface
-	private interface Persist {
-		int exec(Object obj, Orm orm);
+	private int rowsPerDelete(Orm orm, int batchSize) {
+		int keys = orm.getKeyCount();
+		return keys < 1 || batchSize < 2 ? 0 : dbaccess.getDialect().inListSize(batchSize, keys);
 	}
 
-	private int save(Iterable<?> objs, Persist persist) {
+	private int save(Iterable<?> objs, int op) {
 		return execute(dbaccess -> {
-			int affected = 0;
+			HashMap<String, Object> args = argMap != null ? new HashMap<>(argMap) : new HashMap<>();
+			int batchSize = dbaccess.getBatchSize();
+			ArrayList<Object> pending = new ArrayList<>();
+			Orm current = null;
+			SQLBuilder.Befores instructions = null;
+			String statement = null;
+			boolean batch = false,
+					multiRow = false,
+					merge = op != UPSERT || dbaccess.getDialect().getUpsert() != Dialect.Upsert.NONE;
+			int size = batchSize,
+				affected = 0;
+
 			for (Object obj: objs) {
 				if (obj == null) continue;
 
 				Orm orm = Orm.get(obj.getClass(), dbaccess);
-				param(orm.objRef(), obj);
-
-				affected += persist.exec(obj, orm);
+				if (orm != current) {
+					affected += flush(current, statement, op, pending, args, multiRow);
+					int rows = op == INSERT ? rowsPerInsert(orm) : op == DELETE ? rowsPerDelete(orm, batchSize) : 0;
+					current = orm;
+					multiRow = rows > 1;
+					size = multiRow ? rows : batchSize;
+					batch = batchable(orm, op, size);
+					instructions = dbaccess.sqlBuilder().befores(befores(orm, op), orm.objRef(), args, size);
+				}
+
+				params(args).param(orm.objRef(), obj);
+				List<String> changes = op == UPDATE ? changes(orm, obj) : null;
+				if (op == INSERT || op == UPSERT)
+					generate(orm, obj);
+				else if (changes != null && changes.isEmpty())
+					continue;
+				affected += instructions.execute(obj);
+				if (changes != null && !orm.getBeforeUpdates().isEmpty())
+					changes = orm.getChanges(obj, expr());
+				if (!merge) {
+					affected += updateOrInsert(obj, orm, args);
+					continue;
+				}
+
+				String stmt = op == UPDATE ? orm.getUpdate(changes) : statement(orm, op);
+				if (stmt == null) continue;
+
+				if (batch) {
+					if (!stmt.equals(statement) || pending.size() >= size)
+						affected += flush(orm, statement, op, pending, args, multiRow);
+					statement = stmt;
+					pending.add(obj);
+				} else
+					affected += persist(obj, orm, stmt, op, args);
 			}
-			return affected;
+			return affected + flush(current, statement, op, pending, args, multiRow);
 		});
 	}
 
-	private int create(Object obj, Orm orm) {
-		int affected = process(orm.getBeforeInserts());
+	private List<String> changes(Orm orm, Object obj) {
+		if (!orm.isTracking()) return null;
+
+		List<String> changes = orm.getChanges(obj, expr());
+		if (changes != null && changes.isEmpty())
+			log().debug(() -> "No changes to UPDATE: " + obj);
+		return changes;
+	}
+
+	/*The snapshots are kept when the transaction is committed,
+	 *and discarded if it is rolled back, leaving the previous ones to compare with.
+	 */
+	private void track(Orm orm, int op, List<Object> objs) {
+		if (!orm.isTracking()) return;
+
+		IdentityHashMap<Object, Object[]> snapshots = new IdentityHashMap<>(objs.size());
+		for (Object obj: objs)
+			snapshots.put(obj, op == DELETE ? null : orm.takeSnapshot(obj, expr()));
+
+		Consumer<Boolean> task = committed -> {
+			if (!committed) return;
+
+			snapshots.forEach((obj, snapshot) -> {
+				if (snapshot == null)
+					orm.forget(obj);
+				else
+					orm.snapshot(obj, snapshot);
+			});
+		};
+		if (Transaction.inProgress())
+			dbaccess.transaction().onCompletion(new Object(), task);
+		else
+			task.accept(true);
+	}
+
+	private void generate(Orm orm, Object obj) {
+		List<IdGenerator> generators = orm.getGenerators();
+		if (generators.isEmpty()) return;
+
+		expr().setBean(orm.objRef(), obj);
+		for (IdGenerator generator: generators) {
+			String property = orm.objRef() + "." + generator.getProperty();
+			if (generator.isUnset(obj, expr().getValue(property)))
+				expr().setValue(property, generator.next(dbaccess));
+		}
+	}
 
+	private int persist(Object obj, Orm orm, String statement, int op, Map<String, Object> args) {
 		String objRef = orm.objRef();
-		List<Orm.Mapping> autoInc = orm.getAutoInc();
+		sql(statement).params(args).param(objRef, obj);
+
+		List<Orm.Mapping> autoInc = op == INSERT ? orm.getAutoInc() : Collections.emptyList();
+		int affected = 1;
 		if (autoInc.isEmpty())
-			affected += sql(orm.getInsert()).param(objRef, obj).execute();
-		else {
-			DataObject keys = sql(orm.getInsert()).param(objRef, obj).autoIncKeys();
-			List<Object> values = listOf(keys.values().toArray());
-			for (int i = 0; i < autoInc.size(); ++i) {
-				Orm.Mapping mapping = autoInc.get(i);
-				expr().setValue(
-					objRef + "." + mapping.getProperty(),
-					values.get(i)
-				);
-			}
-			++affected;
+			affected = execute();
+		else
+			setKeys(obj, objRef, autoInc, autoIncKeys(keyColumns(autoInc)));
+
+		track(orm, op, Collections.singletonList(obj));
+		return affected;
+	}
+
+	private int updateOrInsert(Object obj, Orm orm, Map<String, Object> args) {
+		String objRef = orm.objRef();
+		int affected = sql(orm.getUpdate()).params(args).param(objRef, obj).execute();
+		if (affected < 1)
+			affected = sql(orm.getInsert()).params(args).param(objRef, obj).execute();
+
+		track(orm, UPSERT, Collections.singletonList(obj));
+		return affected;
+	}
+
+	private int flush(Orm orm, String statement, int op, List<Object> objs, Map<String, Object> args, boolean multiRow) throws Exception {
+		if (objs.isEmpty()) return 0;
+		if (multiRow)
+			return executeRows(orm, op, objs, args);
+
+		String objRef = orm.objRef();
+		ArrayList<Map<String, Object>> paramMaps = new ArrayList<>(objs.size());
+		for (Object obj: objs) {
+			HashMap<String, Object> params = new HashMap<>(args);
+			params.put(objRef, obj);
+			paramMaps.add(params);
 		}
 
+		List<Orm.Mapping> autoInc = op == INSERT ? orm.getAutoInc() : Collections.emptyList();
+		sql(statement);
+		SQLProc sqlproc = dbaccess.sqlBuilder().build(statement, paramMaps);
+		setWorkingStatement(sqlproc.getStatement());
+
+		prepare(autoInc.isEmpty() ? null : keyColumns(autoInc));
+		for (List<Parameters.Entry> entries: sqlproc.getParamEntries()) {
+			parameters().setEntries(entries);
+			bind(false);
+			pstmt.addBatch();
+		}
+		int[] counts = pstmt.executeBatch();
+		invalidateResults();
+
+		if (!autoInc.isEmpty())
+			setKeys(objs, objRef, autoInc);
+		track(orm, op, objs);
+		objs.clear();
+
+		int affected = 0;
+		for (int count: counts)
+			affected += count > -1 ? count : count == Statement.SUCCESS_NO_INFO ? 1 : 0;
+
+		int total = affected;
+		log().debug(() -> total + " row(s) affected in a batch of " + counts.length);
 		return affected;
 	}
 
-	private int update(Object obj, Orm orm) {
-		return process(orm.getBeforeUpdates())
-			 + sql(orm.getUpdate()).param(orm.objRef(), obj).execute();
+	private int executeRows(Orm orm, int op, List<Object> objs, Map<String, Object> args) throws Exception {
+		int rows = objs.size();
+		sql(op == INSERT ? orm.getInsert(rows) : orm.getDelete(rows, dbaccess.getDialect())).params(args);
+		for (int i = 0; i < rows; ++i)
+			param(orm.objRef(i), objs.get(i));
+		preprocess();
+
+		List<Orm.Mapping> autoInc = op == INSERT ? orm.getAutoInc() : Collections.emptyList();
+		int affected = doExecute(autoInc.isEmpty() ? null : keyColumns(autoInc));
+		if (!autoInc.isEmpty())
+			setKeys(objs, orm.objRef(), autoInc);
+		track(orm, op, objs);
+		objs.clear();
+
+		log().debug(() -> affected + " row(s) affected");
+		return affected;
+	}
+
+	private String[] keyColumns(List<Orm.Mapping> autoInc) {
+		if (!dbaccess.getDialect().requiresNamedKeys())
+			return new String[0];
+
+		String[] columns = new String[autoInc.size()];
+		for (int i = 0; i < columns.length; ++i)
+			columns[i] = autoInc.get(i).getColumn();
+		return columns;
 	}
 
-	private int delete(Object obj, Orm orm) {
-		return process(orm.getBeforeDeletes())
-			 + sql(orm.getDelete()).param(orm.objRef(), obj).execute();
+	private void setKeys(List<Object> objs, String objRef, List<Orm.Mapping> autoInc) throws Exception {
+		resultset = pstmt.getGeneratedKeys();
+		for (Object obj: objs) {
+			if (resultset == null || !resultset.next()) break;
+			setKeys(obj, objRef, autoInc, datasetBuilder().getDataObject(resultset));
+		}
+		clearResult();
+	}
+
+	private void setKeys(Object obj, String objRef, List<Orm.Mapping> autoInc, DataObject keys) {
+		List<Object> values = listOf(keys.values().toArray());
+		expr().setBean(objRef, obj);
+		for (int i = 0; i < autoInc.size() && i < values.size(); ++i) {
+			Orm.Mapping mapping = autoInc.get(i);
+			expr().setValue(
+				objRef + "." + mapping.getProperty(),
+				values.get(i)
+			);
+		}
 	}
 
 	@Override
@@ -0,0 +1,544 @@
+/* Copyright (c) 2020 Emjay Khan. All rights reserved. */
+
+package horizon.sql;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import horizon.base.AbstractComponent;
+import horizon.data.Convert;
+
+/**Defers and coalesces updates that do not need synchronous commits, like counters or last-seen timestamps.
+ * <p>A WriteBehind takes the statements and their arguments and returns without accessing the database.
+ * A background thread executes the pending statements in batches and commits them in a transaction
+ * every {@link #interval(Duration) interval} or when the number of the pending statements reaches the {@link #flushSize(int) flush size}.
+ * </p>
+ * <p>The statements with the same SQL and key are coalesced into one before execution.
+ * <ul><li>With {@link #put(String, Object, Map)}, the latest arguments replace the pending ones.</li>
+ * 	   <li>With {@link #add(String, Object, Map, String...)}, the named arguments are added to the pending ones and the others are replaced.</li>
+ * </ul>
+ * <pre><code> WriteBehind writeBehind = new WriteBehind(dbaccess)
+ *     .journal(Paths.get("data/visits.journal"))
+ *     .interval(Duration.ofSeconds(5))
+ *     .start();
+ *
+ * writeBehind.put("UPDATE USER SET LAST_SEEN = #{lastSeen} WHERE USER_ID = #{userID}", userID,
+ *     Map.of("userID", userID, "lastSeen", new Date()));
+ * writeBehind.add("UPDATE PAGE SET VIEWS = VIEWS + #{views} WHERE PAGE_ID = #{pageID}", pageID,
+ *     Map.of("pageID", pageID, "views", 1), "views");
+ * ...
+ * writeBehind.close();</code></pre>
+ * </p>
+ * <p>If set with a {@link #journal(Path) journal}, the WriteBehind records the pending statements in a memory-mapped file
+ * before it returns, and recovers them from the file when it {@link #start() starts}.
+ * The records survive a crash of the process. To survive a crash of the system, {@link #sync(boolean) sync} the journal on every write.<br />
+ * The arguments must be Serializable to be recorded.
+ * </p>
+ * <p>The WriteBehind executes the statements in its own thread and transaction,
+ * which never join the transaction of the thread that adds or {@link #flush() flushes} them.
+ * The journal is rewritten only after the transaction is committed.
+ * </p>
+ * <p>A statement that fails does not fail the others, which are executed and committed.
+ * The statement is kept pending and retried on the next flush up to the number of {@link #retries(int) retries},
+ * and then dropped with a warning in the log.<br />
+ * If the execution fails as a whole, like when the database is not available, the statements are kept pending and retried on the next flush.<br />
+ * If the process crashes after the statements are committed but before the journal is rewritten,
+ * the statements are executed again on recovery. So prefer {@link #put(String, Object, Map)} for the statements that must not be repeated.<br />
+ * A WriteBehind is thread-safe.
+ * </p>
+ */
+public class WriteBehind extends AbstractComponent implements AutoCloseable {
+	private static final AtomicInteger seq = new AtomicInteger();
+
+	private final DBAccess dbaccess;
+	private final AtomicBoolean flushing = new AtomicBoolean();
+	private LinkedHashMap<List<Object>, Entry> pending = new LinkedHashMap<>();
+	private Duration interval = Duration.ofSeconds(1);
+	private int flushSize = 1000;
+	private int retries = 3;
+	private Path path;
+	private int journalSize = 16 * 1024 * 1024;
+	private boolean sync;
+
+	private ScheduledExecutorService scheduler;
+	private volatile Thread worker;
+	private FileChannel channel;
+	private MappedByteBuffer journal;
+	private int position;
+
+	/**Creates a new WriteBehind.
+	 * @param dbaccess DBAccess this WriteBehind executes the statements with
+	 */
+	public WriteBehind(DBAccess dbaccess) {
+		this.dbaccess = notEmpty(dbaccess, "dbaccess");
+	}
+
+	/**Sets the interval to execute the pending statements at.<br />
+	 * The default is 1 second.
+	 * @param interval interval to execute the pending statements at
+	 * @return this WriteBehind
+	 */
+	public WriteBehind interval(Duration interval) {
+		if (notEmpty(interval, "interval").isZero() || interval.isNegative())
+			throw new IllegalArgumentException("interval <= 0");
+		this.interval = interval;
+		return this;
+	}
+
+	/**Sets the number of pending statements to execute them at without waiting for the interval.<br />
+	 * The default is 1000.
+	 * @param size number of pending statements to execute them at
+	 * @return this WriteBehind
+	 */
+	public WriteBehind flushSize(int size) {
+		if (size < 1)
+			throw new IllegalArgumentException("size < 1");
+		this.flushSize = size;
+		return this;
+	}
+
+	/**Sets the number of times to retry a statement that fails before dropping it.<br />
+	 * The default is 3.
+	 * @param retries number of times to retry a statement that fails
+	 * @return this WriteBehind
+	 */
+	public WriteBehind retries(int retries) {
+		if (retries < 0)
+			throw new IllegalArgumentException("retries < 0");
+		this.retries = retries;
+		return this;
+	}
+
+	/**Sets the path of the journal file to record the pending statements in.<br />
+	 * If not set, the pending statements are kept in memory only.
+	 * @param path path of the journal file
+	 * @return this WriteBehind
+	 */
+	public WriteBehind journal(Path path) {
+		this.path = path;
+		return this;
+	}
+
+	/**Sets the size of the journal file in bytes.<br />
+	 * The default is 16MB. When the journal is full, the calling thread waits for the pending statements to be executed to make room.
+	 * @param bytes size of the journal file in bytes
+	 * @return this WriteBehind
+	 */
+	public WriteBehind journalSize(int bytes) {
+		if (bytes < 1024)
+			throw new IllegalArgumentException("bytes < 1024");
+		this.journalSize = bytes;
+		return this;
+	}
+
+	/**Sets whether to force the journal to the storage device on every write.<br />
+	 * The default is false, with which the journal survives a crash of the process but not of the system.
+	 * @param sync whether to force the journal to the storage device on every write
+	 * @return this WriteBehind
+	 */
+	public WriteBehind sync(boolean sync) {
+		this.sync = sync;
+		return this;
+	}
+
+	/**Starts the WriteBehind.<br />
+	 * If set with a journal, the statements recorded in the journal are recovered to be executed.
+	 * @return this WriteBehind
+	 */
+	public synchronized WriteBehind start() {
+		if (scheduler != null) return this;
+
+		try {
+			if (path != null)
+				recover();
+		} catch (Exception e) {
+			throw runtimeException(e);
+		}
+
+		int id = seq.incrementAndGet();
+		scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+			Thread thread = new Thread(task, "write-behind-" + id);
+			thread.setDaemon(true);
+			return worker = thread;
+		});
+		long millis = interval.toMillis();
+		scheduler.scheduleWithFixedDelay(this::flushQuietly, millis, millis, TimeUnit.MILLISECONDS);
+		log().debug(() -> getClass().getSimpleName() + " started");
+		return this;
+	}
+
+	/**Adds the statement with the arguments to execute later.<br />
+	 * If a statement with the same sql and key is pending, the arguments replace the pending ones.
+	 * @param sql		sql statement with named parameters
+	 * @param key		key that identifies the target of the statement, like the value of the primary key
+	 * @param params	arguments for the named parameters
+	 * @return this WriteBehind
+	 */
+	public WriteBehind put(String sql, Object key, Map<String, ?> params) {
+		return write(new Entry(sql, key, params, null));
+	}
+
+	/**Adds the statement with the arguments to execute later.<br />
+	 * If a statement with the same sql and key is pending,
+	 * the arguments named with sums are added to the pending ones and the others replace the pending ones.
+	 * @param sql		sql statement with named parameters
+	 * @param key		key that identifies the target of the statement, like the value of the primary key
+	 * @param params	arguments for the named parameters
+	 * @param sums		names of the parameters whose numeric arguments are added up
+	 * @return this WriteBehind
+	 */
+	public WriteBehind add(String sql, Object key, Map<String, ?> params, String... sums) {
+		return write(new Entry(sql, key, params, sums));
+	}
+
+	private WriteBehind write(Entry entry) {
+		byte[] bytes = path != null ? entry.toBytes() : null;
+		for (boolean flushed = false;; flushed = true) {
+			synchronized (this) {
+				if (scheduler == null)
+					throw new IllegalStateException(getClass().getSimpleName() + " not started");
+
+				if (bytes == null || fits(bytes)) {
+					if (bytes != null)
+						append(bytes);
+					merge(entry);
+					if (pending.size() < flushSize || !flushing.compareAndSet(false, true))
+						return this;
+					break;
+				}
+				if (flushed)
+					throw new IllegalStateException("Journal full: " + path);
+			}
+			flush();
+		}
+		scheduler.execute(() -> {
+			flushing.set(false);
+			flushQuietly();
+		});
+		return this;
+	}
+
+	private void merge(Entry entry) {
+		List<Object> key = entry.key();
+		Entry prev = pending.remove(key);
+		pending.put(key, prev != null ? prev.merge(entry) : entry);
+	}
+
+	/**Returns the number of pending statements.
+	 * @return number of pending statements
+	 */
+	public synchronized int size() {
+		return pending.size();
+	}
+
+	/**Executes the pending statements in a transaction and returns the number of affected rows.<br />
+	 * The calling thread waits for the WriteBehind's thread to execute the statements.
+	 * If the execution fails, the statements are kept pending.
+	 * @return number of affected rows
+	 */
+	public int flush() {
+		if (Thread.currentThread() == worker)
+			return doFlush();
+
+		ScheduledExecutorService scheduler;
+		synchronized (this) {
+			if (pending.isEmpty()) return 0;
+			if ((scheduler = this.scheduler) == null)
+				throw new IllegalStateException(getClass().getSimpleName() + " not started");
+		}
+		return await(scheduler.submit(this::doFlush));
+	}
+
+	private static int await(Future<Integer> result) {
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw runtimeException(e);
+		} catch (Exception e) {
+			throw runtimeException(e);
+		}
+	}
+
+	private int doFlush() {
+		LinkedHashMap<List<Object>, Entry> entries;
+		synchronized (this) {
+			if (pending.isEmpty()) return 0;
+			entries = pending;
+			pending = new LinkedHashMap<>();
+		}
+
+		try {
+			ArrayList<Entry> failed = new ArrayList<>();
+			int affected = execute(entries.values(), failed);
+			synchronized (this) {
+				LinkedHashMap<List<Object>, Entry> later = pending;
+				pending = new LinkedHashMap<>();
+				for (Entry entry: failed)
+					if (entry.attempts <= retries)
+						merge(entry);
+					else
+						log().warn(() -> "Dropped after " + entry.attempts + " attempt(s): " + entry);
+				later.values().forEach(this::merge);
+				if (journal != null)
+					compact();
+			}
+			log().debug(() -> affected + " row(s) affected by " + entries.size() + " pending statement(s), " + failed.size() + " failed");
+			return affected;
+		} catch (Throwable e) {
+			synchronized (this) {
+				LinkedHashMap<List<Object>, Entry> later = pending;
+				pending = entries;
+				later.values().forEach(this::merge);
+			}
+			throw runtimeException(e);
+		}
+	}
+
+	private void flushQuietly() {
+		try {
+			doFlush();
+		} catch (Throwable e) {
+			log().warn(() -> "Failed to execute the pending statements: " + rootCause(e));
+		}
+	}
+
+	/*Runs in the WriteBehind's thread, where no other transaction is in progress.
+	 *The Batch isolates the statements that fail with savepoints,
+	 *and the transaction commits the others.
+	 */
+	private int execute(Collection<Entry> entries, List<Entry> failed) throws Exception {
+		LinkedHashMap<String, ArrayList<Entry>> bySQL = new LinkedHashMap<>();
+		for (Entry entry: entries)
+			bySQL.computeIfAbsent(entry.sql, key -> new ArrayList<>()).add(entry);
+
+		boolean close = dbaccess.open();
+		Transaction tx = dbaccess.transaction();
+		boolean[] committed = {false};
+		Batch batch = new Batch(dbaccess);
+		try {
+			if (!tx.begin())
+				throw new IllegalStateException("A transaction is already in progress");
+			tx.onCompletion(this, done -> committed[0] = done);
+
+			long affected = 0;
+			int batchSize = dbaccess.getBatchSize();
+			for (Map.Entry<String, ArrayList<Entry>> entry: bySQL.entrySet()) {
+				List<Entry> group = entry.getValue();
+				batch.close().sql(entry.getKey());
+				group.forEach(e -> batch.params(e.params));
+
+				Batch.Result result = batch.executeInChunks(batchSize);
+				affected += result.getAffected();
+				for (Batch.Failure failure: result.getFailures()) {
+					Entry e = group.get(failure.getIndex());
+					++e.attempts;
+					log().debug(() -> "Failed to execute " + e + ": " + failure.getError().getMessage());
+					failed.add(e);
+				}
+			}
+			tx.commit();
+			if (!committed[0])
+				throw new IllegalStateException("The transaction is rolled back");
+			return (int)affected;
+		} catch (Throwable e) {
+			tx.rollback();
+			throw e;
+		} finally {
+			batch.close();
+			if (close)
+				dbaccess.close();
+		}
+	}
+
+	/**Stops the WriteBehind after executing the pending statements.<br />
+	 * If the execution fails, the statements are left in the journal to be recovered on the next start.
+	 */
+	@Override
+	public void close() {
+		ScheduledExecutorService scheduler;
+		synchronized (this) {
+			if ((scheduler = this.scheduler) == null) return;
+		}
+		Future<Integer> last = scheduler.submit(this::doFlush);
+		scheduler.shutdown();
+		try {
+			scheduler.awaitTermination(interval.toMillis() + 60000, TimeUnit.MILLISECONDS);
+			await(last);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			synchronized (this) {
+				this.scheduler = null;
+				closeJournal();
+			}
+			log().debug(() -> getClass().getSimpleName() + " closed");
+		}
+	}
+
+	private void recover() throws Exception {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		journal = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(journalSize, channel.size()));
+
+		int recovered = 0;
+		for (position = 0; position + Integer.BYTES <= journal.capacity();) {
+			int length = journal.getInt(position);
+			if (length < 1 || position + Integer.BYTES + length > journal.capacity()) break;
+
+			byte[] bytes = new byte[length];
+			ByteBuffer buffer = journal.duplicate();
+			buffer.position(position + Integer.BYTES);
+			buffer.get(bytes);
+			try {
+				merge(Entry.fromBytes(bytes));
+				++recovered;
+			} catch (Exception e) {
+				log().warn(() -> "Corrupt record at " + position + " in " + path + ": " + e);
+				break;
+			}
+			position += Integer.BYTES + length;
+		}
+		compact();
+
+		int count = recovered;
+		if (count > 0)
+			log().info(() -> count + " statement(s) recovered from " + path);
+	}
+
+	private boolean fits(byte[] bytes) {
+		return position + Integer.BYTES * 2 + bytes.length <= journal.capacity();
+	}
+
+	/**Appends the record to the journal.<br />
+	 * The length of the record is written last so that a record partially written is ignored on recovery.
+	 */
+	private void append(byte[] bytes) {
+		ByteBuffer buffer = journal.duplicate();
+		buffer.position(position + Integer.BYTES);
+		buffer.put(bytes);
+		int next = position + Integer.BYTES + bytes.length;
+		journal.putInt(next, 0);
+		journal.putInt(position, bytes.length);
+		position = next;
+		if (sync)
+			journal.force();
+	}
+
+	/**Rewrites the journal with the pending statements.
+	 */
+	private void compact() {
+		position = 0;
+		journal.putInt(0, 0);
+		for (Entry entry: pending.values())
+			append(entry.toBytes());
+		journal.force();
+	}
+
+	private void closeJournal() {
+		if (channel == null) return;
+
+		try {
+			journal.force();
+			channel.close();
+		} catch (Exception e) {
+			log().warn(() -> "Failed to close " + path + ": " + e);
+		} finally {
+			journal = null;
+			channel = null;
+		}
+	}
+
+	private static class Entry implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final String sql;
+		private final Object key;
+		private final HashMap<String, Object> params;
+		private final String[] sums;
+		private int attempts;
+
+		Entry(String sql, Object key, Map<String, ?> params, String[] sums) {
+			this.sql = notEmpty(sql, "sql");
+			this.key = key;
+			this.params = new HashMap<>(notEmpty(params, "params"));
+			this.sums = sums;
+		}
+
+		List<Object> key() {
+			return Arrays.asList(sql, key);
+		}
+
+		/**Returns an Entry that merges the later one into this.
+		 */
+		Entry merge(Entry later) {
+			if (isEmpty(later.sums)) return later;
+
+			HashMap<String, Object> params = new HashMap<>(later.params);
+			for (String name: later.sums)
+				params.put(name, add(this.params.get(name), later.params.get(name)));
+			Entry merged = new Entry(sql, key, params, later.sums);
+			merged.attempts = attempts;
+			return merged;
+		}
+
+		private static Object add(Object lv, Object rv) {
+			if (lv == null) return rv;
+			if (rv == null) return lv;
+
+			Number l = Convert.toNumber(lv),
+				   r = Convert.toNumber(rv);
+			if (l instanceof BigDecimal || r instanceof BigDecimal)
+				return new BigDecimal(l.toString()).add(new BigDecimal(r.toString()));
+			if (l instanceof Double || l instanceof Float || r instanceof Double || r instanceof Float)
+				return l.doubleValue() + r.doubleValue();
+			return l.longValue() + r.longValue();
+		}
+
+		byte[] toBytes() {
+			try (
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				ObjectOutputStream out = new ObjectOutputStream(bytes);
+			) {
+				out.writeObject(this);
+				out.flush();
+				return bytes.toByteArray();
+			} catch (Exception e) {
+				throw runtimeException(e);
+			}
+		}
+
+		static Entry fromBytes(byte[] bytes) throws Exception {
+			try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+				return (Entry)in.readObject();
+			}
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s{sql: \"%s\", key: %s, params: %s}", getClass().getSimpleName(), sql, key, params);
+		}
+	}
+}
\ No newline at end of file
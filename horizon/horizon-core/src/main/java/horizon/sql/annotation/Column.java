@@ -0,0 +1,37 @@
+/* Copyright (c) 2020 Emjay Khan. All rights reserved. */
+
+package horizon.sql.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**Maps a field, or the property of the field, of a {@link Table table class} to a column.<br />
+ * The property is read and written with the getter and setter of the field.
+ * @see horizon.sql.annotation
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.CLASS)
+public @interface Column {
+	/**Returns the name of the column.<br />
+	 * If empty, the name of the field in upper snake case is used. That is, "custName" is mapped to "CUST_NAME".
+	 * @return name of the column
+	 */
+	String value() default "";
+
+	/**Returns whether the column is part of the primary key.<br />
+	 * If any column of a class is declared to be part of the key,
+	 * the columns are not read from the database's meta data but taken from the declarations.
+	 * @return whether the column is part of the primary key
+	 */
+	boolean key() default false;
+
+	/**Returns whether the value of the column is auto-incremented.<br />
+	 * Effective only if the columns are taken from the declarations.
+	 * @return whether the value of the column is auto-incremented
+	 */
+	boolean autoIncrement() default false;
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+/* Copyright (c) 2020 Emjay Khan. All rights reserved. */
+
+package horizon.sql.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**Maps a class to a table, as an alternative to an {@code <orm../>} instruction in an sqlsheet.<br />
+ * The properties of the class are mapped to the columns with {@link Column}s.
+ * <pre><code> &#64;Table(value = "CUSTOMER", alias = "customer")
+ * public class Customer {
+ *     &#64;Column(value = "CUST_ID", key = true)
+ *     private String id;
+ *     &#64;Column("CUST_NAME")
+ *     private String name;
+ *     ...
+ * }</code></pre>
+ * @see horizon.sql.annotation
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.CLASS)
+public @interface Table {
+	/**Returns the name of the table.
+	 * @return name of the table
+	 */
+	String value();
+
+	/**Returns the alias of the class.
+	 * @return alias of the class
+	 */
+	String alias() default "";
+
+	/**Returns whether to track the changes of the objects to UPDATE the changed columns only.
+	 * @return whether to track the changes of the objects
+	 */
+	boolean track() default false;
+}
\ No newline at end of file
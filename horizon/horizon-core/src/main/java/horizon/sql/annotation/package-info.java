@@ -0,0 +1,29 @@
+/* Copyright (c) 2020 Emjay Khan. All rights reserved. */
+
+/**Provides annotations to map classes to tables at compile time, as an alternative to {@code <orm../>} instructions in sqlsheets.
+ * <p>With the horizon-processor on the annotation processor path, the compiler generates for each {@link horizon.sql.annotation.Table table class}
+ * <ul><li>an {@link horizon.sql.support.OrmDefinition} that defines the {@link horizon.sql.support.Orm}</li>
+ * 	   <li>an {@link horizon.sql.support.Accessor} that creates the objects and reads and writes their properties by the index of the mappings</li>
+ * </ul>
+ * The generated classes are named after the table class with the suffix 'Orm', like 'CustomerOrm' for 'Customer',
+ * and registered as services of the OrmDefinition.
+ * </p>
+ * <p>The Orms are defined on their first use, without parsing sqlsheets.<br />
+ * The objects are populated with query results and bound to statement parameters with the Accessors, not with expressions or reflection.<br />
+ * The instructions that need expressions, like &lt;beforeInsert../>, are not available to the table classes.
+ * </p>
+ * <pre><code> &lt;plugin>
+ *     &lt;groupId>org.apache.maven.plugins&lt;/groupId>
+ *     &lt;artifactId>maven-compiler-plugin&lt;/artifactId>
+ *     &lt;configuration>
+ *         &lt;annotationProcessorPaths>
+ *             &lt;path>
+ *                 &lt;groupId>horizon&lt;/groupId>
+ *                 &lt;artifactId>horizon-processor&lt;/artifactId>
+ *                 &lt;version>...&lt;/version>
+ *             &lt;/path>
+ *         &lt;/annotationProcessorPaths>
+ *     &lt;/configuration>
+ * &lt;/plugin></code></pre>
+ */
+package horizon.sql.annotation;
\ No newline at end of file
@@ -157,33 +157,72 @@
  * <pre><code> {@code <orm
  *     type="fully-qualified class name. Must be unique"
  *     alias="short name of the class for convenience, Optional. Must be unique"
- *     table="name of the database table where information of the objects is stored, Optional">
+ *     table="name of the database table where information of the objects is stored, Optional"
+ *     track="true to UPDATE only the changed columns of the objects, Optional. Default false">
  *
  *     <mapping property="name of the object's property" column="column name of the table"/>
  *     <mapping ../>
  *     ...
  *
  *     <!-- Following instructions are optional -->
+ *     <generator
+ *         property="name of the object's property the generated IDs are set to"
+ *         type="sequence | table | time"
+ *         name="name of the sequence for 'sequence', or of the row of the table for 'table'"
+ *         allocationSize="number of IDs reserved at a time. Default 50"
+ *         format="format of the IDs like %05d, Optional"/>
+ *
  *     <beforeInsert
  *         set="comma-separated names of (object's) target properties"
  *         properties="comma-separated names of parameters"/>
  *     <beforeInsert
  *         set="comma-separated names of (object's) target properties"
- *         columns="comma-separated names of query result columns">
+ *         columns="comma-separated names of query result columns"
+ *         scope="object | chunk, Optional. Default object">
  *         SQL instruction that performs query
  *     </beforeInsert>
  *
  *     <beforeUpdate../>
  *
  *     <beforeDelete../>
+ *
+ *     <beforeUpsert../>
+ *
+ *     <oneToMany
+ *         property="name of the object's property the associated objects are set to as a List"
+ *         type="fully-qualified class name or alias of the associated objects"
+ *         keys="comma-separated names of the object's properties, Optional. Default the key properties"
+ *         references="comma-separated names of the associated objects' properties"
+ *         fetch="lazy | eager, Optional. Default lazy"/>
+ *
+ *     <manyToOne
+ *         property="name of the object's property the associated object is set to"
+ *         type="fully-qualified class name or alias of the associated object"
+ *         keys="comma-separated names of the object's properties"
+ *         references="comma-separated names of the associated object's properties, Optional. Default the key properties"
+ *         fetch="lazy | eager, Optional. Default lazy"/>
  * </orm>}</code></pre>
  * <p>The attributes of the {@code <orm../>} and {@code <mapping../>} elements are straightforward and self-explanatory.<br />
  * Note that for the 'property' attribute of the {@code <mapping../>} element, provide a name of an object's property following the naming convention of JavaBean's property.
  * </p>
+ * <p>With track="true", the snapshots of the objects a Query loads or an Update saves are kept without holding the objects from garbage collection.<br />
+ * When updating an object, an Update compares it with the snapshot and sets the columns of the changed properties only.
+ * An object with no changes is not updated at all.
+ * </p>
+ * <p>A {@code <generator../>} element specifies a {@link horizon.sql.support.IdGenerator} that sets an ID to the property of an object before INSERTing it,
+ * if the property is null, or 0 for a primitive property. The IDs are
+ * <ul><li>reserved in blocks from a database sequence that increments by the allocation size for 'sequence'</li>
+ * 	   <li>reserved in blocks from a row of a table with the 'table', 'keyColumn', and 'valueColumn' attributes for 'table'.
+ * 		   The defaults are "ID_GENERATOR", "GEN_NAME", and "GEN_VALUE".</li>
+ * 	   <li>generated in time order without accessing the database for 'time'. Use the 'node' attribute to give each process a different node ID.</li>
+ * </ul>
+ * Unlike a {@code <beforeInsert../>} instruction with a query, a {@code <generator../>} does not cost a round trip for each object.
+ * </p>
  * <p>The elements of
  * <ul><li>{@code <beforeInsert../>} for an instruction executed before INSERTing the object information to the database</li>
  * 	   <li>{@code <beforeUpdate../>} for an instruction executed before UPDATEing the object information in the database</li>
  * 	   <li>{@code <beforeDelete../>} for an instruction executed before DELETEing the object information from the database</li>
+ * 	   <li>{@code <beforeUpsert../>} for an instruction executed before INSERTing or UPDATEing the object information with an upsert statement</li>
  * </ul>
  * have the attributes as follows:
  * <ul><li>"set"
@@ -205,10 +244,33 @@
  * 			<li>The number and order of the column names must match with the "set" attribute.</li>
  * 		</ul>
  * 	   </li>
+ * 	   <li>"scope"
+ * 		<ul><li>"object" to execute the query for each object</li>
+ * 			<li>"chunk" to execute the query once for a batch of objects and set the same values to the objects of the batch.
+ * 				Unlike the other instructions with a query, a chunk-scoped instruction does not keep the objects from being saved in batches.</li>
+ * 			<li>Optional. Default "object"</li>
+ * 			<li>This attribute must be used along with the "columns" attribute.</li>
+ * 		</ul>
+ * 	   </li>
  * </ul>
  * If multiple {@code <beforeXXX ../>} instructions are specified for an {@code <orm../>} configuration,<br />
  * they are executed in the written order.
  * </p>
+ * <p>When an Update saves a collection of objects, the source parameters that do not refer to the object are evaluated once for the collection,
+ * and the simple properties of the object are read and set without evaluating expressions.
+ * </p>
+ * <p>The {@code <oneToMany../>} and {@code <manyToOne../>} elements declare associations of the objects with objects of another {@code <orm../>}.<br />
+ * The associated objects are those whose 'references' properties have the same values as the object's 'keys' properties.
+ * They are loaded with the objects a Query returns if named with {@link horizon.sql.Query#fetch(String...)} or declared with fetch="eager",
+ * or loaded later with {@link horizon.sql.Query#loadAssociations(java.util.Collection, String...)}.
+ * <pre><code> List&lt;SalesOrder> orders = dbaccess.query()
+ *     .sql("SELECT * FROM SALES_ORDER WHERE CUST_ID = ?").params(custID)
+ *     .fetch("lineItems", "lineItems.product")
+ *     .getObjects(rs -> new SalesOrder());</code></pre>
+ * The associated objects of all the objects are selected with a statement, or a few in chunks, with an IN predicate,
+ * so that loading the associations does not cost a round trip for each object.
+ * Do not declare eager associations that lead back to the same {@code <orm../>}.
+ * </p>
  * <p>Unlike SQL instructions, ORM configurations are not bound to a namespace.<br />
  * Although specified in an SQL sheet of a namespace,<br />
  * an ORM configuration does not respect the namespace boundary<br />
@@ -250,6 +312,14 @@
  *			<li>Effective only when the query result is returned with {@link horizon.sql.Query#getObjects()} or {@link horizon.sql.Query#getObject()}</li>
  *		</ul>
  * 	   </li>
+ * 	   <li>"cache": time-to-live of the query result in the {@link horizon.sql.ResultCache}, Optional.<br />
+ * 		<ul><li>A number followed by "ms", "s", "m", "h", or "d". Without the unit, the number is in seconds.</li>
+ *			<li>Effective only when the query result is returned with {@link horizon.sql.Query#getDataset()} or {@link horizon.sql.Query#getValue()}</li>
+ *		</ul>
+ * 	   </li>
+ * 	   <li>"tables": comma-separated names of the tables whose updates invalidate the cached result, Optional.<br />
+ * 		If omitted, the tables are found in the FROM and JOIN clauses of the statement.
+ * 	   </li>
  * </ul>
  * <h4>{@code <update../>} element</h4>
  * An {@code <update../>} element specifies an instruction to execute
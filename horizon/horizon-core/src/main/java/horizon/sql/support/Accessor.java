@@ -0,0 +1,43 @@
+/* Copyright (c) 2020 Emjay Khan. All rights reserved. */
+
+package horizon.sql.support;
+
+import javax.el.ELManager;
+
+/**Creates objects of an {@link Orm}'s class and reads and writes their properties by the index of {@link Orm#getMappings() the Orm's mappings}.<br />
+ * An Accessor is usually generated by the horizon-processor from the {@link horizon.sql.annotation annotations} of the class.
+ * @param <T> class of the objects
+ */
+public interface Accessor<T> {
+	/**Returns a new object of the class.
+	 * @return new object of the class
+	 */
+	T create();
+
+	/**Returns the value of the property at the index.
+	 * @param obj	an object
+	 * @param index	index of the property's mapping
+	 * @return value of the property
+	 */
+	Object get(T obj, int index);
+
+	/**Sets the value to the property at the index.
+	 * @param obj	an object
+	 * @param index	index of the property's mapping
+	 * @param value	value of the property
+	 */
+	void set(T obj, int index, Object value);
+
+	/**Converts the value to the type with the rules of the expression language, as a property is written with an expression.
+	 * @param <V>	type of the converted value
+	 * @param value	a value
+	 * @param type	type to convert the value to
+	 * @return converted value
+	 */
+	@SuppressWarnings("unchecked")
+	static <V> V convert(Object value, Class<V> type) {
+		if (value != null && type.isInstance(value))
+			return (V)value;
+		return (V)ELManager.getExpressionFactory().coerceToType(value, type);
+	}
+}
\ No newline at end of file
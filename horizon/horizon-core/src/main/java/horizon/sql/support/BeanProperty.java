@@ -0,0 +1,133 @@
+/* Copyright (c) 2020 Emjay Khan. All rights reserved. */
+
+package horizon.sql.support;
+
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import horizon.base.AbstractComponent;
+
+/**Reads and writes simple properties of objects with their accessor methods, without evaluating expressions.<br />
+ * The accessors are looked up once for a class and cached.
+ * A property is accessed only if its name is simple, like "name" but not "customer.name",
+ * and, for writing, the value is assignable to the property without conversion.
+ * Otherwise, the caller is supposed to fall back to an expression.
+ */
+class BeanProperty extends AbstractComponent {
+	/**Returned when a property cannot be read without an expression.*/
+	static final Object UNKNOWN = new Object();
+
+	private static final Map<Class<?>, Map<String, PropertyDescriptor>> descriptors = new ConcurrentHashMap<>();
+	private static final Map<Class<?>, Class<?>> wrappers = Map.of(
+		boolean.class, Boolean.class, byte.class, Byte.class, char.class, Character.class, short.class, Short.class,
+		int.class, Integer.class, long.class, Long.class, float.class, Float.class, double.class, Double.class
+	);
+
+	private static PropertyDescriptor descriptor(Class<?> klass, String name) {
+		return descriptors.computeIfAbsent(klass, key -> {
+			try {
+				HashMap<String, PropertyDescriptor> map = new HashMap<>();
+				for (PropertyDescriptor descriptor: Introspector.getBeanInfo(key).getPropertyDescriptors())
+					map.put(descriptor.getName(), descriptor);
+				return map;
+			} catch (Exception e) {
+				return Collections.emptyMap();
+			}
+		}).get(name);
+	}
+
+	private static boolean simple(String name) {
+		for (int i = 0, length = name.length(); i < length; ++i)
+			if (!Character.isJavaIdentifierPart(name.charAt(i)))
+				return false;
+		return !name.isEmpty();
+	}
+
+	/**Returns the value of the property of the object.
+	 * @param obj	an object
+	 * @param name	name of the property
+	 * @return value of the property or {@link #UNKNOWN} if the property cannot be read without an expression
+	 */
+	static Object get(Object obj, String name) {
+		if (obj == null || !simple(name)) return UNKNOWN;
+		if (obj instanceof Map)
+			return ((Map<?, ?>)obj).get(name);
+
+		PropertyDescriptor descriptor = descriptor(obj.getClass(), name);
+		Method getter = descriptor != null ? descriptor.getReadMethod() : null;
+		if (getter == null) return UNKNOWN;
+
+		try {
+			return getter.invoke(obj);
+		} catch (Exception e) {
+			throw runtimeException(e);
+		}
+	}
+
+	/**Returns whether the property of the object is of a primitive type.
+	 * @param obj	an object
+	 * @param name	name of the property
+	 * @return
+	 * <ul><li>true if the property is of a primitive type</li>
+	 * 	   <li>false otherwise or if the property is not found</li>
+	 * </ul>
+	 */
+	static boolean isPrimitive(Object obj, String name) {
+		if (obj == null || obj instanceof Map || !simple(name)) return false;
+
+		PropertyDescriptor descriptor = descriptor(obj.getClass(), name);
+		Class<?> type = descriptor != null ? descriptor.getPropertyType() : null;
+		return type != null && type.isPrimitive();
+	}
+
+	/**Returns the type of the property of the class, with a primitive type boxed.
+	 * @param klass	a class
+	 * @param name	name of the property
+	 * @return type of the property or null if the property is not found
+	 */
+	static Class<?> typeOf(Class<?> klass, String name) {
+		if (klass == null || Map.class.isAssignableFrom(klass) || !simple(name)) return null;
+
+		PropertyDescriptor descriptor = descriptor(klass, name);
+		Class<?> type = descriptor != null ? descriptor.getPropertyType() : null;
+		return type != null ? wrappers.getOrDefault(type, type) : null;
+	}
+
+	/**Sets the value to the property of the object.
+	 * @param obj	an object
+	 * @param name	name of the property
+	 * @param value	value of the property
+	 * @return
+	 * <ul><li>true if the value is set</li>
+	 * 	   <li>false if the value cannot be set without an expression</li>
+	 * </ul>
+	 */
+	@SuppressWarnings("unchecked")
+	static boolean set(Object obj, String name, Object value) {
+		if (obj == null || !simple(name)) return false;
+		if (obj instanceof Map) {
+			((Map<String, Object>)obj).put(name, value);
+			return true;
+		}
+
+		PropertyDescriptor descriptor = descriptor(obj.getClass(), name);
+		Method setter = descriptor != null ? descriptor.getWriteMethod() : null;
+		if (setter == null) return false;
+
+		Class<?> type = setter.getParameterTypes()[0];
+		if (value == null ? type.isPrimitive() : !wrappers.getOrDefault(type, type).isInstance(value))
+			return false;
+
+		try {
+			setter.invoke(obj, value);
+			return true;
+		} catch (Exception e) {
+			throw runtimeException(e);
+		}
+	}
+}
\ No newline at end of file
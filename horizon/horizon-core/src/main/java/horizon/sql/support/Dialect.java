@@ -0,0 +1,641 @@
+/* Copyright (c) 2020 Emjay Khan. All rights reserved. */
+
+package horizon.sql.support;
+
+import java.sql.DatabaseMetaData;
+
+import horizon.base.AbstractComponent;
+
+/**SQL features that differ by database.
+ * <p>A Dialect tells a Query, an Update, and a Batch how to
+ * <ul><li>{@link #limit(String) limit} the rows of a query</li>
+ * 	   <li>count the rows of a query with a {@link #countOver(String, String) window function} or the {@link #calcFoundRows(String) found rows} in the same round trip</li>
+ * 	   <li>get the generated keys of the rows a batch inserts</li>
+ * 	   <li>insert multiple rows with an INSERT statement without exceeding the limit of parameters</li>
+ * 	   <li>get the next value of a sequence</li>
+ * 	   <li>insert or update a row with an {@link Upsert upsert} statement</li>
+ * </ul>
+ * A DBAccess {@link #of(DatabaseMetaData) detects} the Dialect from the database metadata.
+ * If the database is not recognized, the DBAccess uses {@link #GENERIC}, which relies only on standard SQL and JDBC.
+ * </p>
+ * <p>The Dialects of the constants are shared in the JVM and do not change.
+ * A setter called on one of them returns a copy with the feature set, leaving the constant as it is.
+ * <pre><code> dbaccess.setDialect(Dialect.MYSQL.setMaxParameters(10000));</code></pre>
+ * </p>
+ */
+public class Dialect extends AbstractComponent implements Cloneable {
+	/**Clause to limit the rows of a query*/
+	public static enum Limit {
+		/**Not supported. The rows are skipped over the ResultSet.*/
+		NONE,
+		/**LIMIT ? OFFSET ?*/
+		LIMIT_OFFSET,
+		/**OFFSET ? ROWS FETCH NEXT ? ROWS ONLY*/
+		OFFSET_FETCH
+	}
+
+	/**Statement to insert a row or update it if a row with the same keys exists*/
+	public static enum Upsert {
+		/**Not supported. The row is updated, and inserted if no row is updated.*/
+		NONE,
+		/**INSERT ... ON DUPLICATE KEY UPDATE ...*/
+		ON_DUPLICATE_KEY,
+		/**INSERT ... ON CONFLICT (keys) DO UPDATE SET ...*/
+		ON_CONFLICT,
+		/**MERGE INTO table(columns) KEY(keys) VALUES (...)*/
+		MERGE_KEY,
+		/**MERGE INTO table USING (VALUES (...)) ...*/
+		MERGE,
+		/**MERGE INTO table USING (SELECT ... FROM DUAL) ...*/
+		MERGE_FROM_DUAL
+	}
+
+	/**Dialect for unrecognized databases*/
+	public static final Dialect GENERIC = new Dialect("generic").freeze();
+	public static final Dialect MYSQL = new Dialect("mysql")
+		.setLimit(Limit.LIMIT_OFFSET).setWindowFunctions(true).setFoundRows(true).setBatchKeys(true).setRowValues(true)
+		.setMaxParameters(65535).setMaxInsertRows(Integer.MAX_VALUE)
+		.setUpsert(Upsert.ON_DUPLICATE_KEY)
+		.freeze();
+	public static final Dialect MYSQL5 = new Dialect("mysql5")
+		.setLimit(Limit.LIMIT_OFFSET).setFoundRows(true).setBatchKeys(true).setRowValues(true)
+		.setMaxParameters(65535).setMaxInsertRows(Integer.MAX_VALUE)
+		.setUpsert(Upsert.ON_DUPLICATE_KEY)
+		.freeze();
+	public static final Dialect POSTGRESQL = new Dialect("postgresql")
+		.setLimit(Limit.LIMIT_OFFSET).setWindowFunctions(true).setBatchKeys(true).setNamedKeys(true).setRowValues(true)
+		.setMaxParameters(32767).setMaxInsertRows(Integer.MAX_VALUE)
+		.setSequenceQuery("SELECT NEXTVAL('{sequence}')")
+		.setUpsert(Upsert.ON_CONFLICT)
+		.freeze();
+	public static final Dialect H2 = new Dialect("h2")
+		.setLimit(Limit.LIMIT_OFFSET).setWindowFunctions(true).setBatchKeys(true).setRowValues(true)
+		.setMaxParameters(65535).setMaxInsertRows(Integer.MAX_VALUE)
+		.setUpsert(Upsert.MERGE_KEY)
+		.freeze();
+	public static final Dialect HSQLDB = new Dialect("hsqldb")
+		.setLimit(Limit.LIMIT_OFFSET).setRowValues(true)
+		.setMaxParameters(65535).setMaxInsertRows(Integer.MAX_VALUE)
+		.setSequenceQuery("CALL NEXT VALUE FOR {sequence}")
+		.setUpsert(Upsert.MERGE)
+		.freeze();
+	public static final Dialect SQLITE = new Dialect("sqlite")
+		.setLimit(Limit.LIMIT_OFFSET).setWindowFunctions(true).setRowValues(true)
+		.setMaxInsertRows(Integer.MAX_VALUE)
+		.setUpsert(Upsert.ON_CONFLICT)
+		.freeze();
+	public static final Dialect ORACLE = new Dialect("oracle")
+		.setLimit(Limit.OFFSET_FETCH).setWindowFunctions(true).setStarWithColumns(false).setNamedKeys(true).setRowValues(true)
+		.setMaxParameters(65535).setMaxInListSize(1000)
+		.setSequenceQuery("SELECT {sequence}.NEXTVAL FROM DUAL")
+		.setUpsert(Upsert.MERGE_FROM_DUAL)
+		.freeze();
+	public static final Dialect ORACLE11 = new Dialect("oracle11")
+		.setWindowFunctions(true).setStarWithColumns(false).setNamedKeys(true).setRowValues(true)
+		.setMaxParameters(65535).setMaxInListSize(1000)
+		.setSequenceQuery("SELECT {sequence}.NEXTVAL FROM DUAL")
+		.setUpsert(Upsert.MERGE_FROM_DUAL)
+		.freeze();
+	public static final Dialect SQLSERVER = new Dialect("sqlserver")
+		.setLimit(Limit.OFFSET_FETCH).setWindowFunctions(true)
+		.setMaxParameters(2100).setMaxInsertRows(1000)
+		.setUpsert(Upsert.MERGE).setMergeTerminator(";")
+		.freeze();
+	public static final Dialect DB2 = new Dialect("db2")
+		.setLimit(Limit.OFFSET_FETCH).setWindowFunctions(true).setStarWithColumns(false).setRowValues(true)
+		.setMaxParameters(32767).setMaxInsertRows(Integer.MAX_VALUE)
+		.setSequenceQuery("VALUES NEXT VALUE FOR {sequence}")
+		.setUpsert(Upsert.MERGE)
+		.freeze();
+	public static final Dialect DERBY = new Dialect("derby")
+		.setLimit(Limit.OFFSET_FETCH).setStarWithColumns(false)
+		.setMaxParameters(65535).setMaxInsertRows(Integer.MAX_VALUE)
+		.setSequenceQuery("VALUES NEXT VALUE FOR {sequence}")
+		.freeze();
+
+	/**Returns the Dialect of the database the metaData describes.
+	 * @param metaData DatabaseMetaData
+	 * @return Dialect of the database, or {@link #GENERIC} if the database is not recognized
+	 * @throws Exception
+	 */
+	public static Dialect of(DatabaseMetaData metaData) throws Exception {
+		String product = String.valueOf(metaData.getDatabaseProductName()).toLowerCase();
+		int version = metaData.getDatabaseMajorVersion();
+
+		if (product.contains("mariadb"))
+			return version > 10 || version == 10 && metaData.getDatabaseMinorVersion() >= 2 ? MYSQL : MYSQL5;
+		if (product.contains("mysql"))
+			return version >= 8 ? MYSQL : MYSQL5;
+		if (product.contains("postgresql"))
+			return POSTGRESQL;
+		if (product.contains("h2"))
+			return H2;
+		if (product.contains("hsql"))
+			return HSQLDB;
+		if (product.contains("sqlite"))
+			return SQLITE;
+		if (product.contains("oracle"))
+			return version >= 12 ? ORACLE : ORACLE11;
+		if (product.contains("microsoft sql server"))
+			return SQLSERVER;
+		if (product.startsWith("db2"))
+			return DB2;
+		if (product.contains("derby"))
+			return DERBY;
+		return GENERIC;
+	}
+
+	private final String name;
+	private Limit limit = Limit.NONE;
+	private boolean
+		windowFunctions,
+		foundRows,
+		starWithColumns = true,
+		batchKeys,
+		namedKeys,
+		rowValues;
+	private int
+		maxParameters = 999,
+		maxInsertRows,
+		maxInListSize = Integer.MAX_VALUE;
+	private String
+		sequenceQuery = "SELECT NEXT VALUE FOR {sequence}",
+		mergeTerminator = "";
+	private Upsert upsert = Upsert.NONE;
+	private boolean frozen;
+
+	/**Creates a new Dialect with the features of standard SQL and JDBC.<br />
+	 * Set the features the database supports with the setter methods.
+	 * @param name name of the Dialect
+	 */
+	public Dialect(String name) {
+		this.name = notEmpty(name, "name");
+	}
+
+	private Dialect freeze() {
+		frozen = true;
+		return this;
+	}
+
+	/**Returns this Dialect, or a copy of it if this Dialect is one of the constants.
+	 * @return Dialect whose features may be set
+	 */
+	private Dialect modifiable() {
+		if (!frozen) return this;
+
+		try {
+			Dialect copy = (Dialect)clone();
+			copy.frozen = false;
+			return copy;
+		} catch (CloneNotSupportedException e) {
+			throw runtimeException(e);
+		}
+	}
+
+	/**Returns the name of the Dialect.
+	 * @return name of the Dialect
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**Returns the clause to limit the rows of a query.
+	 * @return clause to limit the rows of a query
+	 */
+	public Limit getLimit() {
+		return limit;
+	}
+
+	/**Sets the clause to limit the rows of a query.
+	 * @param limit clause to limit the rows of a query
+	 * @return this Dialect, or a copy of it with the feature set if this Dialect is one of the constants
+	 */
+	public Dialect setLimit(Limit limit) {
+		Dialect dialect = modifiable();
+		dialect.limit = notEmpty(limit, "limit");
+		return dialect;
+	}
+
+	/**Returns whether the database supports window functions like {@code COUNT(*) OVER()}.
+	 * @return
+	 * <ul><li>true if the database supports window functions</li>
+	 * 	   <li>false otherwise</li>
+	 * </ul>
+	 */
+	public boolean supportsWindowFunctions() {
+		return windowFunctions;
+	}
+
+	/**Sets whether the database supports window functions like {@code COUNT(*) OVER()}.
+	 * @param windowFunctions whether the database supports window functions
+	 * @return this Dialect, or a copy of it with the feature set if this Dialect is one of the constants
+	 */
+	public Dialect setWindowFunctions(boolean windowFunctions) {
+		Dialect dialect = modifiable();
+		dialect.windowFunctions = windowFunctions;
+		return dialect;
+	}
+
+	/**Returns whether the database supports {@code SQL_CALC_FOUND_ROWS} and {@code FOUND_ROWS()}.
+	 * @return
+	 * <ul><li>true if the database supports the found rows</li>
+	 * 	   <li>false otherwise</li>
+	 * </ul>
+	 */
+	public boolean supportsFoundRows() {
+		return foundRows;
+	}
+
+	/**Sets whether the database supports {@code SQL_CALC_FOUND_ROWS} and {@code FOUND_ROWS()}.
+	 * @param foundRows whether the database supports the found rows
+	 * @return this Dialect, or a copy of it with the feature set if this Dialect is one of the constants
+	 */
+	public Dialect setFoundRows(boolean foundRows) {
+		Dialect dialect = modifiable();
+		dialect.foundRows = foundRows;
+		return dialect;
+	}
+
+	/**Sets whether an unqualified '*' may be followed by other columns in a select list.<br />
+	 * The default is true.
+	 * @param starWithColumns whether an unqualified '*' may be followed by other columns
+	 * @return this Dialect, or a copy of it with the feature set if this Dialect is one of the constants
+	 */
+	public Dialect setStarWithColumns(boolean starWithColumns) {
+		Dialect dialect = modifiable();
+		dialect.starWithColumns = starWithColumns;
+		return dialect;
+	}
+
+	/**Returns whether the JDBC driver returns the generated keys of all the rows a batch inserts.
+	 * @return
+	 * <ul><li>true if the driver returns the generated keys of a batch</li>
+	 * 	   <li>false otherwise</li>
+	 * </ul>
+	 */
+	public boolean supportsBatchKeys() {
+		return batchKeys;
+	}
+
+	/**Sets whether the JDBC driver returns the generated keys of all the rows a batch inserts.
+	 * @param batchKeys whether the driver returns the generated keys of a batch
+	 * @return this Dialect, or a copy of it with the feature set if this Dialect is one of the constants
+	 */
+	public Dialect setBatchKeys(boolean batchKeys) {
+		Dialect dialect = modifiable();
+		dialect.batchKeys = batchKeys;
+		return dialect;
+	}
+
+	/**Returns whether the JDBC driver needs the names of the auto-incremented columns to return their generated values.<br />
+	 * Without the names, such a driver returns values other than the generated keys, like all the columns of the inserted row or its ROWID.
+	 * @return
+	 * <ul><li>true if the driver needs the names of the auto-incremented columns</li>
+	 * 	   <li>false otherwise</li>
+	 * </ul>
+	 */
+	public boolean requiresNamedKeys() {
+		return namedKeys;
+	}
+
+	/**Sets whether the JDBC driver needs the names of the auto-incremented columns to return their generated values.
+	 * @param namedKeys whether the driver needs the names of the auto-incremented columns
+	 * @return this Dialect, or a copy of it with the feature set if this Dialect is one of the constants
+	 */
+	public Dialect setNamedKeys(boolean namedKeys) {
+		Dialect dialect = modifiable();
+		dialect.namedKeys = namedKeys;
+		return dialect;
+	}
+
+	/**Returns whether the database supports row value constructors in an IN predicate, like {@code (col0, col1) IN ((?, ?), (?, ?))}.
+	 * @return
+	 * <ul><li>true if the database supports row value constructors in an IN predicate</li>
+	 * 	   <li>false otherwise</li>
+	 * </ul>
+	 */
+	public boolean supportsRowValues() {
+		return rowValues;
+	}
+
+	/**Sets whether the database supports row value constructors in an IN predicate, like {@code (col0, col1) IN ((?, ?), (?, ?))}.<br />
+	 * Without the support, rows of multiple columns are matched with {@code (col0 = ? AND col1 = ?) OR (col0 = ? AND col1 = ?)}.
+	 * @param rowValues whether the database supports row value constructors in an IN predicate
+	 * @return this Dialect, or a copy of it with the feature set if this Dialect is one of the constants
+	 */
+	public Dialect setRowValues(boolean rowValues) {
+		Dialect dialect = modifiable();
+		dialect.rowValues = rowValues;
+		return dialect;
+	}
+
+	/**Returns the maximum number of values an IN predicate may have.
+	 * @return maximum number of values of an IN predicate
+	 */
+	public int getMaxInListSize() {
+		return maxInListSize;
+	}
+
+	/**Sets the maximum number of values an IN predicate may have, like 1000 for Oracle.<br />
+	 * The default is Integer.MAX_VALUE, meaning the number is limited by {@link #getMaxParameters() the parameters} only.
+	 * @param maxInListSize maximum number of values of an IN predicate
+	 * @return this Dialect, or a copy of it with the feature set if this Dialect is one of the constants
+	 */
+	public Dialect setMaxInListSize(int maxInListSize) {
+		Dialect dialect = modifiable();
+		dialect.maxInListSize = maxInListSize;
+		return dialect;
+	}
+
+	/**Returns the maximum number of parameters a statement may have.
+	 * @return maximum number of parameters of a statement
+	 */
+	public int getMaxParameters() {
+		return maxParameters;
+	}
+
+	/**Sets the maximum number of parameters a statement may have.<br />
+	 * The default is 999.
+	 * @param maxParameters maximum number of parameters of a statement
+	 * @return this Dialect, or a copy of it with the feature set if this Dialect is one of the constants
+	 */
+	public Dialect setMaxParameters(int maxParameters) {
+		Dialect dialect = modifiable();
+		dialect.maxParameters = maxParameters;
+		return dialect;
+	}
+
+	/**Returns the maximum number of rows an {@code INSERT ... VALUES (...), (...)} statement may insert.
+	 * @return maximum number of rows an INSERT statement may insert. 0 if the database does not support multi-row INSERT statements.
+	 */
+	public int getMaxInsertRows() {
+		return maxInsertRows;
+	}
+
+	/**Sets the maximum number of rows an {@code INSERT ... VALUES (...), (...)} statement may insert.<br />
+	 * The default is 0, meaning the database does not support multi-row INSERT statements.
+	 * @param maxInsertRows maximum number of rows an INSERT statement may insert
+	 * @return this Dialect, or a copy of it with the feature set if this Dialect is one of the constants
+	 */
+	public Dialect setMaxInsertRows(int maxInsertRows) {
+		Dialect dialect = modifiable();
+		dialect.maxInsertRows = maxInsertRows;
+		return dialect;
+	}
+
+	/**Returns the statement to insert a row or update it if a row with the same keys exists.
+	 * @return statement to insert or update a row
+	 */
+	public Upsert getUpsert() {
+		return upsert;
+	}
+
+	/**Sets the statement to insert a row or update it if a row with the same keys exists.
+	 * @param upsert statement to insert or update a row
+	 * @return this Dialect, or a copy of it with the feature set if this Dialect is one of the constants
+	 */
+	public Dialect setUpsert(Upsert upsert) {
+		Dialect dialect = modifiable();
+		dialect.upsert = notEmpty(upsert, "upsert");
+		return dialect;
+	}
+
+	/**Returns the terminator a MERGE statement must end with.
+	 * @return terminator of a MERGE statement
+	 */
+	public String getMergeTerminator() {
+		return mergeTerminator;
+	}
+
+	/**Sets the terminator a MERGE statement must end with, like ";" for SQL Server.<br />
+	 * The default is an empty string.
+	 * @param mergeTerminator terminator of a MERGE statement
+	 * @return this Dialect, or a copy of it with the feature set if this Dialect is one of the constants
+	 */
+	public Dialect setMergeTerminator(String mergeTerminator) {
+		Dialect dialect = modifiable();
+		dialect.mergeTerminator = mergeTerminator != null ? mergeTerminator : "";
+		return dialect;
+	}
+
+	/**Sets the query that gets the next value of a sequence.<br />
+	 * The query must have the placeholder '{sequence}' for the sequence name.
+	 * The default is "SELECT NEXT VALUE FOR {sequence}".
+	 * @param sequenceQuery query that gets the next value of a sequence
+	 * @return this Dialect, or a copy of it with the feature set if this Dialect is one of the constants
+	 */
+	public Dialect setSequenceQuery(String sequenceQuery) {
+		Dialect dialect = modifiable();
+		dialect.sequenceQuery = notEmpty(sequenceQuery, "sequenceQuery");
+		return dialect;
+	}
+
+	/**Returns the query that gets the next value of the sequence.
+	 * @param sequence name of the sequence
+	 * @return query that gets the next value of the sequence
+	 */
+	public String nextValue(String sequence) {
+		return sequenceQuery.replace("{sequence}", sequence);
+	}
+
+	/**Returns the number of rows an INSERT statement with the columns may insert
+	 * without exceeding {@link #getMaxParameters() the limit of parameters} and {@link #getMaxInsertRows() rows}.
+	 * @param rows		number of rows wanted
+	 * @param columns	number of columns of a row
+	 * @return number of rows an INSERT statement may insert
+	 */
+	public int insertRows(int rows, int columns) {
+		return Math.max(1, Math.min(Math.min(rows, maxInsertRows), maxParameters / Math.max(1, columns)));
+	}
+
+	/**Returns the number of rows an IN predicate on the columns may match
+	 * without exceeding {@link #getMaxParameters() the limit of parameters} and {@link #getMaxInListSize() values}.
+	 * @param rows		number of rows wanted
+	 * @param columns	number of columns of a row
+	 * @return number of rows an IN predicate may match
+	 */
+	public int inListSize(int rows, int columns) {
+		return Math.max(1, Math.min(Math.min(rows, maxInListSize), maxParameters / Math.max(1, columns)));
+	}
+
+	/**Returns the statement with the clause to limit the rows.<br />
+	 * The clause has two parameters whose arguments are returned by {@link #limitArgs(int, int)}.
+	 * @param statement query statement that does not limit the rows itself
+	 * @return statement with the clause to limit the rows, or null if the Dialect does not support the clause
+	 */
+	public String limit(String statement) {
+		switch (limit) {
+		case LIMIT_OFFSET: return trim(statement) + "\nLIMIT ? OFFSET ?";
+		case OFFSET_FETCH: return trim(statement) + "\nOFFSET ? ROWS FETCH NEXT ? ROWS ONLY";
+		default: return null;
+		}
+	}
+
+	/**Returns the arguments to the clause the {@link #limit(String)} method appends.
+	 * @param start	0-based index of the first row
+	 * @param size	maximum number of rows
+	 * @return arguments to the clause
+	 */
+	public Object[] limitArgs(int start, int size) {
+		switch (limit) {
+		case LIMIT_OFFSET: return new Object[] {size, start};
+		case OFFSET_FETCH: return new Object[] {start, size};
+		default: return new Object[0];
+		}
+	}
+
+	/**Returns the statement with a column of the total number of rows appended to the select list.
+	 * @param statement	query statement
+	 * @param label		label of the column
+	 * @return statement with the column of {@code COUNT(*) OVER()},
+	 * or null if the database does not support window functions or the statement is not a simple SELECT
+	 */
+	public String countOver(String statement, String label) {
+		if (!windowFunctions) return null;
+
+		Select select = Select.parse(statement);
+		if (select == null || select.distinct || select.compound
+		 || select.bareStar && !starWithColumns)
+			return null;
+
+		return statement.substring(0, select.listEnd).replaceAll("\\s+$", "")
+			 + ", COUNT(*) OVER() " + label + " "
+			 + statement.substring(select.listEnd);
+	}
+
+	/**Returns the statement with {@code SQL_CALC_FOUND_ROWS} for the number of rows to be obtained with {@link #foundRows()}.
+	 * @param statement query statement
+	 * @return statement with {@code SQL_CALC_FOUND_ROWS}, or null if the database does not support it
+	 */
+	public String calcFoundRows(String statement) {
+		if (!foundRows) return null;
+
+		Select select = Select.parse(statement);
+		if (select == null) return null;
+		if (select.calcFoundRows) return statement;
+
+		return statement.substring(0, select.listStart) + " SQL_CALC_FOUND_ROWS" + statement.substring(select.listStart);
+	}
+
+	/**Returns the statement to get the number of rows the last statement with {@code SQL_CALC_FOUND_ROWS} would have returned without the limit.
+	 * @return statement for the found rows
+	 */
+	public String foundRows() {
+		return "SELECT FOUND_ROWS()";
+	}
+
+	/**Returns the statement to count the rows of the query statement.
+	 * @param statement query statement
+	 * @return statement to count the rows
+	 */
+	public String count(String statement) {
+		return "SELECT COUNT(*) FROM (\n" + trim(statement) + "\n) PC_";
+	}
+
+	private static String trim(String statement) {
+		return statement.trim().replaceAll(";+$", "");
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "(\"" + name + "\")";
+	}
+
+	/**Positions of the top-level select list of a query statement.*/
+	private static class Select {
+		private int
+			listStart = -1,
+			listEnd = -1;
+		private boolean
+			distinct,
+			compound,
+			bareStar,
+			calcFoundRows;
+
+		static Select parse(String statement) {
+			Select select = new Select();
+			int depth = 0,
+				length = statement.length(),
+				words = 0;
+			boolean inList = false;
+			StringBuilder item = new StringBuilder();
+
+			for (int i = 0; i < length; ++i) {
+				char c = statement.charAt(i);
+				if (c == '\'' || c == '"' || c == '`' || c == '[') {
+					char close = c == '[' ? ']' : c;
+					int end = statement.indexOf(close, i + 1);
+					while (end > 0 && close == '\'' && end + 1 < length && statement.charAt(end + 1) == '\'')
+						end = statement.indexOf(close, end + 2);
+					if (end < 0) return null;
+					if (inList && depth == 0)
+						item.append('x');
+					i = end;
+					continue;
+				}
+				if (c == '/' && i + 1 < length && statement.charAt(i + 1) == '*') {
+					int end = statement.indexOf("*/", i + 2);
+					if (end < 0) return null;
+					i = end + 1;
+					continue;
+				}
+				if (c == '-' && i + 1 < length && statement.charAt(i + 1) == '-') {
+					int end = statement.indexOf('\n', i);
+					i = end < 0 ? length : end;
+					continue;
+				}
+				if (c == '(') {
+					++depth;
+					if (inList && depth == 1)
+						item.append('x');
+					continue;
+				}
+				if (c == ')') {
+					--depth;
+					continue;
+				}
+				if (depth > 0) continue;
+
+				if (Character.isLetter(c) || c == '_') {
+					int end = i;
+					while (end < length && (Character.isLetterOrDigit(statement.charAt(end)) || statement.charAt(end) == '_' || statement.charAt(end) == '$'))
+						++end;
+					String word = statement.substring(i, end).toUpperCase();
+					if (select.listStart < 0) {
+						if ("SELECT".equals(word)) {
+							select.listStart = end;
+							inList = true;
+						}
+					} else if (inList) {
+						if ("FROM".equals(word)) {
+							select.listEnd = i;
+							inList = false;
+							select.bareStar |= "*".equals(item.toString().trim());
+						} else if (words == 0 && ("DISTINCT".equals(word) || "UNIQUE".equals(word) || "DISTINCTROW".equals(word)))
+							select.distinct = true;
+						else if (words == 0 && "SQL_CALC_FOUND_ROWS".equals(word))
+							select.calcFoundRows = true;
+						else if (!"ALL".equals(word) || words > 0)
+							item.append(word);
+						++words;
+					} else if ("UNION".equals(word) || "INTERSECT".equals(word) || "EXCEPT".equals(word) || "MINUS".equals(word))
+						select.compound = true;
+					i = end - 1;
+					continue;
+				}
+				if (inList) {
+					if (c == ',') {
+						select.bareStar |= "*".equals(item.toString().trim());
+						item.setLength(0);
+						words = 1;
+					} else
+						item.append(c);
+				}
+			}
+			if (select.listStart < 0) return null;
+			if (select.listEnd < 0)
+				select.listEnd = length;
+			return select;
+		}
+	}
+}
\ No newline at end of file
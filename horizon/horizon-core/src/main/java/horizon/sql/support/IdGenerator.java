@@ -0,0 +1,378 @@
+/* Copyright (c) 2020 Emjay Khan. All rights reserved. */
+
+package horizon.sql.support;
+
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.w3c.dom.Element;
+
+import horizon.base.AbstractComponent;
+import horizon.sql.DBAccess;
+import horizon.util.Xmlement;
+
+/**Generates the IDs of objects an Update creates.
+ * <p>An IdGenerator is specified with a {@code <generator../>} element of an {@code <orm../>} element.
+ * Before INSERTing an object, the Update sets a generated ID to the property of the object if the property {@link #isUnset(Object, Object) is not set}.
+ * </p>
+ * <p>The IdGenerator is either
+ * <ul><li>{@link Sequence 'sequence'} that reserves a block of IDs from a database sequence</li>
+ * 	   <li>{@link HiLo 'table'} that reserves a block of IDs from a row of a database table</li>
+ * 	   <li>{@link TimeOrdered 'time'} that generates time-ordered IDs without accessing the database</li>
+ * </ul>
+ * A block of IDs is reserved in a round trip to the database and the IDs are handed out from memory without locking
+ * until the block runs out.
+ * </p>
+ * <pre><code> {@code <orm type="horizon.example.order.SalesOrder" table="SALES_ORDER">
+ *     ...
+ *     <generator property="id" type="sequence" name="ORDER_SEQ" allocationSize="50" format="%05d"/>
+ * </orm>}</code></pre>
+ */
+public abstract class IdGenerator extends AbstractComponent {
+	static IdGenerator create(Element node, String defaultName) {
+		Xmlement xml = Xmlement.get();
+		String type = ifEmpty(xml.attribute(node, "type"), () -> "sequence").toLowerCase();
+		IdGenerator generator = null;
+		switch (type) {
+		case "sequence":
+			generator = new Sequence(notEmpty(xml.attribute(node, "name"), "name"));
+			break;
+		case "table":
+			generator = new HiLo(
+				ifEmpty(xml.attribute(node, "table"), () -> HiLo.TABLE),
+				ifEmpty(xml.attribute(node, "name"), () -> defaultName),
+				ifEmpty(xml.attribute(node, "keyColumn"), () -> HiLo.KEY_COLUMN),
+				ifEmpty(xml.attribute(node, "valueColumn"), () -> HiLo.VALUE_COLUMN)
+			);
+			break;
+		case "time":
+			String nodeID = xml.attribute(node, "node");
+			generator = isEmpty(nodeID) ? new TimeOrdered() : new TimeOrdered(Integer.parseInt(nodeID));
+			break;
+		default: throw new IllegalArgumentException("Unknown generator type: " + type);
+		}
+
+		generator.property = notEmpty(xml.attribute(node, "property"), "property");
+		String str = xml.attribute(node, "allocationSize");
+		if (!isEmpty(str) && generator instanceof Blocks)
+			((Blocks)generator).setAllocationSize(Integer.parseInt(str));
+		str = xml.attribute(node, "format");
+		if (!isEmpty(str))
+			generator.format = str;
+		return generator;
+	}
+
+	private String
+		property,
+		format;
+
+	/**Returns the name of the property the generated IDs are set to.
+	 * @return name of the property
+	 */
+	public String getProperty() {
+		return property;
+	}
+
+	/**Sets the name of the property the generated IDs are set to.
+	 * @param property name of the property
+	 * @return this IdGenerator
+	 */
+	public IdGenerator setProperty(String property) {
+		this.property = property;
+		return this;
+	}
+
+	/**Sets the format of the generated IDs.<br />
+	 * If set, an ID is returned as a String formatted with {@link String#format(String, Object...)}, like "%05d".
+	 * @param format format of the generated IDs
+	 * @return this IdGenerator
+	 */
+	public IdGenerator setFormat(String format) {
+		this.format = format;
+		return this;
+	}
+
+	/**Returns whether the ID of the object is yet to be generated.<br />
+	 * The ID is not set if the value of the property is null, or 0 if the property is of a primitive type.
+	 * @param obj	an object
+	 * @param value	value of the property
+	 * @return
+	 * <ul><li>true if the ID is not set</li>
+	 * 	   <li>false otherwise</li>
+	 * </ul>
+	 */
+	public boolean isUnset(Object obj, Object value) {
+		if (value == null) return true;
+		return value instanceof Number
+			&& ((Number)value).doubleValue() == 0
+			&& BeanProperty.isPrimitive(obj, property);
+	}
+
+	/**Returns a new ID.
+	 * @param dbaccess DBAccess to the database
+	 * @return new ID as a Long, or as a String if the format is set
+	 */
+	public Object next(DBAccess dbaccess) {
+		long id = nextLong(dbaccess);
+		return isEmpty(format) ? (Object)id : String.format(format, id);
+	}
+
+	/**Returns a new ID.
+	 * @param dbaccess DBAccess to the database
+	 * @return new ID
+	 */
+	protected abstract long nextLong(DBAccess dbaccess);
+
+	/**IdGenerator that hands out the IDs from blocks reserved from the database.
+	 */
+	public static abstract class Blocks extends IdGenerator {
+		private int allocationSize = 50;
+		private volatile Block block;
+
+		/**Returns the number of IDs reserved at a time.
+		 * @return number of IDs reserved at a time
+		 */
+		public int getAllocationSize() {
+			return allocationSize;
+		}
+
+		/**Sets the number of IDs reserved at a time.<br />
+		 * The default is 50.
+		 * @param allocationSize number of IDs reserved at a time
+		 * @return this IdGenerator
+		 */
+		public Blocks setAllocationSize(int allocationSize) {
+			if (allocationSize < 1)
+				throw new IllegalArgumentException("allocationSize < 1");
+			this.allocationSize = allocationSize;
+			return this;
+		}
+
+		@Override
+		protected long nextLong(DBAccess dbaccess) {
+			for (;;) {
+				Block current = block;
+				if (current != null) {
+					long id = current.next.getAndIncrement();
+					if (id < current.end)
+						return id;
+				}
+				synchronized (this) {
+					if (block == current)
+						try {
+							int size = allocationSize;
+							long start = reserve(dbaccess, size);
+							block = new Block(start, start + size);
+							log().debug(() -> "IDs reserved: " + start + " ~ " + (start + size - 1));
+						} catch (Exception e) {
+							throw runtimeException(e);
+						}
+				}
+			}
+		}
+
+		/**Reserves a block of IDs and returns the first ID of the block.
+		 * @param dbaccess	DBAccess to the database
+		 * @param size		number of IDs to reserve
+		 * @return first ID of the block
+		 * @throws Exception
+		 */
+		protected abstract long reserve(DBAccess dbaccess, int size) throws Exception;
+
+		private static class Block {
+			private final AtomicLong next;
+			private final long end;
+
+			Block(long start, long end) {
+				this.next = new AtomicLong(start);
+				this.end = end;
+			}
+		}
+	}
+
+	/**IdGenerator that reserves a block of IDs from a database sequence.
+	 * <p>The sequence must be created to increment by the allocation size.
+	 * A value from the sequence is the first ID of a block.
+	 * </p>
+	 * <pre><code> CREATE SEQUENCE ORDER_SEQ START WITH 1 INCREMENT BY 50</code></pre>
+	 * <p>On the first reservation, the Sequence gets two values from the sequence and
+	 * fails if they are apart by less than the allocation size, because the blocks would overlap with those of other processes.
+	 * The gap from the previous block is checked on every reservation as well.
+	 * </p>
+	 */
+	public static class Sequence extends Blocks {
+		private final String name;
+		private long last = Long.MIN_VALUE;
+
+		/**Creates a new Sequence.
+		 * @param name name of the database sequence
+		 */
+		public Sequence(String name) {
+			this.name = notEmpty(name, "name");
+		}
+
+		@Override
+		protected long reserve(DBAccess dbaccess, int size) throws Exception {
+			String statement = dbaccess.getDialect().nextValue(name);
+			boolean close = dbaccess.open();
+			try (Statement stmt = dbaccess.getConnection().createStatement()) {
+				if (last == Long.MIN_VALUE)
+					last = nextValue(stmt, statement);
+				long start = nextValue(stmt, statement);
+				if (start - last < size)
+					throw new IllegalStateException("The sequence " + name + " must increment by the allocation size " + size + " or more: " + last + " -> " + start);
+				return last = start;
+			} finally {
+				if (close)
+					dbaccess.close();
+			}
+		}
+
+		private long nextValue(Statement stmt, String statement) throws Exception {
+			try (ResultSet resultset = stmt.executeQuery(statement)) {
+				if (!resultset.next())
+					throw new IllegalStateException("No value from the sequence " + name);
+				return resultset.getLong(1);
+			}
+		}
+	}
+
+	/**IdGenerator that reserves a block of IDs from a row of a database table.
+	 * <p>The row holds the first ID of the next block, which is incremented by the allocation size on reservation.
+	 * The row is updated and committed in a connection of its own so that the row is not locked during the caller's transaction.<br />
+	 * If the row does not exist, it is inserted for the IDs to start with 1.
+	 * If another process inserts the row first, the row is updated instead.
+	 * </p>
+	 * <pre><code> CREATE TABLE ID_GENERATOR (
+	 *     GEN_NAME VARCHAR(64) PRIMARY KEY,
+	 *     GEN_VALUE BIGINT NOT NULL
+	 * )</code></pre>
+	 */
+	public static class HiLo extends Blocks {
+		static final String
+			TABLE = "ID_GENERATOR",
+			KEY_COLUMN = "GEN_NAME",
+			VALUE_COLUMN = "GEN_VALUE";
+
+		private final String
+			update,
+			select,
+			insert,
+			name;
+
+		/**Creates a new HiLo.
+		 * @param table			name of the table
+		 * @param name			value of the key column for the row
+		 * @param keyColumn		name of the key column
+		 * @param valueColumn	name of the column holding the first ID of the next block
+		 */
+		public HiLo(String table, String name, String keyColumn, String valueColumn) {
+			this.name = notEmpty(name, "name");
+			update = "UPDATE " + table + " SET " + valueColumn + " = " + valueColumn + " + ? WHERE " + keyColumn + " = ?";
+			select = "SELECT " + valueColumn + " FROM " + table + " WHERE " + keyColumn + " = ?";
+			insert = "INSERT INTO " + table + " (" + keyColumn + ", " + valueColumn + ") VALUES (?, ?)";
+		}
+
+		@Override
+		protected long reserve(DBAccess dbaccess, int size) throws Exception {
+			try (Connection connection = dbaccess.getDatasource().getConnection()) {
+				boolean autoCommit = connection.getAutoCommit();
+				connection.setAutoCommit(false);
+				try {
+					long start = reserve(connection, size);
+					connection.commit();
+					return start;
+				} catch (Exception e) {
+					connection.rollback();
+					throw e;
+				} finally {
+					connection.setAutoCommit(autoCommit);
+				}
+			}
+		}
+
+		private long reserve(Connection connection, int size) throws Exception {
+			Long start = update(connection, size);
+			if (start != null) return start;
+
+			try (PreparedStatement pstmt = connection.prepareStatement(insert)) {
+				pstmt.setString(1, name);
+				pstmt.setLong(2, 1 + size);
+				pstmt.executeUpdate();
+				return 1;
+			} catch (SQLException e) {
+				connection.rollback();
+				start = update(connection, size);
+				if (start == null)
+					throw e;
+				return start;
+			}
+		}
+
+		private Long update(Connection connection, int size) throws Exception {
+			try (PreparedStatement pstmt = connection.prepareStatement(update)) {
+				pstmt.setLong(1, size);
+				pstmt.setString(2, name);
+				if (pstmt.executeUpdate() < 1)
+					return null;
+			}
+			try (PreparedStatement pstmt = connection.prepareStatement(select)) {
+				pstmt.setString(1, name);
+				try (ResultSet resultset = pstmt.executeQuery()) {
+					resultset.next();
+					return resultset.getLong(1) - size;
+				}
+			}
+		}
+	}
+
+	/**IdGenerator that generates time-ordered IDs without accessing the database.
+	 * <p>An ID is a positive long composed of
+	 * <ul><li>41 bits of the milliseconds since 2020-01-01T00:00:00Z</li>
+	 * 	   <li>10 bits of the node ID</li>
+	 * 	   <li>12 bits of a counter within a millisecond</li>
+	 * </ul>
+	 * The IDs from an IdGenerator are unique and increasing.
+	 * If more than 4096 IDs are requested in a millisecond, the IDs of the next millisecond are used in advance.<br />
+	 * To keep the IDs unique across processes, give each process a different node ID.
+	 * </p>
+	 */
+	public static class TimeOrdered extends IdGenerator {
+		private static final long EPOCH = 1577836800000L;
+		private static final int
+			NODE_BITS = 10,
+			COUNTER_BITS = 12;
+
+		private final long node;
+		private final AtomicLong last = new AtomicLong();
+
+		/**Creates a new TimeOrdered with a random node ID.
+		 */
+		public TimeOrdered() {
+			this(new SecureRandom().nextInt(1 << NODE_BITS));
+		}
+
+		/**Creates a new TimeOrdered.
+		 * @param node node ID between 0 and 1023
+		 */
+		public TimeOrdered(int node) {
+			if (node < 0 || node >= 1 << NODE_BITS)
+				throw new IllegalArgumentException("node out of range [0, 1023]: " + node);
+			this.node = node;
+		}
+
+		@Override
+		protected long nextLong(DBAccess dbaccess) {
+			long now = (System.currentTimeMillis() - EPOCH) << COUNTER_BITS,
+				 stamp = last.accumulateAndGet(now, (prev, time) -> time > prev ? time : prev + 1),
+				 time = stamp >>> COUNTER_BITS,
+				 counter = stamp & ((1 << COUNTER_BITS) - 1);
+			return time << (NODE_BITS + COUNTER_BITS) | node << COUNTER_BITS | counter;
+		}
+	}
+}
\ No newline at end of file
@@ -368,6 +368,7 @@ public abstract class Instruction extends AbstractComponent {
 			targetProperties,
 			sourceColumns,
 			sourceProperties;
+		private boolean chunkScoped;
 
 		public List<String> getTargetProperties() {
 			return ifEmpty(targetProperties, Collections::emptyList);
@@ -381,6 +382,10 @@ public abstract class Instruction extends AbstractComponent {
 			return ifEmpty(sourceProperties, Collections::emptyList);
 		}
 
+		public boolean isChunkScoped() {
+			return chunkScoped;
+		}
+
 		@Override
 		protected void configure(Node node) {
 			String str = xml.attribute(node, "set");
@@ -398,6 +403,13 @@ public abstract class Instruction extends AbstractComponent {
 					if (targetProperties.size() != sourceColumns.size())
 						throw new RuntimeException("The items of the 'set' and 'columns' attributes must match in number");
 
+					str = ifEmpty(xml.attribute(node, "scope"), () -> "object");
+					switch (str) {
+					case "object": break;
+					case "chunk": chunkScoped = true; break;
+					default: throw new RuntimeException("The 'scope' attribute must be either 'object' or 'chunk': " + str);
+					}
+
 				} else {
 					str = xml.attribute(node, "properties");
 					if (!isEmpty(str)) {
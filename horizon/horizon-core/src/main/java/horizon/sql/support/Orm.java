@@ -2,53 +2,150 @@
 
 package horizon.sql.support;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
-import java.util.function.Function;
+import java.util.Objects;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.w3c.dom.Element;
 
 import horizon.base.AbstractComponent;
 import horizon.base.Klass;
+import horizon.data.Convert;
 import horizon.data.StringMap;
 import horizon.sql.DBAccess;
+import horizon.util.LRUCache;
 import horizon.util.Xmlement;
 
 public class Orm extends AbstractComponent {
-	private static final HashMap<Class<?>, Orm> cache = new HashMap<>();
-	private static final HashMap<String, Orm> byAlias = new HashMap<>();
+	private static final ConcurrentHashMap<Class<?>, Orm> cache = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<String, Orm> byAlias = new ConcurrentHashMap<>();
+	private static volatile boolean defined;
 
 	public static Orm get(Class<?> klass) {
-		Orm orm = cache.get(klass);
+		Orm orm = find(klass);
 		if (orm == null)
 			throw new NullPointerException(Orm.class.getName() + " not found for " + klass.getName());
 		return orm;
 	}
 
+	/**Returns the Orm for the class.
+	 * @param klass a class
+	 * @return Orm for the class, or null if not found
+	 */
+	public static Orm find(Class<?> klass) {
+		Orm orm = cache.get(klass);
+		if (orm == null && define())
+			orm = cache.get(klass);
+		return orm;
+	}
+
 	public static Orm by(String alias) {
 		Orm orm = byAlias.get(alias);
+		if (orm == null && define())
+			orm = byAlias.get(alias);
 		if (orm == null)
 			throw new NullPointerException(Orm.class.getName() + " not found with alias '" + alias + "'");
 		return orm;
 	}
 
+	/**Registers the Orm defined without an {@code <orm../>} instruction in an sqlsheet.<br />
+	 * If the Orm is {@link #setTable(Table) set with a Table}, the table is not read from the database's meta data.
+	 * @param orm Orm with the type, table, and mappings set
+	 * @return
+	 * <ul><li>true if the Orm is registered</li>
+	 * 	   <li>false if an Orm is already registered for the type</li>
+	 * </ul>
+	 */
+	public static boolean register(Orm orm) {
+		Class<?> klass = notEmpty(notEmpty(orm, "orm").type, "type");
+		if (cache.putIfAbsent(klass, orm) != null) {
+			log(Orm.class).warn(() -> "Duplicate " + Orm.class.getSimpleName() + "s found for " + klass.getName() + ".\nThe first entry will be used and the rest are discarded.");
+			return false;
+		}
+		if (orm.tableInfo != null)
+			orm.tableResolved = true;
+		if (!isEmpty(orm.alias) && byAlias.putIfAbsent(orm.alias, orm) != null)
+			log(Orm.class).warn(() -> "Duplicate alias found: " + orm.alias + ".\nThe first entry will be used and the rest are discarded.");
+		return true;
+	}
+
+	/**Registers the Orms of the {@link OrmDefinition}s found with the ServiceLoader once.
+	 * @return
+	 * <ul><li>true if the Orms are registered by the call</li>
+	 * 	   <li>false if already registered</li>
+	 * </ul>
+	 */
+	private static boolean define() {
+		if (defined) return false;
+
+		synchronized (Orm.class) {
+			if (defined) return false;
+
+			int count = 0;
+			for (OrmDefinition definition: ServiceLoader.load(OrmDefinition.class)) {
+				if (register(definition.define()))
+					++count;
+			}
+			defined = true;
+			int total = count;
+			if (total > 0)
+				log(Orm.class).debug(() -> total + " " + Orm.class.getSimpleName() + "(s) registered from the " + OrmDefinition.class.getSimpleName() + "s");
+			return true;
+		}
+	}
+
 	public static Orm get(Class<?> klass, DBAccess dbaccess) {
 		Orm orm = get(klass);
-		if (orm.tableResolved) return orm;
+		if (!orm.tableResolved)
+			orm.resolveTable(dbaccess);
+		return orm;
+	}
+
+	/**Resolves the tables of all the Orms in advance so that the first requests do not read the database's meta data.<br />
+	 * The tables not {@link Table#restore(java.nio.file.Path) restored} yet are read with a call for the columns of them all.
+	 * @param dbaccess DBAccess to the database
+	 * @return number of the tables read from the database
+	 */
+	public static int preload(DBAccess dbaccess) {
+		define();
+		List<Orm> orms = cache.values().stream()
+			.filter(orm -> !orm.tableResolved && !isEmpty(orm.getTable()))
+			.collect(Collectors.toList());
+		if (orms.isEmpty()) return 0;
 
 		boolean close = dbaccess.open();
 		try {
-			Table table = Table.get(notEmpty(orm.getTable(), "table"), dbaccess);
-			orm.setTable(table);
-			orm.tableResolved = true;
-			return orm;
+			int loaded = Table.load(orms.stream().map(Orm::getTable).collect(Collectors.toList()), dbaccess);
+			orms.forEach(orm -> orm.resolveTable(dbaccess));
+			log(Orm.class).debug(() -> "Tables resolved for " + orms.size() + " " + Orm.class.getSimpleName() + "(s)");
+			return loaded;
+		} finally {
+			if (close)
+				dbaccess.close();
+		}
+	}
+
+	private synchronized void resolveTable(DBAccess dbaccess) {
+		if (tableResolved) return;
+
+		boolean close = dbaccess.open();
+		try {
+			setTable(Table.get(notEmpty(getTable(), "table"), dbaccess));
+			tableResolved = true;
 		} catch (Exception e) {
-			orm.tableResolved = false;
 			throw runtimeException(e);
 		} finally {
 			if (close)
@@ -59,10 +156,11 @@ public class Orm extends AbstractComponent {
 	public static void clear() {
 		cache.clear();
 		byAlias.clear();
+		defined = false;
 		log(Orm.class).trace(() -> Orm.class.getSimpleName() + " cleared");
 	}
 
-	private boolean tableResolved;
+	private volatile boolean tableResolved;
 	private Class<?> type;
 	private String
 		table,
@@ -77,7 +175,27 @@ public class Orm extends AbstractComponent {
 		insert,
 		update,
 		delete;
+	private Table tableInfo;
+	private List<Column>
+		mappedColumns,
+		insertColumns,
+		nonKeyColumns,
+		keyColumns;
+	private List<Column.Token> keyTokens;
+	private HashMap<Integer, String> inserts;
+	private LRUCache<String, String> updates;
+	private HashMap<String, String>
+		upserts,
+		selects,
+		deletes;
+	private LRUCache<String, String> selectsBy;
+	private boolean tracking;
+	private Accessor<Object> accessor;
+	private StringMap<Integer> indexes;
+	private Snapshots snapshots;
 	private StringMap<List<Instruction>> beforeAfters;
+	private StringMap<Association> associations;
+	private List<IdGenerator> generators;
 
 	/**Returns the type.
 	 * @return the type
@@ -92,6 +210,14 @@ public class Orm extends AbstractComponent {
 		return THIS;
 	}
 
+	/**Returns the name that refers to the object of the row at the index in a {@link #getInsert(int) multi-row INSERT}, {@link #getSelect(int, Dialect) SELECT}, or {@link #getDelete(int, Dialect) DELETE statement}.
+	 * @param index 0-based index of the row
+	 * @return name that refers to the object of the row
+	 */
+	public String objRef(int index) {
+		return THIS + index;
+	}
+
 	/**Sets the type.
 	 * @param type the type to set
 	 */
@@ -120,22 +246,34 @@ public class Orm extends AbstractComponent {
 
 		String ref = objRef();
 		List<Column> specified = table.getColumns(byColumn.keySet().toArray(new String[byColumn.size()]));
-		Function<List<Column>, List<Column.Token>> toColumnTokens = columns -> columns.stream()
-			.map(column -> Column.Token.create(column).setToken("#{" + ref + "." + getMapping(column).getProperty() + "}"))
+
+		insert = table.insert(toColumnTokens(specified, ref));
+		tableInfo = table;
+		mappedColumns = specified;
+		upserts = null;
+		insertColumns = specified.stream()
+			.filter(column -> !table.getAutoInc().contains(column))
 			.collect(Collectors.toList());
+		inserts = null;
 
-		insert = table.insert(toColumnTokens.apply(specified));
+		List<Column> keyColumns = table.getKeys();
+		nonKeyColumns = specified.stream().filter(column -> !keyColumns.contains(column)).collect(Collectors.toList());
+		keyTokens = toColumnTokens(keyColumns, ref);
+		this.keyColumns = keyColumns;
+		updates = null;
+		selects = null;
+		selectsBy = null;
+		deletes = null;
 
-		List<Column>
-			keyColumns = table.getKeys(),
-			nonKeyColumns = specified.stream().filter(column -> !keyColumns.contains(column)).collect(Collectors.toList());
+		update = table.update(toColumnTokens(nonKeyColumns, ref), keyTokens);
+		delete = table.delete(keyTokens);
+		select = table.select(keyTokens).replace(ref + ".", "");
+	}
 
-		List<Column.Token>
-			nonKeys = toColumnTokens.apply(nonKeyColumns),
-			keys = toColumnTokens.apply(keyColumns);
-		update = table.update(nonKeys, keys);
-		delete = table.delete(keys);
-		select = table.select(keys).replace(ref + ".", "");
+	private List<Column.Token> toColumnTokens(List<Column> columns, String ref) {
+		return columns.stream()
+			.map(column -> Column.Token.create(column).setToken("#{" + ref + "." + getMapping(column).getProperty() + "}"))
+			.collect(Collectors.toList());
 	}
 
 	/**Returns the alias.
@@ -160,10 +298,131 @@ public class Orm extends AbstractComponent {
 		return select;
 	}
 
+	/**Returns a SELECT statement that selects the number of rows by their keys.<br />
+	 * The keys of each row are referred to by {@link #objRef(int)}.
+	 * The keys of multiple columns are matched in the syntax {@link Dialect#supportsRowValues() the Dialect supports}.
+	 * @param rows		number of rows
+	 * @param dialect	Dialect of the database
+	 * @return SELECT statement
+	 */
+	public String getSelect(int rows, Dialect dialect) {
+		synchronized (this) {
+			if (selects == null)
+				selects = new HashMap<>();
+			boolean rowValues = dialect.supportsRowValues();
+			return selects.computeIfAbsent(rows + (rowValues ? "" : "-"), key -> tableInfo.selectRows(keyTokens(rows), rowValues));
+		}
+	}
+
+	/**Returns a SELECT statement that selects the rows whose columns of the properties match any of the number of rows.<br />
+	 * The values of each row are referred to by {@link #objRef(int)}.
+	 * <pre><code> SELECT * FROM LINE_ITEM WHERE ORD_ID IN (#{_this0.orderID}, #{_this1.orderID})</code></pre>
+	 * @param properties	names of the properties
+	 * @param rows			number of rows
+	 * @param dialect		Dialect of the database
+	 * @return SELECT statement
+	 */
+	public String getSelect(List<String> properties, int rows, Dialect dialect) {
+		boolean rowValues = dialect.supportsRowValues();
+		String key = String.join(",", properties) + ":" + rows + (rowValues ? "" : "-");
+		synchronized (this) {
+			if (selectsBy == null)
+				selectsBy = new LRUCache<>(64);
+			String statement = selectsBy.get(key);
+			if (statement == null) {
+				List<Column> columns = properties.stream()
+					.map(property -> {
+						String column = getColumn(property);
+						Column info = column != null ? tableInfo.get(column) : null;
+						if (info == null)
+							throw new RuntimeException("No column mapped to " + type.getName() + "." + property);
+						return info;
+					})
+					.collect(Collectors.toList());
+				ArrayList<List<Column.Token>> tokens = new ArrayList<>(rows);
+				for (int i = 0; i < rows; ++i)
+					tokens.add(toColumnTokens(columns, objRef(i)));
+				selectsBy.put(key, statement = tableInfo.selectRows(tokens, rowValues));
+			}
+			return statement;
+		}
+	}
+
 	public String getInsert() {
 		return insert;
 	}
 
+	/**Returns an INSERT statement that inserts the number of rows.<br />
+	 * The object of each row is referred to by {@link #objRef(int)}.
+	 * @param rows number of rows
+	 * @return INSERT statement
+	 */
+	public String getInsert(int rows) {
+		synchronized (this) {
+			if (inserts == null)
+				inserts = new HashMap<>();
+			return inserts.computeIfAbsent(rows, count -> {
+				ArrayList<List<Column.Token>> tokens = new ArrayList<>(count);
+				for (int i = 0; i < count; ++i) {
+					String ref = objRef(i);
+					tokens.add(insertColumns.stream()
+						.map(column -> Column.Token.create(column).setToken("#{" + ref + "." + getMapping(column).getProperty() + "}"))
+						.collect(Collectors.toList())
+					);
+				}
+				return tableInfo.insertRows(tokens);
+			});
+		}
+	}
+
+	/**Returns a statement that inserts an object or updates it if a row with the same keys exists.<br />
+	 * The statement is written in the syntax of {@link Dialect#getUpsert() the Dialect's upsert}
+	 * and sets all the mapped columns, including the keys and auto-incremented columns.
+	 * @param dialect Dialect of the database
+	 * @return upsert statement
+	 * @throws UnsupportedOperationException if the Dialect does not support upsert statements
+	 */
+	public String getUpsert(Dialect dialect) {
+		synchronized (this) {
+			if (upserts == null)
+				upserts = new HashMap<>();
+			return upserts.computeIfAbsent(dialect.getName(), name -> tableInfo.upsert(toColumnTokens(mappedColumns, objRef()), keyTokens, dialect));
+		}
+	}
+
+	/**Returns an UPDATE statement that sets the columns of the properties only.<br />
+	 * The statements are cached by the properties.
+	 * @param properties names of the changed properties. If null, all the columns are set.
+	 * @return UPDATE statement, or null if none of the properties are mapped to non-key columns
+	 */
+	public String getUpdate(List<String> properties) {
+		if (properties == null) return update;
+		if (properties.isEmpty()) return null;
+
+		String key = String.join(",", properties);
+		synchronized (this) {
+			if (updates == null)
+				updates = new LRUCache<>(64);
+			String statement = updates.get(key);
+			if (statement == null) {
+				List<Column> columns = nonKeyColumns.stream()
+					.filter(column -> properties.contains(getMapping(column).getProperty()))
+					.collect(Collectors.toList());
+				if (columns.isEmpty()) return null;
+
+				updates.put(key, statement = tableInfo.update(toColumnTokens(columns, objRef()), keyTokens));
+			}
+			return statement;
+		}
+	}
+
+	/**Returns the number of columns an INSERT statement sets for a row.
+	 * @return number of columns an INSERT statement sets for a row
+	 */
+	public int getInsertColumnCount() {
+		return insertColumns != null ? insertColumns.size() : 0;
+	}
+
 	public String getUpdate() {
 		return update;
 	}
@@ -172,6 +431,47 @@ public class Orm extends AbstractComponent {
 		return delete;
 	}
 
+	/**Returns the number of the key columns.
+	 * @return number of the key columns
+	 */
+	public int getKeyCount() {
+		return keyColumns != null ? keyColumns.size() : 0;
+	}
+
+	/**Returns a DELETE statement that deletes the number of rows by their keys.<br />
+	 * The object of each row is referred to by {@link #objRef(int)}.
+	 * The keys of multiple columns are matched in the syntax {@link Dialect#supportsRowValues() the Dialect supports}.
+	 * @param rows		number of rows
+	 * @param dialect	Dialect of the database
+	 * @return DELETE statement
+	 */
+	public String getDelete(int rows, Dialect dialect) {
+		synchronized (this) {
+			if (deletes == null)
+				deletes = new HashMap<>();
+			boolean rowValues = dialect.supportsRowValues();
+			return deletes.computeIfAbsent(rows + (rowValues ? "" : "-"), key -> tableInfo.deleteRows(keyTokens(rows), rowValues));
+		}
+	}
+
+	private List<List<Column.Token>> keyTokens(int rows) {
+		ArrayList<List<Column.Token>> tokens = new ArrayList<>(rows);
+		for (int i = 0; i < rows; ++i)
+			tokens.add(toColumnTokens(keyColumns, objRef(i)));
+		return tokens;
+	}
+
+	/**Returns the properties mapped to the key columns.
+	 * @return properties mapped to the key columns
+	 */
+	public List<String> getKeyProperties() {
+		if (keyColumns == null) return Collections.emptyList();
+
+		return keyColumns.stream()
+			.map(column -> getMapping(column).getProperty())
+			.collect(Collectors.toList());
+	}
+
 	public Collection<Mapping> getMappings() {
 		return byProperty.values();
 	}
@@ -201,6 +501,20 @@ public class Orm extends AbstractComponent {
 		return mapping != null ? mapping.property : null;
 	}
 
+	/**Maps the property to the column.<br />
+	 * The mappings are indexed in the order they are set, for {@link #getAccessor() the Accessor}.
+	 * @param property	property of the class
+	 * @param column	column of the table
+	 * @return this Orm
+	 */
+	public Orm setMapping(String property, String column) {
+		Mapping mapping = new Mapping();
+		mapping.property = notEmpty(property, "property");
+		mapping.column = notEmpty(column, "column");
+		setMapping(mapping);
+		return this;
+	}
+
 	private void setMapping(Mapping mapping) {
 		if (mapping == null) return;
 
@@ -214,6 +528,303 @@ public class Orm extends AbstractComponent {
 		byColumn.put(mapping.column, mapping);
 	}
 
+	/**Returns whether the Orm tracks the changes of the objects to UPDATE the changed columns only.
+	 * @return
+	 * <ul><li>true if the Orm tracks the changes of the objects</li>
+	 * 	   <li>false otherwise</li>
+	 * </ul>
+	 */
+	public boolean isTracking() {
+		return tracking;
+	}
+
+	/**Sets whether the Orm tracks the changes of the objects to UPDATE the changed columns only.<br />
+	 * If tracking, the Orm keeps snapshots of the objects a Query loads and an Update creates or updates,
+	 * without keeping the objects from garbage collection.
+	 * @param tracking whether to track the changes of the objects
+	 * @return this Orm
+	 */
+	public Orm setTracking(boolean tracking) {
+		this.tracking = tracking;
+		if (!tracking)
+			snapshots = null;
+		return this;
+	}
+
+	/**Returns the Accessor to the objects of the class.
+	 * @param <T> class of the objects
+	 * @return Accessor to the objects of the class, or null if not set
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Accessor<T> getAccessor() {
+		return (Accessor<T>)accessor;
+	}
+
+	/**Sets the Accessor to the objects of the class.<br />
+	 * With the Accessor, the objects are created, populated, and read without expressions or reflection.
+	 * Set the Accessor after the mappings are set.
+	 * @param accessor Accessor to the objects of the class
+	 * @return this Orm
+	 */
+	@SuppressWarnings("unchecked")
+	public Orm setAccessor(Accessor<?> accessor) {
+		this.accessor = (Accessor<Object>)accessor;
+		if (accessor == null) {
+			indexes = null;
+			return this;
+		}
+
+		indexes = new StringMap<>();
+		int i = 0;
+		for (Mapping mapping: getMappings())
+			indexes.put(mapping.property, i++);
+		return this;
+	}
+
+	/**Returns the value of the property with {@link #getAccessor() the Accessor}.
+	 * @param obj		an object of the class
+	 * @param property	name of the property
+	 * @return value of the property, or {@link BeanProperty#UNKNOWN} if the property is not accessible with the Accessor
+	 */
+	Object access(Object obj, String property) {
+		Integer index = indexes != null ? indexes.get(property) : null;
+		return index != null ? accessor.get(obj, index) : BeanProperty.UNKNOWN;
+	}
+
+	/**Returns the value of the property of the object.<br />
+	 * The value is read with {@link #getAccessor() the Accessor} if set, or with the exproc otherwise.
+	 * @param obj		an object of the class
+	 * @param property	name of the property
+	 * @param exproc	EXProcessor to get the property value with
+	 * @return value of the property
+	 */
+	public Object getValue(Object obj, String property, EXProcessor exproc) {
+		Object value = access(obj, property);
+		if (value != BeanProperty.UNKNOWN) return value;
+
+		String objRef = objRef();
+		exproc.setBean(objRef, obj);
+		return exproc.getValue(objRef + "." + property);
+	}
+
+	/**Converts the value to the type of the property to compare it with the values of the property.<br />
+	 * Numbers and strings are converted to the numeric types, strings to Boolean and Character,
+	 * and dates to the date type of the property.
+	 * @param property	name of the property
+	 * @param value		value to convert
+	 * @return
+	 * <ul><li>value converted to the type of the property</li>
+	 * 	   <li>the value as it is if it is null or of the type, or if the type of the property is not known</li>
+	 * </ul>
+	 * @throws IllegalArgumentException if the value cannot be converted to the type of the property
+	 */
+	public Object convert(String property, Object value) {
+		Class<?> type = BeanProperty.typeOf(this.type, property);
+		if (value == null || type == null) return value;
+
+		boolean date = value instanceof java.util.Date && java.util.Date.class.isAssignableFrom(type);
+		if (date ? value.getClass() == type : type.isInstance(value)) return value;
+
+		try {
+			if (date) {
+				long time = ((java.util.Date)value).getTime();
+				if (Timestamp.class.equals(type)) return new Timestamp(time);
+				if (java.sql.Date.class.equals(type)) return new java.sql.Date(time);
+				if (java.util.Date.class.equals(type)) return new java.util.Date(time);
+			} else if (Convert.isNumber(type) && (value instanceof Number || value instanceof String)) {
+				Object number = toNumber(type, new BigDecimal(value.toString().trim()));
+				if (number != null) return number;
+			} else if (value instanceof String)
+				return Convert.toObject(type, (String)value);
+		} catch (Exception e) {
+			throw new IllegalArgumentException(inconvertible(property, value, type) + ": " + rootCause(e).getMessage());
+		}
+		throw new IllegalArgumentException(inconvertible(property, value, type));
+	}
+
+	private String inconvertible(String property, Object value, Class<?> type) {
+		return String.format("Unable to convert %s(%s) to %s for %s.%s", value, value.getClass().getName(), type.getName(), this.type.getName(), property);
+	}
+
+	private static Object toNumber(Class<?> type, BigDecimal value) {
+		if (Long.class.equals(type)) return value.longValueExact();
+		if (Integer.class.equals(type)) return value.intValueExact();
+		if (Short.class.equals(type)) return value.shortValueExact();
+		if (Byte.class.equals(type)) return value.byteValueExact();
+		if (BigDecimal.class.equals(type)) return value;
+		if (BigInteger.class.equals(type)) return value.toBigIntegerExact();
+		if (Double.class.equals(type)) return value.doubleValue();
+		if (Float.class.equals(type)) return value.floatValue();
+		return null;
+	}
+
+	/**Sets the value to the property of the object.<br />
+	 * The value is set with {@link #getAccessor() the Accessor} if the property is mapped,
+	 * with the setter if the value is assignable to the property, or with the exproc otherwise.
+	 * @param obj		an object of the class
+	 * @param property	name of the property
+	 * @param value		value of the property
+	 * @param exproc	EXProcessor to set the property value with
+	 */
+	public void setValue(Object obj, String property, Object value, EXProcessor exproc) {
+		Integer index = indexes != null ? indexes.get(property) : null;
+		if (index != null)
+			accessor.set(obj, index, value);
+		else if (!BeanProperty.set(obj, property, value)) {
+			String objRef = objRef();
+			exproc.setBean(objRef, obj);
+			exproc.setValue(objRef + "." + property, value);
+		}
+	}
+
+	/**Returns the associations of the Orm.
+	 * @return associations of the Orm
+	 */
+	public Collection<Association> getAssociations() {
+		return associations != null ? associations.values() : Collections.emptyList();
+	}
+
+	/**Returns the association of the property.
+	 * @param property name of the property
+	 * @return association of the property, or null if not found
+	 */
+	public Association getAssociation(String property) {
+		return associations != null ? associations.get(property) : null;
+	}
+
+	/**Adds the association.
+	 * @param association association to another Orm
+	 * @return this Orm
+	 */
+	public Orm addAssociation(Association association) {
+		if (associations == null)
+			associations = new StringMap<>();
+		associations.put(notEmpty(association.property, "property"), association);
+		return this;
+	}
+
+	private Object[] getValues(Object obj, EXProcessor exproc) {
+		if (accessor != null) {
+			Object[] values = new Object[indexes.size()];
+			for (int i = 0; i < values.length; ++i)
+				values[i] = accessor.get(obj, i);
+			return values;
+		}
+
+		String objRef = objRef();
+		exproc.setBean(objRef, obj);
+		Collection<Mapping> mappings = getMappings();
+		Object[] values = new Object[mappings.size()];
+		int i = 0;
+		for (Mapping mapping: mappings)
+			values[i++] = exproc.getValue(objRef + "." + mapping.property);
+		return values;
+	}
+
+	/**Takes a snapshot of the object's properties if the Orm {@link #isTracking() is tracking}.
+	 * @param obj		object
+	 * @param exproc	EXProcessor to get the property values with
+	 * @see #takeSnapshot(Object, EXProcessor)
+	 */
+	public void snapshot(Object obj, EXProcessor exproc) {
+		if (!tracking || obj == null) return;
+
+		snapshot(obj, takeSnapshot(obj, exproc));
+	}
+
+	/**Returns the values of the object's properties to {@link #snapshot(Object, Object[]) keep as a snapshot} later.<br />
+	 * Dates and arrays are copied so that changing them in place is detected as a change.
+	 * Other mutable values are kept by reference, and changes made in place to them are not detected.
+	 * @param obj		object
+	 * @param exproc	EXProcessor to get the property values with
+	 * @return values of the object's properties
+	 */
+	public Object[] takeSnapshot(Object obj, EXProcessor exproc) {
+		Object[] values = getValues(obj, exproc);
+		for (int i = 0; i < values.length; ++i)
+			values[i] = copy(values[i]);
+		return values;
+	}
+
+	private static Object copy(Object value) {
+		if (value instanceof java.util.Date)
+			return ((java.util.Date)value).clone();
+		if (value instanceof Object[])
+			return ((Object[])value).clone();
+		if (value instanceof byte[])
+			return ((byte[])value).clone();
+		if (value instanceof char[])
+			return ((char[])value).clone();
+		return value;
+	}
+
+	/**Keeps the snapshot of the object's properties if the Orm {@link #isTracking() is tracking}.
+	 * @param obj		object
+	 * @param snapshot	values {@link #takeSnapshot(Object, EXProcessor) taken} from the object
+	 */
+	public void snapshot(Object obj, Object[] snapshot) {
+		if (!tracking || obj == null || snapshot == null) return;
+
+		synchronized (this) {
+			if (snapshots == null)
+				snapshots = new Snapshots();
+		}
+		snapshots.put(obj, snapshot);
+	}
+
+	/**Removes the snapshot of the object.
+	 * @param obj object
+	 */
+	public void forget(Object obj) {
+		Snapshots snapshots = this.snapshots;
+		if (snapshots != null)
+			snapshots.remove(obj);
+	}
+
+	/**Returns the names of the properties changed since the snapshot of the object was taken.
+	 * @param obj		object
+	 * @param exproc	EXProcessor to get the property values with
+	 * @return
+	 * <ul><li>names of the changed properties that are not mapped to the key columns</li>
+	 * 	   <li>null if the Orm is not tracking or there is no snapshot of the object</li>
+	 * </ul>
+	 */
+	public List<String> getChanges(Object obj, EXProcessor exproc) {
+		Snapshots snapshots = this.snapshots;
+		Object[] snapshot = snapshots != null ? snapshots.get(obj) : null;
+		if (snapshot == null) return null;
+
+		Object[] values = getValues(obj, exproc);
+		ArrayList<String> changes = new ArrayList<>();
+		int i = 0;
+		for (Mapping mapping: getMappings()) {
+			if (!Objects.deepEquals(snapshot[i], values[i]))
+				changes.add(mapping.property);
+			++i;
+		}
+		if (!changes.isEmpty() && nonKeyColumns != null)
+			changes.retainAll(nonKeyColumns.stream().map(column -> getMapping(column).property).collect(Collectors.toList()));
+		return changes;
+	}
+
+	/**Returns the IdGenerators that set the IDs of the objects before INSERTing them.
+	 * @return IdGenerators of the Orm
+	 */
+	public List<IdGenerator> getGenerators() {
+		return ifEmpty(generators, Collections::emptyList);
+	}
+
+	/**Adds an IdGenerator that sets the ID of the objects before INSERTing them.
+	 * @param generator IdGenerator
+	 * @return this Orm
+	 */
+	public Orm addGenerator(IdGenerator generator) {
+		if (generators == null)
+			generators = new ArrayList<>();
+		generators.add(notEmpty(generator, "generator"));
+		return this;
+	}
+
 	public List<Instruction> getBeforeInserts() {
 		return getBeforeAfters("beforeInsert");
 	}
@@ -226,6 +837,10 @@ public class Orm extends AbstractComponent {
 		return getBeforeAfters("beforeDelete");
 	}
 
+	public List<Instruction> getBeforeUpserts() {
+		return getBeforeAfters("beforeUpsert");
+	}
+
 	private List<Instruction> getBeforeAfters(String key) {
 		return isEmpty(beforeAfters) ? Collections.emptyList() :
 			   ifEmpty(beforeAfters.get(key), Collections::emptyList);
@@ -256,6 +871,159 @@ public class Orm extends AbstractComponent {
 		return String.format("%s{type:%s, table:\"%s\", mappings:[%s]}", getClass().getName(), type.getName(), table, str);
 	}
 
+	/**Association of an Orm's objects to the objects of another Orm by the values of their properties.<br />
+	 * An association is either
+	 * <ul><li>one-to-many, where the property is set with a List of the associated objects, like the line items of an order</li>
+	 * 	   <li>many-to-one, where the property is set with the associated object, like the customer of an order</li>
+	 * </ul>
+	 * The objects are associated if the values of the {@link #getKeys() keys} match those of the {@link #getReferences() references}.
+	 */
+	public static class Association {
+		private String
+			property,
+			type;
+		private boolean
+			many,
+			eager;
+		private List<String>
+			keys,
+			references;
+
+		/**Returns the property set with the associated objects.
+		 * @return the property
+		 */
+		public String getProperty() {
+			return property;
+		}
+
+		/**Sets the property set with the associated objects.
+		 * @param property the property to set
+		 * @return this Association
+		 */
+		public Association setProperty(String property) {
+			this.property = property;
+			return this;
+		}
+
+		/**Returns the class name or alias of the associated objects.
+		 * @return class name or alias of the associated objects
+		 */
+		public String getType() {
+			return type;
+		}
+
+		/**Sets the class name or alias of the associated objects.
+		 * @param type class name or alias of the associated objects
+		 * @return this Association
+		 */
+		public Association setType(String type) {
+			this.type = type;
+			return this;
+		}
+
+		/**Returns the Orm of the associated objects.
+		 * @param dbaccess DBAccess to resolve the table of the Orm with
+		 * @return Orm of the associated objects
+		 */
+		public Orm getOrm(DBAccess dbaccess) {
+			Orm orm = byAlias.get(type);
+			return get(orm != null ? orm.type : Klass.of(type), dbaccess);
+		}
+
+		/**Returns whether the association is one-to-many.
+		 * @return
+		 * <ul><li>true if one-to-many</li>
+		 * 	   <li>false if many-to-one</li>
+		 * </ul>
+		 */
+		public boolean isMany() {
+			return many;
+		}
+
+		/**Sets whether the association is one-to-many.
+		 * @param many true if one-to-many, false if many-to-one
+		 * @return this Association
+		 */
+		public Association setMany(boolean many) {
+			this.many = many;
+			return this;
+		}
+
+		/**Returns whether the associated objects are loaded whenever a Query loads the objects of the Orm.
+		 * @return
+		 * <ul><li>true if the associated objects are loaded always</li>
+		 * 	   <li>false if loaded on {@link horizon.sql.Query#fetch(String...) request}</li>
+		 * </ul>
+		 */
+		public boolean isEager() {
+			return eager;
+		}
+
+		/**Sets whether the associated objects are loaded whenever a Query loads the objects of the Orm.
+		 * @param eager whether the associated objects are loaded always
+		 * @return this Association
+		 */
+		public Association setEager(boolean eager) {
+			this.eager = eager;
+			return this;
+		}
+
+		/**Returns the properties of the Orm's objects to match with the references.<br />
+		 * If not set, the key properties of the Orm for one-to-many, or the properties of the references for many-to-one.
+		 * @param orm Orm of the association
+		 * @return properties of the Orm's objects
+		 */
+		public List<String> getKeys(Orm orm) {
+			return !isEmpty(keys) ? keys : many ? orm.getKeyProperties() : references;
+		}
+
+		/**Returns the properties of the Orm's objects to match with the references.
+		 * @return properties of the Orm's objects
+		 */
+		public List<String> getKeys() {
+			return ifEmpty(keys, Collections::emptyList);
+		}
+
+		/**Sets the properties of the Orm's objects to match with the references.
+		 * @param keys properties of the Orm's objects
+		 * @return this Association
+		 */
+		public Association setKeys(List<String> keys) {
+			this.keys = keys;
+			return this;
+		}
+
+		/**Returns the properties of the associated objects to match with the keys.<br />
+		 * If not set, the key properties of the associated Orm for many-to-one, or the properties of the keys for one-to-many.
+		 * @param target Orm of the associated objects
+		 * @return properties of the associated objects
+		 */
+		public List<String> getReferences(Orm target) {
+			return !isEmpty(references) ? references : !many ? target.getKeyProperties() : keys;
+		}
+
+		/**Returns the properties of the associated objects to match with the keys.
+		 * @return properties of the associated objects
+		 */
+		public List<String> getReferences() {
+			return ifEmpty(references, Collections::emptyList);
+		}
+
+		/**Sets the properties of the associated objects to match with the keys.
+		 * @param references properties of the associated objects
+		 * @return this Association
+		 */
+		public Association setReferences(List<String> references) {
+			this.references = references;
+			return this;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s{property:\"%s\", type:\"%s\", many:%s, keys:%s, references:%s}", getClass().getName(), property, type, many, keys, references);
+		}
+	}
+
 	public static class Mapping {
 		private String
 			property,
@@ -295,6 +1063,63 @@ public class Orm extends AbstractComponent {
 		}
 	}
 
+	private static class Snapshots {
+		private final HashMap<Ref, Object[]> map = new HashMap<>();
+		private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+		synchronized Object[] get(Object obj) {
+			expunge();
+			return map.get(new Ref(obj, null));
+		}
+
+		synchronized void put(Object obj, Object[] values) {
+			expunge();
+			map.put(new Ref(obj, queue), values);
+		}
+
+		synchronized void remove(Object obj) {
+			expunge();
+			map.remove(new Ref(obj, null));
+		}
+
+		private void expunge() {
+			for (Reference<?> ref; (ref = queue.poll()) != null;)
+				map.remove(ref);
+		}
+
+		private static class Ref extends WeakReference<Object> {
+			private final int hash;
+
+			Ref(Object obj, ReferenceQueue<Object> queue) {
+				super(obj, queue);
+				hash = System.identityHashCode(obj);
+			}
+
+			@Override
+			public int hashCode() {
+				return hash;
+			}
+
+			@Override
+			public boolean equals(Object obj) {
+				if (this == obj) return true;
+				if (!(obj instanceof Ref)) return false;
+
+				Object referent = get();
+				return referent != null && referent == ((Ref)obj).get();
+			}
+		}
+	}
+
+	private static List<String> names(String str) {
+		if (isEmpty(str)) return null;
+
+		return Arrays.stream(str.split(","))
+			.map(String::trim)
+			.filter(name -> !name.isEmpty())
+			.collect(Collectors.toList());
+	}
+
 	static List<Orm> load(Element doc) {
 		Xmlement xml = Xmlement.get();
 		ArrayList<Orm> orms = new ArrayList<>();
@@ -310,6 +1135,7 @@ public class Orm extends AbstractComponent {
 			orm.type = klass;
 			orm.table = xml.attribute(child, "table");
 			orm.alias = xml.attribute(child, "alias");
+			orm.tracking = "true".equalsIgnoreCase(xml.attribute(child, "track"));
 			orms.add(orm);
 
 			if (!isEmpty(orm.alias)) {
@@ -325,14 +1151,30 @@ public class Orm extends AbstractComponent {
 				orm.setMapping(mapping);
 			});
 
-			if (!isEmpty(orm.table))
+			Arrays.asList("oneToMany", "manyToOne").forEach(name ->
+				xml.getChildren(child, name).forEach(node ->
+					orm.addAssociation(new Association()
+						.setProperty(notEmpty(xml.attribute(node, "property"), "property"))
+						.setType(notEmpty(xml.attribute(node, "type"), "type"))
+						.setMany("oneToMany".equals(name))
+						.setEager("eager".equalsIgnoreCase(xml.attribute(node, "fetch")))
+						.setKeys(names(xml.attribute(node, "keys")))
+						.setReferences(names(xml.attribute(node, "references")))
+					)
+				)
+			);
+
+			if (!isEmpty(orm.table)) {
+				xml.getChildren(child, "generator").forEach(node -> orm.addGenerator(IdGenerator.create(node, orm.table)));
 				Arrays.asList(
 					"beforeInsert",
 					"beforeUpdate",
-					"beforeDelete"
+					"beforeDelete",
+					"beforeUpsert"
 				).forEach((evtName) ->
 					xml.getChildren(child, evtName).forEach(node -> orm.add(evtName, Instruction.BeforeAfter.create(node)))
 				);
+			}
 		}
 		return orms;
 	}
@@ -0,0 +1,15 @@
+/* Copyright (c) 2020 Emjay Khan. All rights reserved. */
+
+package horizon.sql.support;
+
+/**Defines an {@link Orm} without an {@code <orm../>} instruction in an sqlsheet.<br />
+ * OrmDefinitions are looked up as services with {@link java.util.ServiceLoader} when an Orm is not found for a class,
+ * and the Orms they define are {@link Orm#register(Orm) registered}.
+ * An OrmDefinition is usually generated by the horizon-processor from the {@link horizon.sql.annotation annotations} of a class.
+ */
+public interface OrmDefinition {
+	/**Returns a new Orm.
+	 * @return new Orm
+	 */
+	Orm define();
+}
\ No newline at end of file
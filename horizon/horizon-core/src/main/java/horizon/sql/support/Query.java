@@ -2,6 +2,7 @@
 
 package horizon.sql.support;
 
+import java.time.Duration;
 import java.util.Map;
 
 import org.w3c.dom.Element;
@@ -17,6 +18,8 @@ public class Query extends Instruction {
 	private String id;
 	private Class<?> resultType;
 	private String resultAlias;
+	private Duration cache;
+	private String[] tables;
 
 	public String getId() {
 		return id;
@@ -33,6 +36,14 @@ public class Query extends Instruction {
 		return resultType;
 	}
 
+	public Duration cache() {
+		return cache;
+	}
+
+	public String[] tables() {
+		return tables;
+	}
+
 	@Override
 	protected void configure(Node node) {
 		id = notEmpty(xml.attribute(node, "id"), "id");
@@ -40,5 +51,29 @@ public class Query extends Instruction {
 		String str = xml.attribute(node, "resultType");
 		resultType = !isEmpty(str) ? Klass.of(str) : null;
 		resultAlias = xml.attribute(node, "resultAlias");
+		str = xml.attribute(node, "cache");
+		cache = !isEmpty(str) ? duration(str.trim().toLowerCase()) : null;
+		str = xml.attribute(node, "tables");
+		tables = !isEmpty(str) ? str.trim().split("\\s*,\\s*") : null;
+	}
+
+	private Duration duration(String str) {
+		try {
+			if (str.endsWith("ms"))
+				return Duration.ofMillis(Long.parseLong(str.substring(0, str.length() - 2).trim()));
+			char unit = str.charAt(str.length() - 1);
+			long value = Character.isDigit(unit) ? Long.parseLong(str) : Long.parseLong(str.substring(0, str.length() - 1).trim());
+			if (Character.isDigit(unit))
+				return Duration.ofSeconds(value);
+			switch (unit) {
+			case 'd': return Duration.ofDays(value);
+			case 'h': return Duration.ofHours(value);
+			case 'm': return Duration.ofMinutes(value);
+			case 's': return Duration.ofSeconds(value);
+			default: throw new NumberFormatException();
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid cache of the query '" + id + "': " + str);
+		}
 	}
 }
\ No newline at end of file
@@ -109,6 +109,7 @@ public class SQLBuilder extends AbstractComponent {
 		if (instruction instanceof Query) {
 			Query q = (Query)instruction;
 			result.setResultType(q.resultType());
+			result.setCache(q.cache(), q.tables());
 		}
 
 		return result;
@@ -143,6 +144,17 @@ public class SQLBuilder extends AbstractComponent {
 		return affected;
 	}
 
+	/**Returns the Befores to execute the instructions before saving each of a collection of objects.
+	 * @param instructions	{@code <beforeXXX../>} instructions of an {@code <orm../>}
+	 * @param objRef		name the objects are referenced by in the instructions
+	 * @param params		arguments shared across the objects
+	 * @param chunkSize		number of objects the results of the chunk-scoped instructions are shared by
+	 * @return Befores
+	 */
+	public Befores befores(List<Instruction> instructions, String objRef, Map<String, Object> params, int chunkSize) {
+		return new Befores(instructions, objRef, params, chunkSize);
+	}
+
 	public SQLProc preprocess(String sqlID, Map<String, Object> params) {
 		expr().setBeans(params);
 		Assistant<?> assistant = getAssistant(getInstruction(sqlID));
@@ -210,6 +222,24 @@ public class SQLBuilder extends AbstractComponent {
 			return builder.exproc;
 		}
 
+		/**Returns the value of the reference.<br />
+		 * A reference to a property of an object, like "_this.name", is read with the {@link Orm#getAccessor() Accessor}
+		 * of the object's Orm if available, and other references are evaluated as expressions.
+		 * @param ref reference to a value
+		 * @return value of the reference
+		 */
+		protected Object value(String ref) {
+			int dot = ref.indexOf('.');
+			if (dot > 0 && ref.indexOf('.', dot + 1) < 0) {
+				Object bean = expr().getBeans().get(ref.substring(0, dot));
+				Orm orm = bean != null ? Orm.find(bean.getClass()) : null;
+				Object value = orm != null ? orm.access(bean, ref.substring(dot + 1)) : BeanProperty.UNKNOWN;
+				if (value != BeanProperty.UNKNOWN)
+					return value;
+			}
+			return expr().getValue(ref);
+		}
+
 		protected boolean build(String prefix, SQLProc sql) {
 			return build(instruction.getChildren(), prefix, sql);
 		}
@@ -273,7 +303,7 @@ public class SQLBuilder extends AbstractComponent {
 			String str = instruction.getSQL();
 
 			List<Parameters.Entry> entries = instruction.getPrepareds().stream()
-				.map(param -> new Parameters.Entry(param.type(), param.ref(), Parameters.Type.IN.equals(param.type()) ? expr().getValue(param.ref()) : null))
+				.map(param -> new Parameters.Entry(param.type(), param.ref(), Parameters.Type.IN.equals(param.type()) ? value(param.ref()) : null))
 				.collect(Collectors.toList());
 			sql.addCurrentEntries(entries);
 
@@ -396,6 +426,10 @@ public class SQLBuilder extends AbstractComponent {
 		}
 
 		private void doQuery() {
+			doProperties(query());
+		}
+
+		private List<Object> query() {
 			SQLProc sqlproc = builder.build(instruction, builder.expr().getBeans());
 			Dataset dataset = builder.query()
 				.sql(sqlproc.getStatement())
@@ -405,7 +439,7 @@ public class SQLBuilder extends AbstractComponent {
 			if (dataset.isEmpty())
 				throw new RuntimeException("");
 			DataObject record = dataset.get(0);
-			doProperties(instruction.getSourceColumns().stream().map(record::get).collect(Collectors.toList()));
+			return instruction.getSourceColumns().stream().map(record::get).collect(Collectors.toList());
 		}
 
 		private int doUpdate() {
@@ -416,4 +450,132 @@ public class SQLBuilder extends AbstractComponent {
 				.execute();
 		}
 	}
+
+	/**Executes {@code <beforeXXX../>} instructions before saving each of a collection of objects.
+	 * <p>Compared with {@link SQLBuilder#process(List, Map) processing} the instructions for each object,
+	 * <ul><li>the source properties that do not refer to the object, like shared arguments, are evaluated once for the collection</li>
+	 * 	   <li>the simple properties of the object are read and written with their accessor methods instead of expressions</li>
+	 * 	   <li>the query of a chunk-scoped instruction is executed once for a chunk of objects</li>
+	 * </ul>
+	 * The other instructions are processed for each object as before.
+	 * </p>
+	 */
+	public class Befores {
+		private final List<Instruction.BeforeAfter> instructions = new ArrayList<>();
+		private final String
+			objRef,
+			prefix;
+		private final Map<String, Object> params;
+		private final int chunkSize;
+		private final HashMap<Instruction, List<Object>>
+			constants = new HashMap<>(),
+			chunkValues = new HashMap<>();
+		private int count;
+		private Object current;
+
+		Befores(List<Instruction> instructions, String objRef, Map<String, Object> params, int chunkSize) {
+			for (Instruction instruction: instructions)
+				this.instructions.add((Instruction.BeforeAfter)instruction);
+			this.objRef = objRef;
+			this.prefix = objRef + ".";
+			this.params = params;
+			this.chunkSize = Math.max(1, chunkSize);
+
+			for (Instruction.BeforeAfter instruction: this.instructions) {
+				List<String> sources = instruction.getSourceProperties();
+				if (!sources.isEmpty() && sources.stream().noneMatch(this::refersToObject))
+					constants.put(instruction, null);
+			}
+		}
+
+		private boolean refersToObject(String expr) {
+			return expr.equals(objRef) || expr.startsWith(prefix) || expr.startsWith(objRef + "[");
+		}
+
+		/**Executes the instructions for the object and returns the number of rows affected by the instructions.
+		 * @param obj object to save
+		 * @return number of rows affected by the instructions
+		 */
+		public int execute(Object obj) {
+			if (count++ % chunkSize == 0)
+				chunkValues.clear();
+			current = null;
+
+			int affected = 0;
+			for (Instruction.BeforeAfter instruction: instructions) {
+				List<String> targets = instruction.getTargetProperties();
+				if (targets.isEmpty()) {
+					affected += process(instruction, obj);
+					continue;
+				}
+
+				if (!instruction.getSourceProperties().isEmpty()) {
+					List<Object> values = constants.get(instruction);
+					if (values == null) {
+						values = sources(instruction, obj);
+						if (constants.containsKey(instruction))
+							constants.put(instruction, values);
+					}
+					set(targets, values, obj);
+				}
+				if (!instruction.getSourceColumns().isEmpty()) {
+					List<Object> values = instruction.isChunkScoped() ? chunkValues.get(instruction) : null;
+					if (values == null) {
+						values = query(instruction, obj);
+						if (instruction.isChunkScoped())
+							chunkValues.put(instruction, values);
+					}
+					set(targets, values, obj);
+				}
+			}
+			return affected;
+		}
+
+		private void setBeans(Object obj) {
+			if (current == obj) return;
+
+			expr().setBeans(params);
+			expr().setBean(objRef, obj);
+			current = obj;
+		}
+
+		private List<Object> sources(Instruction.BeforeAfter instruction, Object obj) {
+			ArrayList<Object> values = new ArrayList<>();
+			for (String source: instruction.getSourceProperties()) {
+				Object value = source.startsWith(prefix) ?
+					BeanProperty.get(obj, source.substring(prefix.length())) :
+					BeanProperty.UNKNOWN;
+				if (value == BeanProperty.UNKNOWN) {
+					setBeans(obj);
+					value = expr().getValue(source);
+				}
+				values.add(value);
+			}
+			return values;
+		}
+
+		private void set(List<String> targets, List<Object> values, Object obj) {
+			for (int i = 0; i < targets.size(); ++i) {
+				String target = targets.get(i);
+				Object value = values.get(i);
+				if (target.startsWith(prefix) && BeanProperty.set(obj, target.substring(prefix.length()), value))
+					continue;
+
+				setBeans(obj);
+				expr().setValue(target, value);
+			}
+		}
+
+		private List<Object> query(Instruction.BeforeAfter instruction, Object obj) {
+			setBeans(obj);
+			proc().setInstruction(instruction);
+			return proc().query();
+		}
+
+		private int process(Instruction.BeforeAfter instruction, Object obj) {
+			setBeans(obj);
+			proc().setInstruction(instruction);
+			return proc().execute();
+		}
+	}
 }
\ No newline at end of file
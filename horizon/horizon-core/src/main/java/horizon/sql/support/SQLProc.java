@@ -2,6 +2,7 @@
 
 package horizon.sql.support;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -12,6 +13,8 @@ import horizon.sql.Parameters;
 public class SQLProc extends AbstractComponent {
 	private String statement;
 	private Class<?> resultType;
+	private Duration cache;
+	private String[] tables;
 	private StringBuilder buff;
 	private List<Parameters.Entry> currentEntries;
 	private List<List<Parameters.Entry>> entries;
@@ -43,6 +46,19 @@ public class SQLProc extends AbstractComponent {
 		this.resultType = resultType;
 	}
 
+	public Duration getCache() {
+		return cache;
+	}
+
+	public String[] getTables() {
+		return tables;
+	}
+
+	public void setCache(Duration cache, String[] tables) {
+		this.cache = cache;
+		this.tables = tables;
+	}
+
 	public int length() {
 		return buff != null ? buff.length() : 0;
 	}
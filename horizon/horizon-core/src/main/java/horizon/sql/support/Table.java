@@ -2,18 +2,31 @@
 
 package horizon.sql.support;
 
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import horizon.base.AbstractComponent;
 import horizon.base.Assert;
+import horizon.base.Log;
 import horizon.data.DataObject;
 import horizon.data.StringMap;
 import horizon.sql.DBAccess;
@@ -26,19 +39,113 @@ import horizon.sql.DBAccess;
  */
 public class Table extends StringMap<Column> {
 	private static final long serialVersionUID = 1L;
-	private static final StringMap<Table> cache = new StringMap<>();
+	private static final ConcurrentHashMap<String, Table> cache = new ConcurrentHashMap<>();
 
+	/**Returns the Table of the name.<br />
+	 * If the Table is not cached, it is created from the database's meta data and cached.
+	 * @param name		name of the table
+	 * @param dbaccess	DBAccess to the database
+	 * @return Table of the name
+	 */
 	public static Table get(String name, DBAccess dbaccess) {
-		Table table = cache.get(name);
+		String key = name.toUpperCase();
+		Table table = cache.get(key);
 		if (table == null)
 			try {
-				cache.put(name, table = new Builder().create(dbaccess, name));
+				table = new Builder().create(dbaccess, name);
+				Table cached = cache.putIfAbsent(key, table);
+				if (cached != null)
+					table = cached;
 			} catch (Exception e) {
 				throw Assert.runtimeException(e);
 			}
 		return table;
 	}
 
+	/**Creates and caches the Tables of the names that are not cached yet.<br />
+	 * The columns of the tables are read with calls to {@link DatabaseMetaData#getColumns(String, String, String, String)}
+	 * for the catalog and schema of the DBAccess, with the names sharing a prefix grouped into a pattern of the prefix,
+	 * instead of a call for each table.
+	 * @param names		names of the tables
+	 * @param dbaccess	DBAccess to the database
+	 * @return number of the Tables created
+	 */
+	public static int load(Collection<String> names, DBAccess dbaccess) {
+		List<String> missing = names.stream()
+			.filter(name -> !Assert.isEmpty(name) && !cache.containsKey(name.toUpperCase()))
+			.distinct()
+			.collect(Collectors.toList());
+		if (missing.isEmpty()) return 0;
+
+		boolean close = dbaccess.open();
+		try {
+			Map<String, Table> tables = new Builder().create(dbaccess, missing);
+			tables.forEach(cache::putIfAbsent);
+			return tables.size();
+		} catch (Exception e) {
+			throw Assert.runtimeException(e);
+		} finally {
+			if (close)
+				dbaccess.close();
+		}
+	}
+
+	/**Writes the cached Tables to the file as a snapshot of the database of the DBAccess.<br />
+	 * The snapshot is keyed by the URL, catalog and schema of the database.
+	 * The file is written to a temporary file first and then moved to the path.
+	 * @param path		path to the file
+	 * @param dbaccess	DBAccess to the database of the Tables
+	 */
+	public static void save(Path path, DBAccess dbaccess) {
+		try {
+			String source = Builder.source(dbaccess);
+			Path tmp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+			try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(tmp))) {
+				out.writeObject(source);
+				out.writeObject(new HashMap<>(cache));
+			}
+			Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+			Log.get(Table.class).debug(() -> cache.size() + " table(s) saved to " + path);
+		} catch (Exception e) {
+			throw Assert.runtimeException(e);
+		}
+	}
+
+	/**Caches the Tables read from the file {@link #save(Path, DBAccess) written before}.<br />
+	 * The Tables are read only if the file is a snapshot of the database of the DBAccess,
+	 * with the same URL, catalog and schema.
+	 * The Tables already cached are not replaced.
+	 * Note that the Tables of the file do not reflect the changes to the tables made since the file was written.
+	 * @param path		path to the file
+	 * @param dbaccess	DBAccess to the database of the Tables
+	 * @return number of the Tables read from the file. 0 if the file does not exist or is a snapshot of another database.
+	 */
+	@SuppressWarnings("unchecked")
+	public static int restore(Path path, DBAccess dbaccess) {
+		if (!Files.isRegularFile(path)) return 0;
+
+		try (ObjectInputStream in = new ObjectInputStream(Files.newInputStream(path))) {
+			String source = Builder.source(dbaccess);
+			Object saved = in.readObject();
+			if (!source.equals(saved)) {
+				Log.get(Table.class).debug(() -> path + " is not a snapshot of " + source);
+				return 0;
+			}
+
+			Map<String, Table> tables = (Map<String, Table>)in.readObject();
+			tables.forEach(cache::putIfAbsent);
+			Log.get(Table.class).debug(() -> tables.size() + " table(s) restored from " + path);
+			return tables.size();
+		} catch (Exception e) {
+			throw Assert.runtimeException(e);
+		}
+	}
+
+	/**Removes the cached Tables.*/
+	public static void clearCache() {
+		cache.clear();
+	}
+
 	private String name;
 
 	/**Creates a new Table.*/
@@ -137,25 +244,43 @@ public class Table extends StringMap<Column> {
 	}
 
 	public String insert(List<Column.Token> tokens) {
+		return insertRows(Collections.singletonList(tokens));
+	}
+
+	/**Returns an INSERT statement that inserts the rows of tokens with a VALUES clause of multiple row constructors.
+	 * <pre><code> INSERT INTO table(col0, col1) VALUES (token0_0, token0_1), (token1_0, token1_1)</code></pre>
+	 * @param rows lists of Column.Tokens for each row. The lists must have the same columns in the same order.
+	 * @return INSERT statement
+	 */
+	public String insertRows(List<List<Column.Token>> rows) {
 		StringBuilder cols = new StringBuilder(),
 					  vals = new StringBuilder();
 		List<String> exclude = getAutoInc().stream()
 			.map(Column::name)
 			.collect(Collectors.toList());
 
-		tokens.forEach(token -> {
-			String columnName = token.getColumnName();
-			if (exclude.contains(columnName)) return;
-
-			if (cols.length() > 0)
-				cols.append(", ");
-			cols.append(columnName);
+		for (List<Column.Token> tokens: rows) {
+			StringBuilder row = new StringBuilder();
+			boolean first = cols.length() < 1;
+			tokens.forEach(token -> {
+				String columnName = token.getColumnName();
+				if (exclude.contains(columnName)) return;
+
+				if (first) {
+					if (cols.length() > 0)
+						cols.append(", ");
+					cols.append(columnName);
+				}
+				if (row.length() > 0)
+					row.append(", ");
+				row.append(token.getToken());
+			});
 			if (vals.length() > 0)
 				vals.append(", ");
-			vals.append(token.getToken());
-		});
+			vals.append("(").append(row).append(")");
+		}
 
-		return "INSERT INTO {table}({columns}) VALUES ({values})"
+		return "INSERT INTO {table}({columns}) VALUES {values}"
 			.replace("{table}", name())
 			.replace("{columns}", cols.toString())
 			.replace("{values}", vals.toString());
@@ -186,6 +311,58 @@ public class Table extends StringMap<Column> {
 	}
 */
 
+	/**Returns a statement that inserts a row of the tokens or updates the row if a row with the same keys exists.
+	 * The statement is written in the syntax of {@link Dialect#getUpsert() the Dialect's upsert}.
+	 * @param tokens	Column.Tokens for the values of the row, including the keys
+	 * @param keys		Column.Tokens for the key columns
+	 * @param dialect	Dialect of the database
+	 * @return upsert statement
+	 * @throws UnsupportedOperationException if the Dialect does not support upsert statements
+	 */
+	public String upsert(List<Column.Token> tokens, List<Column.Token> keys, Dialect dialect) {
+		if (Assert.isEmpty(keys))
+			throw new IllegalArgumentException("No keys of " + name() + " to upsert with");
+
+		List<String> keyNames = keys.stream().map(Column.Token::getColumnName).collect(Collectors.toList());
+		List<Column.Token> nonKeys = tokens.stream()
+			.filter(token -> !keyNames.contains(token.getColumnName()))
+			.collect(Collectors.toList());
+		String columns = join(tokens, Column.Token::getColumnName, ", "),
+			   values = join(tokens, Column.Token::getToken, ", ");
+
+		switch (dialect.getUpsert()) {
+		case ON_DUPLICATE_KEY:
+			return "INSERT INTO " + name() + "(" + columns + ") VALUES (" + values + ") ON DUPLICATE KEY UPDATE "
+				 + (nonKeys.isEmpty() ?
+					keyNames.get(0) + " = " + keyNames.get(0) :
+					join(nonKeys, token -> token.getColumnName() + " = VALUES(" + token.getColumnName() + ")", ", "));
+		case ON_CONFLICT:
+			return "INSERT INTO " + name() + "(" + columns + ") VALUES (" + values + ") ON CONFLICT (" + String.join(", ", keyNames) + ") "
+				 + (nonKeys.isEmpty() ?
+					"DO NOTHING" :
+					"DO UPDATE SET " + join(nonKeys, token -> token.getColumnName() + " = EXCLUDED." + token.getColumnName(), ", "));
+		case MERGE_KEY:
+			return "MERGE INTO " + name() + "(" + columns + ") KEY(" + String.join(", ", keyNames) + ") VALUES (" + values + ")";
+		case MERGE:
+		case MERGE_FROM_DUAL:
+			String source = dialect.getUpsert() == Dialect.Upsert.MERGE ?
+				"(VALUES (" + values + ")) S_ (" + columns + ")" :
+				"(SELECT " + join(tokens, token -> token.getToken() + " " + token.getColumnName(), ", ") + " FROM DUAL) S_";
+			return "MERGE INTO " + name() + " T_ USING " + source
+				 + " ON (" + join(keys, token -> "T_." + token.getColumnName() + " = S_." + token.getColumnName(), " AND ") + ")"
+				 + (nonKeys.isEmpty() ? "" :
+					" WHEN MATCHED THEN UPDATE SET " + join(nonKeys, token -> "T_." + token.getColumnName() + " = S_." + token.getColumnName(), ", "))
+				 + " WHEN NOT MATCHED THEN INSERT (" + columns + ") VALUES (" + join(tokens, token -> "S_." + token.getColumnName(), ", ") + ")"
+				 + dialect.getMergeTerminator();
+		default:
+			throw new UnsupportedOperationException("The " + dialect.getName() + " Dialect does not support upsert statements");
+		}
+	}
+
+	private static String join(List<Column.Token> tokens, Function<Column.Token, String> str, String delimiter) {
+		return tokens.stream().map(str).collect(Collectors.joining(delimiter));
+	}
+
 	public String getInsert(List<Column> columns) {
 		return insert(Column.Token.create(columns));
 	}
@@ -222,6 +399,52 @@ public class Table extends StringMap<Column> {
 		return "DELETE FROM " + name() + ("".equals(where) ? where : " " + where);
 	}
 
+	/**Returns a SELECT statement that selects the rows of key tokens with an IN predicate.
+	 * <pre><code> SELECT * FROM table WHERE key IN (token0, token1)</code></pre>
+	 * @param rows		lists of Column.Tokens for the keys of each row. The lists must have the same columns in the same order.
+	 * @param rowValues	whether to match keys of multiple columns with row value constructors
+	 * @return SELECT statement
+	 * @see #deleteRows(List, boolean)
+	 */
+	public String selectRows(List<List<Column.Token>> rows, boolean rowValues) {
+		return "SELECT * FROM " + name() + " WHERE " + inRows(rows, rowValues);
+	}
+
+	/**Returns a DELETE statement that deletes the rows of key tokens with an IN predicate.
+	 * <pre><code> DELETE FROM table WHERE key IN (token0, token1)
+	 * DELETE FROM table WHERE (key0, key1) IN ((token0_0, token0_1), (token1_0, token1_1))
+	 * DELETE FROM table WHERE (key0 = token0_0 AND key1 = token0_1) OR (key0 = token1_0 AND key1 = token1_1)</code></pre>
+	 * @param rows		lists of Column.Tokens for the keys of each row. The lists must have the same columns in the same order.
+	 * @param rowValues	whether to match keys of multiple columns with row value constructors
+	 * @return DELETE statement
+	 */
+	public String deleteRows(List<List<Column.Token>> rows, boolean rowValues) {
+		return "DELETE FROM " + name() + " WHERE " + inRows(rows, rowValues);
+	}
+
+	private static String inRows(List<List<Column.Token>> rows, boolean rowValues) {
+		List<Column.Token> first = rows.get(0);
+		StringBuilder where = new StringBuilder();
+
+		if (first.size() < 2 || rowValues) {
+			for (List<Column.Token> tokens: rows) {
+				if (where.length() > 0)
+					where.append(", ");
+				String row = join(tokens, Column.Token::getToken, ", ");
+				where.append(tokens.size() < 2 ? row : "(" + row + ")");
+			}
+			String keys = join(first, Column.Token::getColumnName, ", ");
+			where.insert(0, (first.size() < 2 ? keys : "(" + keys + ")") + " IN (").append(")");
+		} else {
+			for (List<Column.Token> tokens: rows) {
+				if (where.length() > 0)
+					where.append(" OR ");
+				where.append("(").append(join(tokens, token -> token.getColumnName() + " = " + token.getToken(), " AND ")).append(")");
+			}
+		}
+		return where.toString();
+	}
+
 	public String getDelete(List<Column> columns) {
 		return delete(Column.Token.create(columns));
 	}
@@ -245,6 +468,117 @@ public class Table extends StringMap<Column> {
 	}
 
 	private static class Builder extends AbstractComponent {
+		private static final int PREFIX = 3;
+		private static final int PATTERN_SIZE = 32;
+
+		static String source(DBAccess dbaccess) throws Exception {
+			boolean close = dbaccess.open();
+			try {
+				Connection connection = dbaccess.getConnection();
+				String catalog = dbaccess.getCatalog(),
+					   schema = dbaccess.getSchema();
+				if (isEmpty(catalog))
+					catalog = connection.getCatalog();
+				if (isEmpty(schema))
+					schema = connection.getSchema();
+				return connection.getMetaData().getURL() + " catalog: " + catalog + ", schema: " + schema;
+			} finally {
+				if (close)
+					dbaccess.close();
+			}
+		}
+
+		Map<String, Table> create(DBAccess dbaccess, List<String> names) throws Exception {
+			Connection connection = dbaccess.getConnection();
+			DatabaseMetaData metaData = connection.getMetaData();
+
+			String catalog = dbaccess.getCatalog(),
+				   schema = dbaccess.getSchema();
+			if (isEmpty(catalog))
+				catalog = connection.getCatalog();
+			if (isEmpty(schema))
+				schema = connection.getSchema();
+
+			Set<String> wanted = names.stream().map(String::toUpperCase).collect(Collectors.toSet());
+			HashMap<String, Table> tables = new HashMap<>();
+			for (String pattern: patterns(metaData, names))
+				try (ResultSet columns = metaData.getColumns(catalog, schema, pattern, null)) {
+					while (columns.next()) {
+						String tableName = columns.getString("TABLE_NAME"),
+							   key = tableName.toUpperCase();
+						if (!wanted.contains(key)) continue;
+
+						Table table = tables.computeIfAbsent(key, k -> new Table());
+						table.setName(tableName);
+						String columnName = columns.getString("COLUMN_NAME");
+						table.put(columnName,
+							new Column()
+								.setName(columnName)
+								.setAutoIncrement("YES".equals(columns.getObject("IS_AUTOINCREMENT")))
+						);
+					}
+				}
+
+			for (Table table: tables.values()) {
+				try (ResultSet keys = metaData.getPrimaryKeys(catalog, schema, table.name())) {
+					while (keys.next()) {
+						String columnName = keys.getString("COLUMN_NAME");
+						Column column = table.get(columnName);
+						if (column == null)
+							throw Column.notFound(columnName);
+						column.setKey(true);
+					}
+				}
+			}
+			log().trace(() -> "Information created for tables: " + tables.keySet());
+			return tables;
+		}
+
+		/*Groups the sorted names sharing a prefix of PREFIX or more characters into a pattern of the prefix,
+		 *so that a few calls read the columns of the tables without reading those of all the tables in the schema.
+		 */
+		private static List<String> patterns(DatabaseMetaData metaData, List<String> names) throws SQLException {
+			boolean upper = metaData.storesUpperCaseIdentifiers(),
+					lower = !upper && metaData.storesLowerCaseIdentifiers();
+			List<String> sorted = names.stream()
+				.map(name -> upper ? name.toUpperCase() : lower ? name.toLowerCase() : name)
+				.sorted()
+				.distinct()
+				.collect(Collectors.toList());
+			String escape = metaData.getSearchStringEscape();
+			ArrayList<String> patterns = new ArrayList<>();
+			for (int i = 0, size = sorted.size(); i < size;) {
+				String prefix = sorted.get(i);
+				int j = i + 1;
+				for (; j < size && j - i < PATTERN_SIZE; ++j) {
+					String common = commonPrefix(prefix, sorted.get(j));
+					if (common.length() < PREFIX) break;
+					prefix = common;
+				}
+				patterns.add(j - i < 2 ? escape(sorted.get(i), escape) : escape(prefix, escape) + "%");
+				i = j;
+			}
+			return patterns;
+		}
+
+		private static String commonPrefix(String s, String t) {
+			int i = 0;
+			for (int length = Math.min(s.length(), t.length()); i < length && s.charAt(i) == t.charAt(i); ++i);
+			return s.substring(0, i);
+		}
+
+		private static String escape(String s, String escape) {
+			if (isEmpty(escape)) return s;
+
+			StringBuilder buff = new StringBuilder(s.length());
+			for (char c: s.toCharArray()) {
+				if (c == '_' || c == '%' || escape.indexOf(c) > -1)
+					buff.append(escape);
+				buff.append(c);
+			}
+			return buff.toString();
+		}
+
 		Table create(DBAccess dbaccess, String name) throws Exception {
 			Table table = new Table();
 //			table.setName(name);
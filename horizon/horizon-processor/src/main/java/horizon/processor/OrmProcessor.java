@@ -0,0 +1,317 @@
+/* Copyright (c) 2020 Emjay Khan. All rights reserved. */
+
+package horizon.processor;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**Generates the {@code OrmDefinition}s and {@code Accessor}s of the classes annotated with {@code horizon.sql.annotation.Table}.
+ * <p>For a table class, like 'Customer', the processor generates the 'CustomerOrm' class in the same package, which
+ * <ul><li>defines the Orm of the class with the table, alias, and mappings of the annotations</li>
+ * 	   <li>creates the objects and reads and writes their properties with the getters and setters of the annotated fields</li>
+ * </ul>
+ * The generated classes are listed in 'META-INF/services/horizon.sql.support.OrmDefinition' to be looked up at runtime.
+ * </p>
+ * <p>A table class must be a public top-level or static nested class with a public no-arg constructor,
+ * and its annotated fields must have public getters and setters.
+ * </p>
+ */
+@SupportedAnnotationTypes({OrmProcessor.TABLE, OrmProcessor.COLUMN})
+public class OrmProcessor extends AbstractProcessor {
+	static final String
+		TABLE = "horizon.sql.annotation.Table",
+		COLUMN = "horizon.sql.annotation.Column",
+		SERVICE = "META-INF/services/horizon.sql.support.OrmDefinition";
+
+	private final LinkedHashSet<String> generated = new LinkedHashSet<>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment env) {
+		if (env.processingOver()) {
+			writeServices();
+			return false;
+		}
+
+		TypeElement table = processingEnv.getElementUtils().getTypeElement(TABLE);
+		if (table == null) return false;
+
+		for (TypeElement type: ElementFilter.typesIn(env.getElementsAnnotatedWith(table))) {
+			try {
+				Definition definition = define(type);
+				if (definition != null) {
+					write(definition);
+					generated.add(definition.qualifiedName());
+				}
+			} catch (Exception e) {
+				error(type, "Failed to generate the Orm of " + type + ": " + e);
+			}
+		}
+		return true;
+	}
+
+	private Definition define(TypeElement type) {
+		if (type.getKind() != ElementKind.CLASS
+		 || !type.getModifiers().contains(Modifier.PUBLIC)
+		 || type.getModifiers().contains(Modifier.ABSTRACT)
+		 || type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)
+		 || type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+			error(type, "A table class must be a public, concrete, top-level or static nested class");
+			return null;
+		}
+		if (!hasDefaultConstructor(type)) {
+			error(type, "A table class must have a public no-arg constructor");
+			return null;
+		}
+
+		Map<String, Object> values = values(type, TABLE);
+		Definition definition = new Definition();
+		definition.type = type;
+		definition.packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+		definition.simpleName = simpleName(type) + "Orm";
+		definition.table = (String)values.get("value");
+		definition.alias = (String)values.get("alias");
+		definition.track = Boolean.TRUE.equals(values.get("track"));
+
+		boolean valid = true;
+		for (VariableElement field: fields(type)) {
+			Map<String, Object> column = values(field, COLUMN);
+			if (column == null) continue;
+
+			String name = field.getSimpleName().toString();
+			ExecutableElement getter = method(type, getterName(field), 0),
+							  setter = method(type, "set" + capitalize(name), 1);
+			if (getter == null || setter == null) {
+				error(field, "The field '" + name + "' must have a public getter and setter");
+				valid = false;
+				continue;
+			}
+
+			Property property = new Property();
+			property.name = name;
+			property.column = ((String)column.get("value")).isEmpty() ? snakeCase(name) : (String)column.get("value");
+			property.key = Boolean.TRUE.equals(column.get("key"));
+			property.autoIncrement = Boolean.TRUE.equals(column.get("autoIncrement"));
+			property.getter = getter.getSimpleName().toString();
+			property.setter = setter.getSimpleName().toString();
+			property.type = classLiteral(setter.getParameters().get(0).asType());
+			definition.properties.add(property);
+		}
+		if (definition.properties.isEmpty()) {
+			error(type, "No fields annotated with @Column found");
+			return null;
+		}
+		return valid ? definition : null;
+	}
+
+	private void write(Definition definition) throws Exception {
+		String typeName = definition.type.getQualifiedName().toString();
+		try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(definition.qualifiedName(), definition.type).openWriter())) {
+			if (!definition.packageName.isEmpty())
+				out.println("package " + definition.packageName + ";\n");
+			out.println("import horizon.sql.support.Accessor;");
+			out.println("import horizon.sql.support.Orm;");
+			out.println("import horizon.sql.support.OrmDefinition;\n");
+			out.println("/**Defines the Orm of {@link " + typeName + "} and accesses its objects.<br />");
+			out.println(" * Generated by the horizon-processor. Do not edit.");
+			out.println(" */");
+			out.println("@javax.annotation.processing.Generated(\"" + OrmProcessor.class.getName() + "\")");
+			out.println("public class " + definition.simpleName + " implements OrmDefinition, Accessor<" + typeName + "> {");
+
+			out.println("\t@Override");
+			out.println("\tpublic Orm define() {");
+			out.println("\t\tOrm orm = new Orm();");
+			out.println("\t\torm.setType(" + typeName + ".class);");
+			out.println("\t\torm.setTable(" + literal(definition.table) + ");");
+			if (!definition.alias.isEmpty())
+				out.println("\t\torm.setAlias(" + literal(definition.alias) + ");");
+			out.println("\t\torm.setTracking(" + definition.track + ");");
+			for (Property property: definition.properties)
+				out.println("\t\torm.setMapping(" + literal(property.name) + ", " + literal(property.column) + ");");
+			if (definition.properties.stream().anyMatch(property -> property.key)) {
+				out.println("\n\t\thorizon.sql.support.Table table = new horizon.sql.support.Table();");
+				out.println("\t\ttable.setName(" + literal(definition.table) + ");");
+				for (Property property: definition.properties)
+					out.println("\t\ttable.put(" + literal(property.column) + ", new horizon.sql.support.Column().setName(" + literal(property.column) + ")"
+						+ ".setKey(" + property.key + ").setAutoIncrement(" + property.autoIncrement + "));");
+				out.println("\t\torm.setTable(table);");
+			}
+			out.println("\t\treturn orm.setAccessor(this);");
+			out.println("\t}\n");
+
+			out.println("\t@Override");
+			out.println("\tpublic " + typeName + " create() {");
+			out.println("\t\treturn new " + typeName + "();");
+			out.println("\t}\n");
+
+			out.println("\t@Override");
+			out.println("\tpublic Object get(" + typeName + " obj, int index) {");
+			out.println("\t\tswitch (index) {");
+			for (int i = 0; i < definition.properties.size(); ++i)
+				out.println("\t\tcase " + i + ": return obj." + definition.properties.get(i).getter + "();");
+			out.println("\t\tdefault: throw new IndexOutOfBoundsException(\"index: \" + index);");
+			out.println("\t\t}");
+			out.println("\t}\n");
+
+			out.println("\t@Override");
+			out.println("\tpublic void set(" + typeName + " obj, int index, Object value) {");
+			out.println("\t\tswitch (index) {");
+			for (int i = 0; i < definition.properties.size(); ++i) {
+				Property property = definition.properties.get(i);
+				out.println("\t\tcase " + i + ": obj." + property.setter + "(Accessor.convert(value, " + property.type + ")); break;");
+			}
+			out.println("\t\tdefault: throw new IndexOutOfBoundsException(\"index: \" + index);");
+			out.println("\t\t}");
+			out.println("\t}");
+			out.println("}");
+		}
+	}
+
+	private void writeServices() {
+		if (generated.isEmpty()) return;
+
+		try {
+			FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE);
+			try (Writer out = file.openWriter()) {
+				for (String name: generated)
+					out.write(name + "\n");
+			}
+		} catch (Exception e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to write " + SERVICE + ": " + e);
+		}
+	}
+
+	private Map<String, Object> values(Element element, String annotation) {
+		for (AnnotationMirror mirror: element.getAnnotationMirrors()) {
+			if (!((TypeElement)mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotation)) continue;
+
+			Map<String, Object> values = new HashMap<>();
+			for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry: processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet())
+				values.put(entry.getKey().getSimpleName().toString(), entry.getValue().getValue());
+			return values;
+		}
+		return null;
+	}
+
+	private List<VariableElement> fields(TypeElement type) {
+		ArrayList<VariableElement> fields = new ArrayList<>();
+		TypeMirror superclass = type.getSuperclass();
+		if (superclass.getKind() == TypeKind.DECLARED)
+			fields.addAll(fields((TypeElement)((DeclaredType)superclass).asElement()));
+		for (VariableElement field: ElementFilter.fieldsIn(type.getEnclosedElements()))
+			if (!field.getModifiers().contains(Modifier.STATIC))
+				fields.add(field);
+		return fields;
+	}
+
+	private ExecutableElement method(TypeElement type, String name, int params) {
+		for (ExecutableElement method: ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type)))
+			if (method.getSimpleName().contentEquals(name)
+			 && method.getParameters().size() == params
+			 && method.getModifiers().contains(Modifier.PUBLIC)
+			 && !method.getModifiers().contains(Modifier.STATIC))
+				return method;
+		return null;
+	}
+
+	private boolean hasDefaultConstructor(TypeElement type) {
+		List<ExecutableElement> constructors = ElementFilter.constructorsIn(type.getEnclosedElements());
+		return constructors.stream().anyMatch(constructor -> constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC));
+	}
+
+	private String getterName(VariableElement field) {
+		String name = capitalize(field.getSimpleName().toString());
+		return field.asType().getKind() == TypeKind.BOOLEAN ? "is" + name : "get" + name;
+	}
+
+	private String classLiteral(TypeMirror type) {
+		return processingEnv.getTypeUtils().erasure(type).toString() + ".class";
+	}
+
+	private static String simpleName(TypeElement type) {
+		Element enclosing = type.getEnclosingElement();
+		return enclosing instanceof PackageElement ? type.getSimpleName().toString() : simpleName((TypeElement)enclosing) + "_" + type.getSimpleName();
+	}
+
+	private static String capitalize(String name) {
+		return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+	}
+
+	static String snakeCase(String name) {
+		StringBuilder buff = new StringBuilder();
+		for (int i = 0; i < name.length(); ++i) {
+			char c = name.charAt(i);
+			if (Character.isUpperCase(c) && i > 0)
+				buff.append('_');
+			buff.append(Character.toUpperCase(c));
+		}
+		return buff.toString();
+	}
+
+	private static String literal(String s) {
+		return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+
+	private void error(Element element, String message) {
+		processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+	}
+
+	private static class Definition {
+		private TypeElement type;
+		private String
+			packageName,
+			simpleName,
+			table,
+			alias;
+		private boolean track;
+		private final ArrayList<Property> properties = new ArrayList<>();
+
+		String qualifiedName() {
+			return packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+		}
+	}
+
+	private static class Property {
+		private String
+			name,
+			column,
+			getter,
+			setter,
+			type;
+		private boolean
+			key,
+			autoIncrement;
+	}
+}
\ No newline at end of file
@@ -1,6 +1,7 @@
 package horizon.spring.sql;
 
 import java.io.InputStream;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -38,6 +39,10 @@ import horizon.sql.DBAccess;
  *	   </li>
  * </ul>
  * </p>
+ * <p>To read the meta data of the tables of the &lt;orm../>s when the context is refreshed, instead of on the first requests,
+ * set the 'preload' property to true.<br />
+ * To have later restarts read the meta data from a file instead of the database, specify the 'tableSnapshot' property as well.
+ * </p>
  */
 public class DBAccessFactoryBean extends AbstractComponent implements FactoryBean<DBAccess>, InitializingBean, ApplicationListener<ApplicationEvent> {
 	private String
@@ -45,7 +50,9 @@ public class DBAccessFactoryBean extends AbstractComponent implements FactoryBea
 		connectionName,
 		catalog,
 		schema,
-		sqlsheetLocations;
+		sqlsheetLocations,
+		tableSnapshot;
+	private boolean preload;
 	@Autowired
 	private ResourceLoader resourceLoader;
 
@@ -90,6 +97,22 @@ public class DBAccessFactoryBean extends AbstractComponent implements FactoryBea
 		this.sqlsheetLocations = sqlsheetLocations;
 	}
 
+	/**Sets whether to read the meta data of the tables of the &lt;orm../>s when the context is refreshed.
+	 * @param preload whether to read the meta data of the tables when the context is refreshed
+	 * @see DBAccess.ConfigControl#preload(DBAccess, java.nio.file.Path)
+	 */
+	public void setPreload(boolean preload) {
+		this.preload = preload;
+	}
+
+	/**Sets the path to the file to save the meta data of the tables to and restore them from.<br />
+	 * The property is effective only when the 'preload' property is true.
+	 * @param tableSnapshot path to the snapshot file of the meta data of the tables
+	 */
+	public void setTableSnapshot(String tableSnapshot) {
+		this.tableSnapshot = tableSnapshot;
+	}
+
 	/**Sets the datasource for a DBAccess to use.
 	 * @param datasource datasource for a DBAccess to use
 	 */
@@ -166,6 +189,8 @@ public class DBAccessFactoryBean extends AbstractComponent implements FactoryBea
 		try {
 			afterPropertiesSet();
 			configureSQLSheets();
+			if (preload)
+				DBAccess.config().preload(getObject(), !isEmpty(tableSnapshot) ? Paths.get(tableSnapshot) : null);
 		} catch (Exception e) {
 			throw runtimeException(e);
 		}
@@ -0,0 +1,51 @@
+package horizon.spring.web;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+import horizon.base.AbstractComponent;
+import horizon.sql.JsonResult;
+
+/**Writes a {@link JsonResult} returned from a controller method to the response.
+ * <p>The JsonResult is written straight to the response's OutputStream
+ * without being converted to an intermediate object tree or String.
+ * </p>
+ * <p>To have controller methods return JsonResults, register the handler with Spring MVC like:
+ * <pre><code> {@code <mvc:annotation-driven>
+ *     <mvc:return-value-handlers>
+ *         <bean class="horizon.spring.web.JsonResultHandler"/>
+ *     </mvc:return-value-handlers>
+ * </mvc:annotation-driven>}</code></pre>
+ * </p>
+ */
+public class JsonResultHandler extends AbstractComponent implements HandlerMethodReturnValueHandler {
+	private String contentType = "application/json;charset=UTF-8";
+
+	/**Sets the content type of the response.<br />
+	 * The default is "application/json;charset=UTF-8".
+	 * @param contentType content type of the response
+	 */
+	public void setContentType(String contentType) {
+		this.contentType = notEmpty(contentType, "contentType");
+	}
+
+	@Override
+	public boolean supportsReturnType(MethodParameter returnType) {
+		return JsonResult.class.isAssignableFrom(returnType.getParameterType());
+	}
+
+	@Override
+	public void handleReturnValue(Object returnValue, MethodParameter returnType, ModelAndViewContainer mavContainer, NativeWebRequest webRequest) throws Exception {
+		mavContainer.setRequestHandled(true);
+		if (returnValue == null) return;
+
+		HttpServletResponse response = webRequest.getNativeResponse(HttpServletResponse.class);
+		response.setContentType(contentType);
+		((JsonResult)returnValue).write(response.getOutputStream());
+		response.flushBuffer();
+	}
+}
\ No newline at end of file
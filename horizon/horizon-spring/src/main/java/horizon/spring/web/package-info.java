@@ -0,0 +1,3 @@
+/**Provides classes to help you use Horizon components in Spring MVC controllers.
+ */
+package horizon.spring.web;
\ No newline at end of file